@@ -0,0 +1,121 @@
+package com.pdfprocessor.pdf_segmentation.benchmark;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+// Deterministic synthetic PDFs for the benchmarks. Documents vary in page count, text density (lines per
+// page and glyphs per line) and image weight (number and size of embedded raster images per page).
+// Paragraphs are separated by gaps of random height so the gap ranking has realistic work to do.
+public final class SyntheticCorpus {
+
+    public enum TextDensity {
+        SPARSE(6, 12, 40),
+        NORMAL(10, 12, 90),
+        DENSE(7, 8.5f, 160);
+
+        final float fontSize;
+        final float leading;
+        final int lineLength;
+
+        TextDensity(float fontSize, float leading, int lineLength) {
+            this.fontSize = fontSize;
+            this.leading = leading;
+            this.lineLength = lineLength;
+        }
+    }
+
+    public enum ImageWeight {
+        NONE(0, 0),
+        LIGHT(1, 64),
+        HEAVY(3, 256);
+
+        final int imagesPerPage;
+        final int imageSize;
+
+        ImageWeight(int imagesPerPage, int imageSize) {
+            this.imagesPerPage = imagesPerPage;
+            this.imageSize = imageSize;
+        }
+    }
+
+    private static final String WORDS = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod "
+            + "tempor incididunt ut labore et dolore magna aliqua ";
+
+    private SyntheticCorpus() {
+    }
+
+    public static byte[] generate(int pages, TextDensity density, ImageWeight images) throws IOException {
+        Random random = new Random(31L * pages + density.ordinal() * 7L + images.ordinal());
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                float top = page.getMediaBox().getHeight() - 50;
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    float y = top;
+                    // Images sit in the right column so they do not overlap the text lines
+                    for (int i = 0; i < images.imagesPerPage; i++) {
+                        PDImageXObject image = LosslessFactory.createFromImage(document, noise(images.imageSize, random));
+                        float side = Math.min(images.imageSize, 160);
+                        content.drawImage(image, 400, top - (i + 1) * (side + 20), side, side);
+                    }
+
+                    content.setFont(PDType1Font.HELVETICA, density.fontSize);
+                    while (y > 60) {
+                        int lines = 2 + random.nextInt(8);
+                        for (int l = 0; l < lines && y > 60; l++) {
+                            content.beginText();
+                            content.newLineAtOffset(50, y);
+                            content.showText(line(random, images == ImageWeight.NONE ? density.lineLength : density.lineLength / 2));
+                            content.endText();
+                            y -= density.leading;
+                        }
+                        y -= density.leading * (0.5f + random.nextFloat() * 3);
+                    }
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    public static File generateFile(File directory, int pages, TextDensity density, ImageWeight images) throws IOException {
+        File file = new File(directory, "corpus-" + pages + "-" + density.name().toLowerCase()
+                + "-" + images.name().toLowerCase() + ".pdf");
+        Files.write(file.toPath(), generate(pages, density, images));
+        return file;
+    }
+
+    private static String line(Random random, int length) {
+        StringBuilder line = new StringBuilder(length);
+        int offset = random.nextInt(WORDS.length());
+        while (line.length() < length) {
+            line.append(WORDS.charAt(offset++ % WORDS.length()));
+        }
+        return line.toString().trim();
+    }
+
+    // Random pixels do not compress, so the image weight shows up in the file size and the segment copies
+    private static BufferedImage noise(int size, Random random) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, random.nextInt(0x1000000));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,130 @@
+package com.pdfprocessor.pdf_segmentation.controller;
+
+import com.pdfprocessor.pdf_segmentation.archive.ArchiveCompression;
+import com.pdfprocessor.pdf_segmentation.archive.ZipArchive;
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus;
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus.ImageWeight;
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus.TextDensity;
+import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService;
+import org.apache.pdfbox.multipdf.Splitter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Packing the segment files of one document into the ZIP response body
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ZipBenchmark {
+
+    @Param({"8", "64"})
+    public int segments;
+
+    @Param({"NONE", "HEAVY"})
+    public ImageWeight images;
+
+    // Compression and threading of the archive writer used by the endpoints
+    @State(Scope.Benchmark)
+    public static class ArchiveMode {
+        @Param({"DEFLATE", "STORED", "ADAPTIVE"})
+        public ArchiveCompression compression;
+
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        ExecutorService executor;
+
+        @Setup
+        public void setUp() {
+            executor = parallel ? Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()) : null;
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private File directory;
+    private List<File> segmentFiles;
+    private List<byte[]> segmentBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("zip-benchmark").toFile();
+        segmentFiles = new ArrayList<>();
+        segmentBytes = new ArrayList<>();
+        try (PDDocument document = PDDocument.load(SyntheticCorpus.generate(segments, TextDensity.NORMAL, images))) {
+            // One single-page segment per page, named the way the service names them
+            List<PDDocument> pages = new Splitter().split(document);
+            for (int i = 0; i < pages.size(); i++) {
+                try (PDDocument page = pages.get(i)) {
+                    File file = new File(directory, PdfSegmentationService.segmentName("corpus.pdf", i));
+                    page.save(file);
+                    segmentFiles.add(file);
+                    segmentBytes.add(Files.readAllBytes(file.toPath()));
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    // The original response path: a ZipOutputStream over the stored segment files
+    @Benchmark
+    public byte[] createZipFromFiles() throws IOException {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
+             ZipOutputStream zos = new ZipOutputStream(baos)) {
+            for (File file : segmentFiles) {
+                zos.putNextEntry(new ZipEntry(file.getName()));
+                Files.copy(file.toPath(), zos);
+                zos.closeEntry();
+            }
+            zos.finish();
+            return baos.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public byte[] archive(ArchiveMode mode) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipArchive archive = new ZipArchive(out, mode.compression, 6, 65536, 0.1, mode.executor,
+                2 * Runtime.getRuntime().availableProcessors(), 16L << 20);
+        for (int i = 0; i < segmentBytes.size(); i++) {
+            archive.addEntry(segmentFiles.get(i).getName(), segmentBytes.get(i));
+        }
+        archive.finish();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,62 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Gap ranking over raw Y positions, and re-cutting an existing index
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutIndexBenchmark {
+
+    @Param({"1000", "100000"})
+    public int positions;
+
+    @Param({"1", "100"})
+    public int cuts;
+
+    private float[] yPositions;
+    private LayoutIndex index;
+
+    @Setup
+    public void setUp() {
+        // Many glyphs share a baseline, as in real text, so roughly one in ten positions is distinct
+        Random random = new Random(42);
+        yPositions = new float[positions];
+        for (int i = 0; i < positions; i++) {
+            yPositions[i] = random.nextInt(Math.max(positions / 10, 1)) * 12 + random.nextInt(3) * 0.25f;
+        }
+        index = LayoutIndex.build(yPositions.clone(), null);
+    }
+
+    @Benchmark
+    public LayoutIndex build() {
+        // build sorts in place, so every invocation works on a fresh copy
+        return LayoutIndex.build(yPositions.clone(), null);
+    }
+
+    @Benchmark
+    public int[] cutPositions() {
+        return index.cutPositions(cuts);
+    }
+
+    @Benchmark
+    public int[] selectLargestGaps() {
+        return GapSelector.cutPositions(yPositions.clone(), positions, cuts);
+    }
+}
@@ -0,0 +1,103 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus;
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus.ImageWeight;
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus.TextDensity;
+import com.pdfprocessor.pdf_segmentation.layout.ContentStreamScanner;
+import com.pdfprocessor.pdf_segmentation.layout.DocumentLayout;
+import com.pdfprocessor.pdf_segmentation.layout.LayoutIndex;
+import com.pdfprocessor.pdf_segmentation.layout.PageLayout;
+import com.pdfprocessor.pdf_segmentation.layout.ParallelLayoutAnalyzer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per-stage throughput of the segmentation pipeline over the synthetic corpus. The document is parsed
+// once per trial, as the service does once per upload; each stage then runs against it repeatedly.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentationStagesBenchmark {
+
+    @Param({"8", "64"})
+    public int pages;
+
+    @Param({"NORMAL", "DENSE"})
+    public TextDensity density;
+
+    @Param({"NONE", "HEAVY"})
+    public ImageWeight images;
+
+    @Param({"10"})
+    public int cuts;
+
+    private final PdfSegmentationService service = new PdfSegmentationService();
+    private final SegmentSink discardingSink = (index, name) -> OutputStream.nullOutputStream();
+
+    private PDDocument document;
+    private LayoutIndex index;
+    private List<Integer> cutPositions;
+
+    @Setup
+    public void setUp() throws IOException {
+        document = PDDocument.load(SyntheticCorpus.generate(pages, density, images));
+        DocumentLayout layout = new DocumentLayout(pages, ParallelLayoutAnalyzer.analyzePages(document, 0, pages));
+        index = LayoutIndex.build(layout.allYPositions(), layout);
+        // splitPdf writes one page per cut position, so never ask for more cuts than pages
+        cutPositions = service.findCutPositions(index, Math.min(cuts, pages));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    // Y-position extraction of the TEXT extraction mode
+    @Benchmark
+    public List<Float> extractTextPositions() throws IOException {
+        PdfSegmentationService.CustomPDFTextStripper stripper = new PdfSegmentationService.CustomPDFTextStripper();
+        stripper.setSortByPosition(true);
+        stripper.getText(document);
+        return stripper.getYPositions();
+    }
+
+    // Line geometry extraction of the GEOMETRY extraction mode
+    @Benchmark
+    public List<PageLayout> extractGeometry() throws IOException {
+        return ParallelLayoutAnalyzer.analyzePages(document, 0, pages);
+    }
+
+    // Operator scan of the CONTENT_STREAM extraction mode
+    @Benchmark
+    public List<PageLayout> scanContentStreams() throws IOException {
+        return ContentStreamScanner.scanPages(document, 0, pages);
+    }
+
+    @Benchmark
+    public List<Integer> findCutPositions() {
+        return service.findCutPositions(index, cuts);
+    }
+
+    @Benchmark
+    public int splitPdf() throws IOException {
+        return service.splitPdf(document, cutPositions, "corpus.pdf", discardingSink);
+    }
+}
@@ -0,0 +1,80 @@
+package com.pdfprocessor.pdf_segmentation.loadtest;
+
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus;
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus.ImageWeight;
+import com.pdfprocessor.pdf_segmentation.benchmark.SyntheticCorpus.TextDensity;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Weighted mix of synthetic documents, e.g. "4:NORMAL:NONE=6,128:DENSE:HEAVY=1" sends a 4-page text document six
+// times as often as a 128-page dense one with heavy images. Documents are generated once by SyntheticCorpus.
+class DocumentMix {
+
+    static class Document {
+        final String label;
+        final byte[] content;
+        final int weight;
+
+        Document(String label, byte[] content, int weight) {
+            this.label = label;
+            this.content = content;
+            this.weight = weight;
+        }
+    }
+
+    private final List<Document> documents = new ArrayList<>();
+    private int totalWeight;
+
+    static DocumentMix parse(String spec) throws IOException {
+        DocumentMix mix = new DocumentMix();
+        for (String entry : spec.split(",")) {
+            String[] weighted = entry.trim().split("=");
+            String[] parts = weighted[0].split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected pages:density:images[=weight], got " + entry);
+            }
+            int pages = Integer.parseInt(parts[0].trim());
+            TextDensity density = TextDensity.valueOf(parts[1].trim().toUpperCase());
+            ImageWeight images = ImageWeight.valueOf(parts[2].trim().toUpperCase());
+            int weight = weighted.length > 1 ? Integer.parseInt(weighted[1].trim()) : 1;
+            if (weight <= 0) {
+                continue;
+            }
+            String label = pages + "p-" + density.name().toLowerCase() + "-" + images.name().toLowerCase();
+            mix.documents.add(new Document(label, SyntheticCorpus.generate(pages, density, images), weight));
+            mix.totalWeight += weight;
+        }
+        if (mix.documents.isEmpty()) {
+            throw new IllegalArgumentException("The document mix is empty");
+        }
+        return mix;
+    }
+
+    Document pick(Random random) {
+        int draw = random.nextInt(totalWeight);
+        for (Document document : documents) {
+            draw -= document.weight;
+            if (draw < 0) {
+                return document;
+            }
+        }
+        return documents.get(documents.size() - 1);
+    }
+
+    List<Document> getDocuments() {
+        return documents;
+    }
+
+    // A comment after %%EOF changes the upload hash without changing what the parser sees
+    static byte[] unique(byte[] content, long sequence) {
+        byte[] suffix = ("\n% load-test " + sequence + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] copy = new byte[content.length + suffix.length];
+        System.arraycopy(content, 0, copy, 0, content.length);
+        System.arraycopy(suffix, 0, copy, content.length, suffix.length);
+        return copy;
+    }
+}
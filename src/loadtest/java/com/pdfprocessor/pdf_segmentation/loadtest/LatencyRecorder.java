@@ -0,0 +1,76 @@
+package com.pdfprocessor.pdf_segmentation.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Latencies and outcomes of one operation. Every sample is kept, so percentiles are exact rather than
+// estimated from buckets; a run records at most a few hundred thousand requests.
+class LatencyRecorder {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    private int errors;
+    private long bytesSent;
+    private long bytesReceived;
+    private final Map<String, Integer> outcomes = new TreeMap<>();
+
+    // status is the HTTP status, or the exception class name when no response arrived
+    synchronized void record(long latencyNanos, String status, boolean error, long sent, long received) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+        if (error) {
+            errors++;
+        }
+        bytesSent += sent;
+        bytesReceived += received;
+        outcomes.merge(status, 1, Integer::sum);
+    }
+
+    synchronized Map<String, Object> summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors);
+        summary.put("errorRate", count == 0 ? 0 : (double) errors / count);
+        summary.put("throughputPerSecond", count / seconds);
+        summary.put("successPerSecond", (count - errors) / seconds);
+        summary.put("bytesSent", bytesSent);
+        summary.put("bytesReceived", bytesReceived);
+        summary.put("outcomes", new TreeMap<>(outcomes));
+
+        Map<String, Object> latency = new LinkedHashMap<>();
+        if (count > 0) {
+            long total = 0;
+            for (long value : sorted) {
+                total += value;
+            }
+            latency.put("min", millis(sorted[0]));
+            latency.put("mean", millis(total / count));
+            latency.put("p50", millis(percentile(sorted, 0.50)));
+            latency.put("p95", millis(percentile(sorted, 0.95)));
+            latency.put("p99", millis(percentile(sorted, 0.99)));
+            latency.put("max", millis(sorted[count - 1]));
+        }
+        summary.put("latencyMs", latency);
+        return summary;
+    }
+
+    synchronized int getCount() {
+        return count;
+    }
+
+    // Nearest-rank percentile
+    private static long percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+}
@@ -0,0 +1,339 @@
+package com.pdfprocessor.pdf_segmentation.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// End-to-end load test of the REST API. Starts the application (or targets --base-url), drives
+// /api/pdf/segment-pdf and the metadata endpoints with a weighted mix of synthetic documents and operations,
+// and writes throughput, latency percentiles, error rates and server heap/GC statistics of the measured
+// phase to a JSON file:
+//   mvn -P loadtest test-compile exec:exec -Dloadtest.args="--concurrency=8 --rate=4 --duration-seconds=120"
+// Requests sent during --warmup-seconds are not recorded. In the open model (--rate > 0) latency is measured
+// from the scheduled arrival, so time spent waiting for a free client counts, as it would for a real caller.
+public class LoadTest {
+
+    private static final String API = "/api/pdf";
+
+    private final LoadTestOptions options;
+    private final DocumentMix mix;
+    private final Map<String, Integer> operationWeights;
+    private final int totalOperationWeight;
+    private final HttpClient client;
+    private final String baseUrl;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final List<String> segmentedIds = new CopyOnWriteArrayList<>();
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+    private final LatencyRecorder total = new LatencyRecorder();
+    private final AtomicLong unserved = new AtomicLong();
+
+    private volatile long measureStart;
+    private volatile long measureEnd;
+
+    LoadTest(LoadTestOptions options, DocumentMix mix, HttpClient client, String baseUrl) {
+        this.options = options;
+        this.mix = mix;
+        this.operationWeights = options.operationWeights();
+        this.totalOperationWeight = operationWeights.values().stream().mapToInt(Integer::intValue).sum();
+        this.client = client;
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        File outputDir = new File(options.output);
+        Files.createDirectories(outputDir.toPath());
+
+        System.out.println("Generating corpus " + options.documents);
+        DocumentMix mix = DocumentMix.parse(options.documents);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", LocalDateTime.now().toString());
+        result.put("options", options.toMap());
+        List<Map<String, Object>> corpus = new ArrayList<>();
+        for (DocumentMix.Document document : mix.getDocuments()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("label", document.label);
+            entry.put("bytes", document.content.length);
+            entry.put("weight", document.weight);
+            corpus.add(entry);
+        }
+        result.put("corpus", corpus);
+
+        ServerProcess server = null;
+        String baseUrl = options.baseUrl;
+        try {
+            if (baseUrl.isEmpty()) {
+                long started = System.nanoTime();
+                server = ServerProcess.start(options.split(options.serverJvmArgs), options.split(options.serverArgs),
+                        new File(outputDir, "server.log"));
+                result.put("serverStartupMs", (System.nanoTime() - started) / 1_000_000);
+                baseUrl = server.getBaseUrl();
+            }
+            System.out.println("Driving " + baseUrl + " with " + options.concurrency + " clients"
+                    + (options.rate > 0 ? " at " + options.rate + " requests/s" : " back to back"));
+            new LoadTest(options, mix, client, baseUrl).run(result);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+
+        File file = new File(outputDir, "loadtest-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, result);
+        System.out.println("Results written to " + file);
+    }
+
+    void run(Map<String, Object> result) throws Exception {
+        ServerStats stats = new ServerStats(client, baseUrl);
+        long now = System.nanoTime();
+        measureStart = now + TimeUnit.SECONDS.toNanos(options.warmupSeconds);
+        measureEnd = measureStart + TimeUnit.SECONDS.toNanos(options.durationSeconds);
+
+        LinkedBlockingQueue<Long> arrivals = new LinkedBlockingQueue<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < options.concurrency; i++) {
+            Random random = new Random(options.seed + i);
+            Thread client = new Thread(() -> clientLoop(random, options.rate > 0 ? arrivals : null), "load-client-" + i);
+            threads.add(client);
+        }
+        if (options.rate > 0) {
+            Random random = new Random(options.seed - 1);
+            threads.add(new Thread(() -> arrivalLoop(random, arrivals), "load-arrivals"));
+        }
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            long time = System.nanoTime();
+            if (time >= measureStart && time < measureEnd) {
+                try {
+                    stats.sample();
+                } catch (IOException | InterruptedException e) {
+                    System.err.println("Sampling server metrics failed: " + e);
+                }
+            }
+        }, TimeUnit.NANOSECONDS.toMillis(measureStart - now) + 500, 1000, TimeUnit.MILLISECONDS);
+
+        threads.forEach(Thread::start);
+        Thread.sleep(Math.max(0, TimeUnit.NANOSECONDS.toMillis(measureStart - System.nanoTime())));
+        stats.begin();
+        System.out.println("Warm-up done, measuring for " + options.durationSeconds + " s");
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sampler.shutdownNow();
+        double seconds = options.durationSeconds;
+
+        result.put("measuredSeconds", seconds);
+        Map<String, Object> totals = total.summarize(seconds);
+        totals.put("unservedArrivals", unserved.get());
+        result.put("total", totals);
+        Map<String, Object> operations = new TreeMap<>();
+        recorders.forEach((name, recorder) -> operations.put(name, recorder.summarize(seconds)));
+        result.put("operations", operations);
+        result.put("server", stats.end(seconds));
+        print(totals, operations);
+    }
+
+    // Poisson arrivals: exponential gaps with mean 1 / rate, scheduled ahead of time and handed to the clients
+    private void arrivalLoop(Random random, LinkedBlockingQueue<Long> arrivals) {
+        long next = System.nanoTime();
+        while (next < measureEnd) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            arrivals.add(next);
+            next += (long) (-Math.log(1 - random.nextDouble()) / options.rate * 1e9);
+        }
+    }
+
+    private void clientLoop(Random random, LinkedBlockingQueue<Long> arrivals) {
+        while (true) {
+            long scheduled;
+            if (arrivals == null) {
+                scheduled = System.nanoTime();
+                if (scheduled >= measureEnd) {
+                    return;
+                }
+            } else {
+                try {
+                    Long arrival = arrivals.poll(100, TimeUnit.MILLISECONDS);
+                    if (arrival == null) {
+                        if (System.nanoTime() >= measureEnd) {
+                            return;
+                        }
+                        continue;
+                    }
+                    scheduled = arrival;
+                } catch (InterruptedException e) {
+                    return;
+                }
+                // Arrivals still queued at the end of the run were never served
+                if (System.nanoTime() >= measureEnd) {
+                    if (scheduled >= measureStart) {
+                        unserved.incrementAndGet();
+                    }
+                    continue;
+                }
+            }
+            execute(random, scheduled);
+        }
+    }
+
+    private void execute(Random random, long scheduled) {
+        String operation = pickOperation(random);
+        String label = operation;
+        HttpRequest request;
+        long sent = 0;
+        String id = null;
+        if (!operation.equals("segment")) {
+            id = segmentedIds.get(random.nextInt(segmentedIds.size()));
+        }
+        String encodedId = id == null ? null : URLEncoder.encode(id, StandardCharsets.UTF_8).replace("+", "%20");
+        switch (operation) {
+            case "metadata":
+                request = HttpRequest.newBuilder(URI.create(baseUrl + API + "/pdf-metadata/" + encodedId))
+                        .timeout(Duration.ofSeconds(options.timeoutSeconds))
+                        .GET()
+                        .build();
+                break;
+            case "update":
+                request = HttpRequest.newBuilder(URI.create(baseUrl + API + "/update-segmentation/" + encodedId
+                                + "?cuts=" + (1 + random.nextInt(options.cuts))))
+                        .timeout(Duration.ofSeconds(options.timeoutSeconds))
+                        .PUT(HttpRequest.BodyPublishers.noBody())
+                        .build();
+                break;
+            default:
+                DocumentMix.Document document = mix.pick(random);
+                long number = sequence.incrementAndGet();
+                id = "load-" + number + "-" + document.label + ".pdf";
+                byte[] content = options.varyDocuments ? DocumentMix.unique(document.content, number) : document.content;
+                byte[] body = multipart(id, content, "----load-test-" + number);
+                sent = body.length;
+                label = "segment:" + document.label;
+                request = HttpRequest.newBuilder(URI.create(baseUrl + API + "/segment-pdf" + (options.stream ? "?stream=true" : "")))
+                        .timeout(Duration.ofSeconds(options.timeoutSeconds))
+                        .header("Content-Type", "multipart/form-data; boundary=----load-test-" + number)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                        .build();
+        }
+
+        String status;
+        boolean error;
+        long received = 0;
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            // The request is complete when the whole body arrived, which matters for the streamed ZIP
+            try (InputStream in = response.body()) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    received += read;
+                }
+            }
+            status = String.valueOf(response.statusCode());
+            error = response.statusCode() >= 400;
+            if (!error && operation.equals("segment")) {
+                segmentedIds.add(id);
+            }
+        } catch (IOException e) {
+            status = e.getClass().getSimpleName();
+            error = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long latency = System.nanoTime() - scheduled;
+
+        if (scheduled >= measureStart && scheduled < measureEnd) {
+            recorders.computeIfAbsent(label, key -> new LatencyRecorder()).record(latency, status, error, sent, received);
+            total.record(latency, status, error, sent, received);
+        }
+    }
+
+    // Metadata and update need a document segmented earlier; until there is one, a segment is sent instead
+    private String pickOperation(Random random) {
+        if (segmentedIds.isEmpty()) {
+            return "segment";
+        }
+        int draw = random.nextInt(totalOperationWeight);
+        for (Map.Entry<String, Integer> entry : operationWeights.entrySet()) {
+            draw -= entry.getValue();
+            if (draw < 0) {
+                return entry.getKey();
+            }
+        }
+        return "segment";
+    }
+
+    private byte[] multipart(String fileName, byte[] content, String boundary) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 512);
+        StringBuilder head = new StringBuilder();
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"cuts\"\r\n\r\n")
+                .append(options.cuts).append("\r\n");
+        if (!options.mode.isEmpty()) {
+            head.append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"mode\"\r\n\r\n")
+                    .append(options.mode).append("\r\n");
+        }
+        head.append("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"file\"; filename=\"").append(fileName).append("\"\r\n")
+                .append("Content-Type: application/pdf\r\n\r\n");
+        body.writeBytes(head.toString().getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> totals, Map<String, Object> operations) {
+        System.out.printf("%-32s %9s %8s %9s %9s %9s %9s%n", "operation", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms");
+        Map<String, Object> rows = new LinkedHashMap<>(operations);
+        rows.put("total", totals);
+        rows.forEach((name, value) -> {
+            Map<String, Object> summary = (Map<String, Object>) value;
+            Map<String, Object> latency = (Map<String, Object>) summary.get("latencyMs");
+            System.out.printf("%-32s %9d %8d %9.2f %9s %9s %9s%n", name, (Integer) summary.get("requests"),
+                    (Integer) summary.get("errors"), (Double) summary.get("throughputPerSecond"),
+                    latency.get("p50"), latency.get("p95"), latency.get("p99"));
+        });
+    }
+}
@@ -0,0 +1,158 @@
+package com.pdfprocessor.pdf_segmentation.loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Options of a load-test run, given as --name=value arguments like the application's own properties.
+// Everything that shapes the load is an option and the random source is seeded, so a run can be repeated.
+public class LoadTestOptions {
+
+    // Target; when empty the application is started in a child JVM on a free port
+    String baseUrl = "";
+    // Extra arguments for the child JVM and the application, separated by spaces
+    String serverJvmArgs = "-Xmx1g";
+    String serverArgs = "";
+
+    // Closed model: this many clients send back to back. Open model (rate > 0): requests arrive at rate per
+    // second with exponential inter-arrival times and are served by this many clients
+    int concurrency = 4;
+    double rate = 0;
+
+    int warmupSeconds = 10;
+    int durationSeconds = 60;
+    int timeoutSeconds = 120;
+    long seed = 42;
+
+    int cuts = 4;
+    String mode = "";
+    boolean stream = false;
+    // Makes every upload unique, so the result cache does not answer repeated documents
+    boolean varyDocuments = true;
+
+    // pages:density:images=weight entries, see DocumentMix
+    String documents = "4:NORMAL:NONE=6,32:NORMAL:LIGHT=3,128:DENSE:HEAVY=1";
+    // Relative weights of the operations; metadata and update target documents segmented earlier in the run
+    String operations = "segment=6,metadata=3,update=1";
+
+    String output = "target/loadtest";
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            switch (name) {
+                case "base-url":
+                    options.baseUrl = value;
+                    break;
+                case "server-jvm-args":
+                    options.serverJvmArgs = value;
+                    break;
+                case "server-args":
+                    options.serverArgs = value;
+                    break;
+                case "concurrency":
+                    options.concurrency = Integer.parseInt(value);
+                    break;
+                case "rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "warmup-seconds":
+                    options.warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "duration-seconds":
+                    options.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "timeout-seconds":
+                    options.timeoutSeconds = Integer.parseInt(value);
+                    break;
+                case "seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "cuts":
+                    options.cuts = Integer.parseInt(value);
+                    break;
+                case "mode":
+                    options.mode = value;
+                    break;
+                case "stream":
+                    options.stream = Boolean.parseBoolean(value);
+                    break;
+                case "vary-documents":
+                    options.varyDocuments = Boolean.parseBoolean(value);
+                    break;
+                case "documents":
+                    options.documents = value;
+                    break;
+                case "operations":
+                    options.operations = value;
+                    break;
+                case "output":
+                    options.output = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        if (options.concurrency < 1 || options.durationSeconds < 1 || options.warmupSeconds < 0 || options.rate < 0) {
+            throw new IllegalArgumentException("concurrency and duration-seconds must be positive, rate and warmup-seconds not negative");
+        }
+        return options;
+    }
+
+    Map<String, Integer> operationWeights() {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : operations.split(",")) {
+            String[] parts = entry.trim().split("=");
+            String operation = parts[0].trim();
+            if (!List.of("segment", "metadata", "update").contains(operation)) {
+                throw new IllegalArgumentException("Unknown operation " + operation + ". Use segment, metadata or update.");
+            }
+            weights.put(operation, parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1);
+        }
+        if (weights.getOrDefault("segment", 0) <= 0) {
+            throw new IllegalArgumentException("The segment operation needs a positive weight");
+        }
+        return weights;
+    }
+
+    List<String> split(String value) {
+        List<String> parts = new ArrayList<>();
+        for (String part : value.trim().split("\\s+")) {
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+        }
+        return parts;
+    }
+
+    // Recorded with the results so runs can be compared like for like
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("baseUrl", baseUrl.isEmpty() ? "local" : baseUrl);
+        map.put("serverJvmArgs", baseUrl.isEmpty() ? serverJvmArgs : null);
+        map.put("serverArgs", baseUrl.isEmpty() ? serverArgs : null);
+        map.put("concurrency", concurrency);
+        map.put("rate", rate);
+        map.put("warmupSeconds", warmupSeconds);
+        map.put("durationSeconds", durationSeconds);
+        map.put("timeoutSeconds", timeoutSeconds);
+        map.put("seed", seed);
+        map.put("cuts", cuts);
+        map.put("mode", mode.isEmpty() ? null : mode);
+        map.put("stream", stream);
+        map.put("varyDocuments", varyDocuments);
+        map.put("documents", documents);
+        map.put("operations", operations);
+        return map;
+    }
+}
@@ -0,0 +1,111 @@
+package com.pdfprocessor.pdf_segmentation.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Heap and GC statistics of the server, read from its /actuator/metrics endpoint so they describe the
+// application and not the load generator, and work the same for a local child JVM and a remote target.
+// Counters are reported as the difference over the measured phase; heap and CPU are sampled periodically.
+class ServerStats {
+
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String metricsUrl;
+
+    private Snapshot start;
+    private int samples;
+    private double heapUsedTotal;
+    private double heapUsedPeak;
+    private double gcPauseMaxPeak;
+    private double cpuTotal;
+    private double cpuPeak;
+
+    ServerStats(HttpClient client, String baseUrl) {
+        this.client = client;
+        this.metricsUrl = baseUrl + "/actuator/metrics/";
+    }
+
+    private static class Snapshot {
+        double gcPauses;
+        double gcPauseSeconds;
+        double allocatedBytes;
+        double promotedBytes;
+    }
+
+    void begin() throws IOException, InterruptedException {
+        start = counters();
+    }
+
+    synchronized void sample() throws IOException, InterruptedException {
+        double heapUsed = measurement("jvm.memory.used?tag=area:heap", "VALUE");
+        double cpu = measurement("process.cpu.usage", "VALUE");
+        double gcPauseMax = measurement("jvm.gc.pause", "MAX");
+        samples++;
+        heapUsedTotal += heapUsed;
+        heapUsedPeak = Math.max(heapUsedPeak, heapUsed);
+        cpuTotal += cpu;
+        cpuPeak = Math.max(cpuPeak, cpu);
+        gcPauseMaxPeak = Math.max(gcPauseMaxPeak, gcPauseMax);
+    }
+
+    synchronized Map<String, Object> end(double seconds) throws IOException, InterruptedException {
+        sample();
+        Snapshot end = counters();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("heapUsedMeanBytes", (long) (heapUsedTotal / samples));
+        stats.put("heapUsedPeakBytes", (long) heapUsedPeak);
+        stats.put("heapCommittedBytes", (long) measurement("jvm.memory.committed?tag=area:heap", "VALUE"));
+        stats.put("heapMaxBytes", (long) measurement("jvm.memory.max?tag=area:heap", "VALUE"));
+        stats.put("allocatedBytes", (long) (end.allocatedBytes - start.allocatedBytes));
+        stats.put("allocationRateBytesPerSecond", (long) ((end.allocatedBytes - start.allocatedBytes) / seconds));
+        stats.put("promotedBytes", (long) (end.promotedBytes - start.promotedBytes));
+        stats.put("gcPauses", (long) (end.gcPauses - start.gcPauses));
+        stats.put("gcPauseTotalMs", (end.gcPauseSeconds - start.gcPauseSeconds) * 1000);
+        // Micrometer keeps the maximum over a sliding window, so this is the largest maximum seen while sampling
+        stats.put("gcPauseMaxMs", gcPauseMaxPeak * 1000);
+        stats.put("gcTimeRatio", (end.gcPauseSeconds - start.gcPauseSeconds) / seconds);
+        stats.put("cpuUsageMean", cpuTotal / samples);
+        stats.put("cpuUsagePeak", cpuPeak);
+        stats.put("samples", samples);
+        return stats;
+    }
+
+    private Snapshot counters() throws IOException, InterruptedException {
+        Snapshot snapshot = new Snapshot();
+        snapshot.gcPauses = measurement("jvm.gc.pause", "COUNT");
+        snapshot.gcPauseSeconds = measurement("jvm.gc.pause", "TOTAL_TIME");
+        snapshot.allocatedBytes = measurement("jvm.gc.memory.allocated", "COUNT");
+        snapshot.promotedBytes = measurement("jvm.gc.memory.promoted", "COUNT");
+        return snapshot;
+    }
+
+    // A metric that has not been registered yet (no GC so far) reads as zero
+    private double measurement(String metric, String statistic) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(metricsUrl + metric))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() == 404) {
+            return 0;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + metric + " returned " + response.statusCode());
+        }
+        JsonNode measurements = mapper.readTree(response.body()).path("measurements");
+        for (JsonNode measurement : measurements) {
+            if (statistic.equals(measurement.path("statistic").asText())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+        return 0;
+    }
+}
@@ -2,8 +2,10 @@ package com.pdfprocessor.pdf_segmentation;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PdfSegmentationApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,12 @@
+package com.pdfprocessor.pdf_segmentation.archive;
+
+// How ZIP entries are compressed. PDF content streams are usually Flate-compressed already, so deflating
+// the segments again costs CPU for little gain.
+public enum ArchiveCompression {
+    // Deflate every entry
+    DEFLATE,
+    // Store every entry uncompressed
+    STORED,
+    // Deflate a sample of each entry and only deflate the entry when the sample shrinks enough
+    ADAPTIVE
+}
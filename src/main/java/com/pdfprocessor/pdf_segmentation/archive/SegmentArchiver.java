@@ -0,0 +1,74 @@
+package com.pdfprocessor.pdf_segmentation.archive;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Opens the ZIP archives of segmentation responses, job results and batches with the configured
+// compression. In parallel mode entries are compressed on a small pool of their own, so compression never
+// queues behind PDF work on the CPU pool or counts towards its load shedding. The pool's queue is bounded;
+// an entry that does not fit is compressed by the archive's writer when it gets there. Each archive holds at most
+// max-pending-bytes of segments waiting for compression; larger segments are compressed while they are written.
+@Component
+public class SegmentArchiver {
+
+    private final ThreadPoolExecutor executor;
+    private final ArchiveCompression compression;
+    private final int level;
+    private final int sampleBytes;
+    private final double minSaving;
+    private final int maxPending;
+    private final long maxPendingBytes;
+
+    public SegmentArchiver(@Value("${pdf.segmentation.archive.compression:adaptive}") ArchiveCompression compression,
+                           @Value("${pdf.segmentation.archive.level:6}") int level,
+                           @Value("${pdf.segmentation.archive.adaptive-sample-bytes:65536}") int sampleBytes,
+                           @Value("${pdf.segmentation.archive.adaptive-min-saving:0.1}") double minSaving,
+                           @Value("${pdf.segmentation.archive.parallel:true}") boolean parallel,
+                           @Value("${pdf.segmentation.archive.max-pending:0}") int maxPending,
+                           @Value("${pdf.segmentation.archive.max-pending-bytes:16777216}") long maxPendingBytes,
+                           @Value("${pdf.segmentation.archive.threads:0}") int threads) {
+        this.compression = compression;
+        this.level = level;
+        this.sampleBytes = sampleBytes;
+        this.minSaving = minSaving;
+        this.maxPending = maxPending > 0 ? maxPending : 2 * Runtime.getRuntime().availableProcessors();
+        this.maxPendingBytes = maxPendingBytes > 0 ? maxPendingBytes : 16L << 20;
+        if (parallel) {
+            int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(4 * poolSize),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "zip-deflate-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.DiscardPolicy());
+        } else {
+            this.executor = null;
+        }
+    }
+
+    // The caller finishes the archive; the stream itself is left open
+    public ZipArchive open(OutputStream out) {
+        return new ZipArchive(out, compression, level, sampleBytes, minSaving, executor, maxPending, maxPendingBytes);
+    }
+
+    public ArchiveCompression getCompression() {
+        return compression;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,451 @@
+package com.pdfprocessor.pdf_segmentation.archive;
+
+import com.pdfprocessor.pdf_segmentation.service.SegmentSink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Writes a ZIP archive whose entries are compressed before they are written. Each entry is prepared
+// (CRC, compression decision, deflate) on its own; with an executor, up to maxPending entries holding up to
+// maxPendingBytes together are prepared concurrently and written in the order they were added, like pigz.
+// Those segments are held in memory until they are written.
+// A segment that is to be deflated and outgrows what may be held (twice the adaptive sample without an
+// executor, maxPendingBytes with one) is compressed into the archive while it is written and followed by a
+// data descriptor, after the entries before it. Stored entries are held in memory whole, since their header
+// carries the CRC and sizes. Archives are limited to what the ZIP format holds without Zip64 (65535
+// entries, 4 GB).
+public class ZipArchive implements SegmentSink {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int VERSION = 20;
+    private static final int UTF8_NAMES = 1 << 11;
+    private static final int SIZES_IN_DESCRIPTOR = 1 << 3;
+    private static final int METHOD_STORED = 0;
+    private static final int METHOD_DEFLATED = 8;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+
+    private final OutputStream out;
+    private final ArchiveCompression compression;
+    private final int level;
+    private final int sampleBytes;
+    private final double minSaving;
+    private final Executor executor;
+    private final int maxPending;
+    private final long maxPendingBytes;
+    private final long streamingThreshold;
+    private final int dosTime;
+    private final int dosDate;
+
+    private final ArrayDeque<PendingEntry> pending = new ArrayDeque<>();
+    private final List<Entry> written = new ArrayList<>();
+    private long pendingBytes;
+    private long offset;
+    private boolean finished;
+    private boolean entryStreaming;
+
+    // executor may be null to prepare every entry on the calling thread
+    public ZipArchive(OutputStream out, ArchiveCompression compression, int level, int sampleBytes, double minSaving,
+                      Executor executor, int maxPending, long maxPendingBytes) {
+        this.out = out;
+        this.compression = compression;
+        this.level = level;
+        this.sampleBytes = sampleBytes;
+        this.minSaving = minSaving;
+        this.executor = executor;
+        this.maxPending = Math.max(1, maxPending);
+        this.maxPendingBytes = Math.max(1, maxPendingBytes);
+        this.streamingThreshold = executor == null ? 2L * sampleBytes : Math.max(2L * sampleBytes, this.maxPendingBytes);
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = (now.getHour() << 11) | (now.getMinute() << 5) | (now.getSecond() / 2);
+        this.dosDate = ((Math.max(now.getYear(), 1980) - 1980) << 9) | (now.getMonthValue() << 5) | now.getDayOfMonth();
+    }
+
+    @Override
+    public OutputStream openSegment(int index, String name) {
+        if (compression != ArchiveCompression.STORED) {
+            return new StreamingEntry(name);
+        }
+        // PDDocument.save closes the stream it writes to; closing adds the entry
+        return new ByteArrayOutputStream() {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (!closed) {
+                    closed = true;
+                    addEntry(name, toByteArray());
+                }
+            }
+        };
+    }
+
+    public void addEntry(String name, byte[] data) throws IOException {
+        checkWritable();
+        if (executor == null) {
+            write(prepare(name, data));
+            return;
+        }
+        PendingEntry task = new PendingEntry(() -> prepare(name, data), data.length);
+        pending.add(task);
+        pendingBytes += task.bytes;
+        executor.execute(task);
+        while (pending.size() > maxPending || (pendingBytes > maxPendingBytes && !pending.isEmpty())) {
+            writeNext();
+        }
+    }
+
+    // Write the remaining entries and the central directory; the underlying stream stays open
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+        finished = true;
+
+        if (written.size() > MAX_ENTRIES) {
+            throw new IOException("Archive has more than " + MAX_ENTRIES + " entries");
+        }
+        long centralDirectoryOffset = offset;
+        for (Entry entry : written) {
+            ByteBuffer header = header(46 + entry.name.length);
+            header.putInt(CENTRAL_HEADER)
+                    .putShort((short) VERSION)
+                    .putShort((short) VERSION)
+                    .putShort((short) entry.flags)
+                    .putShort((short) entry.method)
+                    .putShort((short) dosTime)
+                    .putShort((short) dosDate)
+                    .putInt((int) entry.crc)
+                    .putInt((int) entry.compressedSize)
+                    .putInt((int) entry.size)
+                    .putShort((short) entry.name.length)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putShort((short) 0)
+                    .putInt(0)
+                    .putInt((int) entry.offset)
+                    .put(entry.name);
+            writeBytes(header.array(), header.position());
+        }
+        long centralDirectorySize = offset - centralDirectoryOffset;
+        checkSize(offset);
+
+        ByteBuffer end = header(22);
+        end.putInt(END_OF_CENTRAL_DIRECTORY)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) written.size())
+                .putShort((short) written.size())
+                .putInt((int) centralDirectorySize)
+                .putInt((int) centralDirectoryOffset)
+                .putShort((short) 0);
+        writeBytes(end.array(), end.position());
+        out.flush();
+    }
+
+    private void checkWritable() throws IOException {
+        if (finished) {
+            throw new IOException("Archive already finished");
+        }
+        if (entryStreaming) {
+            throw new IOException("Previous entry is still being written");
+        }
+    }
+
+    // Number of entries written so far that were stored rather than deflated
+    public long getStoredEntries() {
+        return written.stream().filter(entry -> entry.method == METHOD_STORED).count();
+    }
+
+    private void writeNext() throws IOException {
+        PendingEntry task = pending.poll();
+        pendingBytes -= task.bytes;
+        // Prepare the entry here if no worker has picked it up yet, so a full pool can never stall the writer
+        task.run();
+        try {
+            write(task.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.forEach(remaining -> remaining.cancel(false));
+            throw new InterruptedIOException("Archive interrupted");
+        } catch (ExecutionException e) {
+            pending.forEach(remaining -> remaining.cancel(false));
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        checkSize(offset);
+        entry.offset = offset;
+        ByteBuffer header = header(30 + entry.name.length);
+        header.putInt(LOCAL_HEADER)
+                .putShort((short) VERSION)
+                .putShort((short) UTF8_NAMES)
+                .putShort((short) entry.method)
+                .putShort((short) dosTime)
+                .putShort((short) dosDate)
+                .putInt((int) entry.crc)
+                .putInt((int) entry.compressedSize)
+                .putInt((int) entry.size)
+                .putShort((short) entry.name.length)
+                .putShort((short) 0)
+                .put(entry.name);
+        writeBytes(header.array(), header.position());
+        writeBytes(entry.data, entry.compressedSize);
+        entry.data = null;
+        written.add(entry);
+    }
+
+    private void writeBytes(byte[] bytes, long length) throws IOException {
+        out.write(bytes, 0, (int) length);
+        offset += length;
+    }
+
+    private Entry prepare(String name, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+
+        // Entries that are not much larger than the sample are deflated once and the result decides
+        boolean adaptive = compression == ArchiveCompression.ADAPTIVE;
+        boolean deflate = compression == ArchiveCompression.DEFLATE
+                || (adaptive && (data.length <= 2L * sampleBytes || worthDeflating(data)));
+        if (deflate) {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                deflater.setInput(data);
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, length);
+                }
+                // Never keep a deflated entry that came out larger than the original, nor, in adaptive
+                // mode, one that saves less than minSaving
+                long limit = adaptive ? (long) (data.length * (1 - minSaving)) : data.length - 1L;
+                if (compressed.size() <= limit) {
+                    return new Entry(nameBytes, METHOD_DEFLATED, crc.getValue(), data.length, compressed.toByteArray(), compressed.size());
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        return new Entry(nameBytes, METHOD_STORED, crc.getValue(), data.length, data, data.length);
+    }
+
+    // Deflate slices spread over the entry, since PDF headers and dictionaries compress far better than
+    // the (already compressed) streams between them; deflate when they shrink by at least minSaving
+    boolean worthDeflating(byte[] data) {
+        if (data.length == 0) {
+            return false;
+        }
+        int slices = 4;
+        int sliceLength = Math.max(1, Math.min(data.length, sampleBytes) / slices);
+        Deflater deflater = new Deflater(level, true);
+        try {
+            byte[] buffer = new byte[sliceLength + 64];
+            long sampled = 0;
+            long compressed = 0;
+            for (int i = 0; i < slices; i++) {
+                int start = (int) ((long) (data.length - sliceLength) * i / Math.max(1, slices - 1));
+                deflater.setInput(data, start, Math.min(sliceLength, data.length - start));
+                sampled += Math.min(sliceLength, data.length - start);
+                while (!deflater.needsInput()) {
+                    compressed += deflater.deflate(buffer, 0, buffer.length, Deflater.NO_FLUSH);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+            return compressed <= sampled * (1 - minSaving);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void checkSize(long size) throws IOException {
+        if (size > MAX_SIZE) {
+            throw new IOException("Archive exceeds 4 GB");
+        }
+    }
+
+    private static ByteBuffer header(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // A segment that is buffered up to the streaming threshold; beyond that it is either deflated into the
+    // archive as it is written or, when sampling says it does not compress, kept to be stored on close
+    private class StreamingEntry extends OutputStream {
+        private final String name;
+        private ByteArrayOutputStream head = new ByteArrayOutputStream();
+        private boolean storing;
+        private boolean closed;
+
+        private Deflater deflater;
+        private CRC32 crc;
+        private byte[] buffer;
+        private long start;
+        private long size;
+        private long compressedSize;
+
+        StreamingEntry(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (deflater != null) {
+                deflate(b, off, len);
+                return;
+            }
+            head.write(b, off, len);
+            if (!storing && head.size() > streamingThreshold) {
+                byte[] data = head.toByteArray();
+                if (compression == ArchiveCompression.DEFLATE || worthDeflating(data)) {
+                    begin();
+                    head = null;
+                    deflate(data, 0, data.length);
+                } else {
+                    storing = true;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (deflater == null) {
+                addEntry(name, head.toByteArray());
+                return;
+            }
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    writeBytes(buffer, length);
+                    compressedSize += length;
+                }
+            } finally {
+                deflater.end();
+                entryStreaming = false;
+            }
+            checkSize(size);
+            checkSize(compressedSize);
+            ByteBuffer descriptor = header(16);
+            descriptor.putInt(DATA_DESCRIPTOR)
+                    .putInt((int) crc.getValue())
+                    .putInt((int) compressedSize)
+                    .putInt((int) size);
+            writeBytes(descriptor.array(), descriptor.position());
+
+            Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), METHOD_DEFLATED, crc.getValue(), size, null, compressedSize);
+            entry.offset = start;
+            entry.flags = UTF8_NAMES | SIZES_IN_DESCRIPTOR;
+            written.add(entry);
+        }
+
+        // The local header goes out before the data, so CRC and sizes follow in the data descriptor
+        private void begin() throws IOException {
+            checkWritable();
+            // Entries added before this one go first
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            checkSize(offset);
+            byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer header = header(30 + nameBytes.length);
+            header.putInt(LOCAL_HEADER)
+                    .putShort((short) VERSION)
+                    .putShort((short) (UTF8_NAMES | SIZES_IN_DESCRIPTOR))
+                    .putShort((short) METHOD_DEFLATED)
+                    .putShort((short) dosTime)
+                    .putShort((short) dosDate)
+                    .putInt(0)
+                    .putInt(0)
+                    .putInt(0)
+                    .putShort((short) nameBytes.length)
+                    .putShort((short) 0)
+                    .put(nameBytes);
+            start = offset;
+            writeBytes(header.array(), header.position());
+            entryStreaming = true;
+            deflater = new Deflater(level, true);
+            crc = new CRC32();
+            buffer = new byte[8192];
+        }
+
+        private void deflate(byte[] b, int off, int len) throws IOException {
+            crc.update(b, off, len);
+            size += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                int length = deflater.deflate(buffer);
+                writeBytes(buffer, length);
+                compressedSize += length;
+            }
+        }
+    }
+
+    // An entry being prepared, with the bytes it holds until it is written
+    private static final class PendingEntry extends FutureTask<Entry> {
+        final long bytes;
+
+        PendingEntry(Callable<Entry> prepare, long bytes) {
+            super(prepare);
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Entry {
+        final byte[] name;
+        final int method;
+        final long crc;
+        final long size;
+        final long compressedSize;
+        byte[] data;
+        long offset;
+        int flags = UTF8_NAMES;
+
+        Entry(byte[] name, int method, long crc, long size, byte[] data, long compressedSize) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.data = data;
+            this.compressedSize = compressedSize;
+        }
+    }
+}
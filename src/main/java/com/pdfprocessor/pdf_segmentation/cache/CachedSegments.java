@@ -0,0 +1,32 @@
+package com.pdfprocessor.pdf_segmentation.cache;
+
+import java.util.Collections;
+import java.util.List;
+
+// Segment payloads of one cached segmentation, in segment order
+public final class CachedSegments {
+
+    private final List<byte[]> segments;
+    private final long sizeBytes;
+
+    public CachedSegments(List<byte[]> segments) {
+        this.segments = Collections.unmodifiableList(segments);
+        long size = 0;
+        for (byte[] segment : segments) {
+            size += segment.length;
+        }
+        this.sizeBytes = size;
+    }
+
+    public List<byte[]> getSegments() {
+        return segments;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+}
@@ -0,0 +1,357 @@
+package com.pdfprocessor.pdf_segmentation.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Content-addressed cache of segmentation results, keyed by a hash of the upload plus the segmentation parameters.
+// Entries live in a size-bounded LRU memory tier; entries evicted from memory are demoted to an optional
+// size-bounded LRU disk tier and promoted back on their next hit.
+//
+// A disk entry is a directory holding the key, one file per segment and a manifest with the length of every
+// segment. The manifest is moved into place last, so an entry without one was never completed, and an entry
+// whose files do not match it was evicted or damaged while being read; both count as misses.
+@Component
+public class SegmentationResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentationResultCache.class);
+
+    private static final String MANIFEST = "manifest";
+
+    private final boolean enabled;
+    private final long memoryMaxBytes;
+    private final long maxEntryBytes;
+    private final Path diskDirectory;
+    private final long diskMaxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedSegments> memoryTier = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> diskTier = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public SegmentationResultCache(@Value("${pdf.segmentation.cache.enabled:true}") boolean enabled,
+                                   @Value("${pdf.segmentation.cache.memory-max-bytes:67108864}") long memoryMaxBytes,
+                                   @Value("${pdf.segmentation.cache.max-entry-bytes:16777216}") long maxEntryBytes,
+                                   @Value("${pdf.segmentation.cache.disk-dir:}") String diskDir,
+                                   @Value("${pdf.segmentation.cache.disk-max-bytes:536870912}") long diskMaxBytes) {
+        this.enabled = enabled;
+        this.memoryMaxBytes = memoryMaxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.diskDirectory = diskDir == null || diskDir.isBlank() ? null : Paths.get(diskDir);
+        this.diskMaxBytes = diskMaxBytes;
+        if (enabled && diskDirectory != null) {
+            loadDiskIndex();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Segments larger than this in total are not cached
+    public long getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    // Cache key for a document file and the parameters that influence its segmentation
+    public String key(File pdfFile, String parameters) throws IOException {
+        try (InputStream in = Files.newInputStream(pdfFile.toPath())) {
+            return key(in, parameters);
+        }
+    }
+
+    public String key(InputStream content, String parameters) throws IOException {
+        MessageDigest digest = sha256();
+        try (DigestInputStream in = new DigestInputStream(content, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest()) + "|" + parameters;
+    }
+
+    public String key(byte[] content, String parameters) {
+        return HexFormat.of().formatHex(sha256().digest(content)) + "|" + parameters;
+    }
+
+    public CachedSegments get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        synchronized (this) {
+            CachedSegments cached = memoryTier.get(key);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return cached;
+            }
+            if (diskTier.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        // Read from disk outside the lock, then promote to the memory tier
+        CachedSegments loaded = readFromDisk(key);
+        if (loaded == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        diskHits.incrementAndGet();
+        putInMemory(key, loaded);
+        return loaded;
+    }
+
+    public void put(String key, CachedSegments segments) {
+        if (!enabled || segments.getSizeBytes() > maxEntryBytes) {
+            return;
+        }
+        putInMemory(key, segments);
+    }
+
+    public void clear() {
+        synchronized (this) {
+            memoryTier.clear();
+            memoryBytes = 0;
+            for (String key : new ArrayList<>(diskTier.keySet())) {
+                deleteFromDisk(key);
+            }
+            diskTier.clear();
+            diskBytes = 0;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("enabled", enabled);
+            stats.put("memoryEntries", memoryTier.size());
+            stats.put("memoryBytes", memoryBytes);
+            stats.put("diskEntries", diskTier.size());
+            stats.put("diskBytes", diskBytes);
+        }
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("diskHits", diskHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        return stats;
+    }
+
+    public long getHits() {
+        return memoryHits.get() + diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void putInMemory(String key, CachedSegments segments) {
+        List<Map.Entry<String, CachedSegments>> demoted = new ArrayList<>();
+        synchronized (this) {
+            CachedSegments previous = memoryTier.put(key, segments);
+            if (previous != null) {
+                memoryBytes -= previous.getSizeBytes();
+            }
+            memoryBytes += segments.getSizeBytes();
+
+            Iterator<Map.Entry<String, CachedSegments>> eldest = memoryTier.entrySet().iterator();
+            while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+                Map.Entry<String, CachedSegments> entry = eldest.next();
+                eldest.remove();
+                memoryBytes -= entry.getValue().getSizeBytes();
+                evictions.incrementAndGet();
+                demoted.add(entry);
+            }
+        }
+        for (Map.Entry<String, CachedSegments> entry : demoted) {
+            writeToDisk(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void writeToDisk(String key, CachedSegments segments) {
+        if (diskDirectory == null || segments.getSizeBytes() > diskMaxBytes) {
+            return;
+        }
+        try {
+            Path entryDirectory = diskDirectory.resolve(entryName(key));
+            Files.createDirectories(entryDirectory);
+            // An entry being rewritten is incomplete until its new manifest is in place
+            Files.deleteIfExists(entryDirectory.resolve(MANIFEST));
+            Files.write(entryDirectory.resolve("key"), key.getBytes(StandardCharsets.UTF_8));
+            List<byte[]> payloads = segments.getSegments();
+            StringBuilder manifest = new StringBuilder().append(payloads.size()).append('\n');
+            for (int i = 0; i < payloads.size(); i++) {
+                Files.write(entryDirectory.resolve(i + ".pdf"), payloads.get(i));
+                manifest.append(payloads.get(i).length).append('\n');
+            }
+            Path pending = entryDirectory.resolve(MANIFEST + ".tmp");
+            Files.write(pending, manifest.toString().getBytes(StandardCharsets.US_ASCII));
+            Files.move(pending, entryDirectory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE);
+
+            List<String> expired = new ArrayList<>();
+            synchronized (this) {
+                Long previous = diskTier.put(key, segments.getSizeBytes());
+                if (previous != null) {
+                    diskBytes -= previous;
+                }
+                diskBytes += segments.getSizeBytes();
+                Iterator<Map.Entry<String, Long>> eldest = diskTier.entrySet().iterator();
+                while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+                    Map.Entry<String, Long> entry = eldest.next();
+                    eldest.remove();
+                    diskBytes -= entry.getValue();
+                    evictions.incrementAndGet();
+                    expired.add(entry.getKey());
+                }
+            }
+            for (String expiredKey : expired) {
+                deleteFromDisk(expiredKey);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write cache entry to {}", diskDirectory, e);
+        }
+    }
+
+    // The segments listed in the entry's manifest, or null when the entry is incomplete or does not match it
+    private CachedSegments readFromDisk(String key) {
+        Path entryDirectory = diskDirectory.resolve(entryName(key));
+        try {
+            long[] lengths = readManifest(entryDirectory);
+            if (lengths == null) {
+                forgetDiskEntry(key);
+                return null;
+            }
+            List<byte[]> segments = new ArrayList<>(lengths.length);
+            for (int i = 0; i < lengths.length; i++) {
+                byte[] segment = Files.readAllBytes(entryDirectory.resolve(i + ".pdf"));
+                if (segment.length != lengths[i]) {
+                    forgetDiskEntry(key);
+                    return null;
+                }
+                segments.add(segment);
+            }
+            entryDirectory.toFile().setLastModified(System.currentTimeMillis());
+            return new CachedSegments(segments);
+        } catch (IOException e) {
+            // Includes segment files removed by a concurrent eviction
+            log.debug("Could not read cache entry from {}", entryDirectory, e);
+            forgetDiskEntry(key);
+            return null;
+        }
+    }
+
+    // Segment lengths from an entry's manifest, or null when it has none or it is malformed
+    private static long[] readManifest(Path entryDirectory) throws IOException {
+        Path manifest = entryDirectory.resolve(MANIFEST);
+        if (!Files.exists(manifest)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.US_ASCII);
+        try {
+            int count = lines.isEmpty() ? -1 : Integer.parseInt(lines.get(0).trim());
+            if (count < 0 || lines.size() < count + 1) {
+                return null;
+            }
+            long[] lengths = new long[count];
+            for (int i = 0; i < count; i++) {
+                lengths[i] = Long.parseLong(lines.get(i + 1).trim());
+            }
+            return lengths;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Drop an unreadable entry from the index and the disk, so it is not found again after a restart
+    private void forgetDiskEntry(String key) {
+        synchronized (this) {
+            Long size = diskTier.remove(key);
+            if (size != null) {
+                diskBytes -= size;
+            }
+        }
+        deleteFromDisk(key);
+    }
+
+    private void deleteFromDisk(String key) {
+        deleteDirectory(diskDirectory.resolve(entryName(key)).toFile());
+    }
+
+    private static void deleteDirectory(File entryDirectory) {
+        // The manifest goes first, so a concurrent reader sees a miss rather than a partial entry
+        entryDirectory.toPath().resolve(MANIFEST).toFile().delete();
+        File[] files = entryDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        entryDirectory.delete();
+    }
+
+    // Rebuild the disk index on startup, least recently used entries first
+    private void loadDiskIndex() {
+        File[] entries = diskDirectory.toFile().listFiles(File::isDirectory);
+        if (entries == null) {
+            return;
+        }
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        for (File entry : entries) {
+            try {
+                long[] lengths = readManifest(entry.toPath());
+                if (lengths == null) {
+                    // Interrupted while being written
+                    deleteDirectory(entry);
+                    continue;
+                }
+                String key = Files.readString(entry.toPath().resolve("key"), StandardCharsets.UTF_8);
+                long size = 0;
+                for (long length : lengths) {
+                    size += length;
+                }
+                diskTier.put(key, size);
+                diskBytes += size;
+            } catch (IOException e) {
+                log.warn("Ignoring unreadable cache entry {}", entry, e);
+            }
+        }
+    }
+
+    private static String entryName(String key) {
+        return HexFormat.of().formatHex(sha256().digest(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
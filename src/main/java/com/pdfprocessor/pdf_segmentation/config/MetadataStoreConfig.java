@@ -0,0 +1,35 @@
+package com.pdfprocessor.pdf_segmentation.config;
+
+import com.pdfprocessor.pdf_segmentation.store.FileMetadataStore;
+import com.pdfprocessor.pdf_segmentation.store.InMemoryMetadataStore;
+import com.pdfprocessor.pdf_segmentation.store.MetadataStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+public class MetadataStoreConfig {
+
+    @Value("${pdf.segmentation.metadata.ttl:24h}")
+    private Duration ttl;
+
+    @Value("${pdf.segmentation.metadata.max-entries:100000}")
+    private int maxEntries;
+
+    @Bean
+    @ConditionalOnProperty(name = "pdf.segmentation.metadata.store", havingValue = "memory", matchIfMissing = true)
+    public MetadataStore inMemoryMetadataStore() {
+        return new InMemoryMetadataStore(ttl, maxEntries);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "pdf.segmentation.metadata.store", havingValue = "file")
+    public MetadataStore fileMetadataStore(@Value("${pdf.segmentation.metadata.file:pdf-metadata.log}") String file) throws IOException {
+        return new FileMetadataStore(Paths.get(file), ttl, maxEntries);
+    }
+}
@@ -0,0 +1,213 @@
+package com.pdfprocessor.pdf_segmentation.controller;
+
+import com.pdfprocessor.pdf_segmentation.archive.SegmentArchiver;
+import com.pdfprocessor.pdf_segmentation.archive.ZipArchive;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.scheduler.MemoryAdmission;
+import com.pdfprocessor.pdf_segmentation.scheduler.PdfWorkScheduler;
+import com.pdfprocessor.pdf_segmentation.service.BatchSegmentationService;
+import com.pdfprocessor.pdf_segmentation.service.PdfStructure;
+import com.pdfprocessor.pdf_segmentation.service.SegmentationBatch;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+@RestController
+@RequestMapping("/api/pdf")
+public class BatchSegmentationController {
+
+    @Autowired
+    private BatchSegmentationService batchSegmentationService;
+
+    @Autowired
+    private PdfWorkScheduler pdfWorkScheduler;
+
+    @Autowired
+    private SegmentArchiver segmentArchiver;
+
+    @Value("${pdf.segmentation.admission.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    // POST /segment-batch: Segment many PDFs in one request and stream back one ZIP with a manifest
+    @Operation(summary = "Segment PDF Batch", description = "Segments several PDFs, uploaded as files or as one ZIP archive, "
+            + "concurrently and streams a combined ZIP with a manifest.json of per-file results.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Batch is being streamed; per-file failures are listed in the manifest"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "429", description = "Server is at capacity, retry later"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping("/segment-batch")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> segmentBatch(@RequestParam(value = "files", required = false) List<MultipartFile> files,
+                                                                                 @RequestParam(value = "archive", required = false) MultipartFile archive,
+                                                                                 @RequestParam(value = "cuts", required = false) Integer cuts,
+                                                                                 @RequestParam(value = "fileCuts", required = false) List<String> fileCuts,
+                                                                                 @RequestParam(value = "mode", required = false) String modeName) {
+        if ((files == null || files.isEmpty()) && archive == null) {
+            return CompletableFuture.completedFuture(badRequest("Provide PDF files or an archive of PDF files."));
+        }
+        ExtractionMode mode;
+        try {
+            mode = UploadValidator.parseMode(modeName);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(badRequest(e.getMessage()));
+        }
+
+        // Per-file cut counts are given as "name:cuts" and override the default cuts
+        Map<String, Integer> cutsByName = new HashMap<>();
+        if (fileCuts != null) {
+            for (String fileCut : fileCuts) {
+                int separator = fileCut.lastIndexOf(':');
+                try {
+                    cutsByName.put(fileCut.substring(0, separator), Integer.parseInt(fileCut.substring(separator + 1).trim()));
+                } catch (RuntimeException e) {
+                    return CompletableFuture.completedFuture(badRequest("Invalid fileCuts value '" + fileCut + "', expected name:cuts."));
+                }
+            }
+        }
+        if (pdfWorkScheduler.isSaturated()) {
+            return CompletableFuture.completedFuture(tooManyRequests());
+        }
+
+        // Spooling, the page count scan and admission run on the I/O executor; the servlet thread is released
+        return pdfWorkScheduler.submitIo(() -> {
+                    SegmentationBatch batch = batchSegmentationService.newBatch();
+                    MemoryAdmission.Permit permit;
+                    try {
+                        if (!addFiles(batch, files, cuts, cutsByName)
+                                || (archive != null && !addArchive(batch, archive, cuts, cutsByName))) {
+                            batch.close();
+                            return badRequest(tooManyFiles());
+                        }
+                        // Shed the whole batch when the CPU pool is backed up or its files do not fit the memory budget
+                        permit = pdfWorkScheduler.isSaturated() ? null : batchSegmentationService.admit(batch);
+                    } catch (IOException | RuntimeException e) {
+                        batch.close();
+                        throw e;
+                    }
+                    if (permit == null) {
+                        batch.close();
+                        return tooManyRequests();
+                    }
+                    return segmentedBatch(permit, batch, mode);
+                })
+                .exceptionally(failure -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(outputStream -> outputStream.write(("Error processing PDF batch: " + rootCause(failure).getMessage()).getBytes())));
+    }
+
+    private ResponseEntity<StreamingResponseBody> segmentedBatch(MemoryAdmission.Permit permit, SegmentationBatch batch, ExtractionMode mode) {
+        StreamingResponseBody body = outputStream -> {
+            try (MemoryAdmission.Permit admitted = permit;
+                 SegmentationBatch spooled = batch) {
+                ZipArchive zip = segmentArchiver.open(outputStream);
+                batchSegmentationService.run(spooled, mode, zip);
+                zip.finish();
+            }
+        };
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "segmented_batch.zip");
+        return new ResponseEntity<>(body, headers, HttpStatus.CREATED);
+    }
+
+    // Every uploaded file becomes a batch file; returns false when the batch grows too large
+    private boolean addFiles(SegmentationBatch batch, List<MultipartFile> files, Integer cuts, Map<String, Integer> cutsByName) throws IOException {
+        if (files == null) {
+            return true;
+        }
+        for (MultipartFile file : files) {
+            String name = UploadValidator.fileName(file);
+            Integer fileCutCount = cutsByName.getOrDefault(name, cuts);
+            String validationError = UploadValidator.validate(file, fileCutCount);
+            if (validationError != null) {
+                batch.addError(name, fileCutCount != null ? fileCutCount : 0, validationError);
+            } else {
+                try (InputStream content = file.getInputStream()) {
+                    batch.addFile(name, fileCutCount, content);
+                }
+            }
+            if (batch.size() > batchSegmentationService.getMaxFiles()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Every .pdf entry of the archive becomes a batch file; returns false when the batch grows too large
+    private boolean addArchive(SegmentationBatch batch, MultipartFile archive, Integer cuts, Map<String, Integer> cutsByName) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(archive.getInputStream())) {
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                Integer entryCuts = cutsByName.getOrDefault(name, cutsByName.getOrDefault(entry.getName(), cuts));
+                int reportedCuts = entryCuts != null ? entryCuts : 0;
+
+                // Entry sizes in the archive cannot be trusted, so read at most one byte past the limit
+                byte[] content = zis.readNBytes((int) UploadValidator.MAX_FILE_SIZE + 1);
+                if (!name.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+                    batch.addError(name, reportedCuts, "Invalid file type. Only PDF files are accepted.");
+                } else if (content.length > UploadValidator.MAX_FILE_SIZE) {
+                    batch.addError(name, reportedCuts, "File size exceeds the limit of 10 MB.");
+                } else if (PdfStructure.findHeader(content, content.length) < 0) {
+                    batch.addError(name, reportedCuts, UploadValidator.NO_HEADER_MESSAGE);
+                } else if (entryCuts == null || entryCuts <= 0) {
+                    batch.addError(name, reportedCuts, "The number of cuts must be a positive integer.");
+                } else {
+                    batch.addFile(name, entryCuts, new ByteArrayInputStream(content));
+                }
+                if (batch.size() > batchSegmentationService.getMaxFiles()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private String tooManyFiles() {
+        return "A batch may contain at most " + batchSegmentationService.getMaxFiles() + " files.";
+    }
+
+    private static ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(outputStream -> outputStream.write(message.getBytes()));
+    }
+
+    private ResponseEntity<StreamingResponseBody> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(outputStream -> outputStream.write("Server is at capacity. Please retry later.".getBytes()));
+    }
+
+    private static Throwable rootCause(Throwable failure) {
+        while (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,218 @@
+package com.pdfprocessor.pdf_segmentation.controller;
+
+import com.pdfprocessor.pdf_segmentation.archive.SegmentArchiver;
+import com.pdfprocessor.pdf_segmentation.archive.ZipArchive;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.scheduler.MemoryAdmission;
+import com.pdfprocessor.pdf_segmentation.scheduler.PdfWorkScheduler;
+import com.pdfprocessor.pdf_segmentation.service.ChunkedUpload;
+import com.pdfprocessor.pdf_segmentation.service.ChunkedUploadService;
+import com.pdfprocessor.pdf_segmentation.service.PageRange;
+import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService;
+import com.pdfprocessor.pdf_segmentation.service.PdfSource;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+// Resumable uploads for PDFs too large for a single multipart request: create the upload, PUT its chunks
+// (in any order and in parallel), then segment it. See ChunkedUploadService.
+@RestController
+@RequestMapping("/api/pdf/uploads")
+public class ChunkedUploadController {
+
+    @Autowired
+    private ChunkedUploadService chunkedUploadService;
+
+    @Autowired
+    private PdfSegmentationService pdfSegmentationService;
+
+    @Autowired
+    private PdfWorkScheduler pdfWorkScheduler;
+
+    @Autowired
+    private MemoryAdmission memoryAdmission;
+
+    @Autowired
+    private SegmentArchiver segmentArchiver;
+
+    @Value("${pdf.segmentation.admission.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    // POST /uploads: Start an upload and reserve its scratch file
+    @Operation(summary = "Create Upload", description = "Starts a resumable upload of a PDF of the given size and returns its id and chunk size.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload created"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "429", description = "Too many uploads in progress or not enough scratch space, retry later"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping
+    public ResponseEntity<?> createUpload(@RequestParam("fileName") String fileName,
+                                          @RequestParam("size") long size,
+                                          @RequestParam(value = "chunkSize", required = false) Integer chunkSize) {
+        try {
+            ChunkedUpload upload = chunkedUploadService.create(fileName, size, chunkSize);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(HttpHeaders.LOCATION, "/api/pdf/uploads/" + upload.getUploadId())
+                    .body(upload);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (RejectedExecutionException e) {
+            return tooManyRequests("Too many uploads in progress. Please retry later.");
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error creating upload: " + e.getMessage());
+        }
+    }
+
+    // PUT /uploads/{id}/chunks/{index}: Write one chunk, sent as the raw request body
+    @Operation(summary = "Upload Chunk", description = "Writes chunk index (0-based) of an upload. Chunks may be sent in any order, "
+            + "in parallel, and again after a failure. An upload whose content is not a valid PDF is discarded.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Chunk stored; the body reports the chunks still missing"),
+            @ApiResponse(responseCode = "400", description = "Chunk of the wrong size, or the upload is not a PDF"),
+            @ApiResponse(responseCode = "404", description = "Upload not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PutMapping("/{id}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(@PathVariable("id") String uploadId,
+                                         @PathVariable("index") int index,
+                                         InputStream body) {
+        try {
+            ChunkedUpload upload = chunkedUploadService.writeChunk(uploadId, index, body);
+            if (upload == null) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
+            return new ResponseEntity<>(upload, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error writing chunk: " + e.getMessage());
+        }
+    }
+
+    // GET /uploads/{id}: Status of an upload, including the chunks still missing
+    @Operation(summary = "Get Upload", description = "Returns the status of an upload and the chunks still missing.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload status"),
+            @ApiResponse(responseCode = "404", description = "Upload not found")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<ChunkedUpload> getUpload(@PathVariable("id") String uploadId) {
+        ChunkedUpload upload = chunkedUploadService.get(uploadId);
+        if (upload == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(upload, HttpStatus.OK);
+    }
+
+    // DELETE /uploads/{id}: Abandon an upload and remove its scratch file
+    @Operation(summary = "Delete Upload", description = "Abandons an upload and deletes what was received.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload deleted"),
+            @ApiResponse(responseCode = "404", description = "Upload not found")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteUpload(@PathVariable("id") String uploadId) {
+        if (!chunkedUploadService.delete(uploadId)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    // POST /uploads/{id}/segment: Segment a complete upload and stream the ZIP; the upload is used up
+    @Operation(summary = "Segment Upload", description = "Segments a complete upload and streams the ZIP of the segments. "
+            + "The upload is removed afterwards.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Segmented PDF is being streamed"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "404", description = "Upload not found"),
+            @ApiResponse(responseCode = "409", description = "Upload is not complete"),
+            @ApiResponse(responseCode = "429", description = "Server is at capacity, retry later")
+    })
+    @PostMapping("/{id}/segment")
+    public ResponseEntity<StreamingResponseBody> segmentUpload(@PathVariable("id") String uploadId,
+                                                               @RequestParam("cuts") Integer cuts,
+                                                               @RequestParam(value = "mode", required = false) String modeName,
+                                                               @RequestParam(value = "firstPage", required = false) Integer firstPage,
+                                                               @RequestParam(value = "lastPage", required = false) Integer lastPage) {
+        ChunkedUpload upload = chunkedUploadService.get(uploadId);
+        if (upload == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (upload.getStatus() != ChunkedUpload.Status.COMPLETE) {
+            String message = upload.getMissingChunks().size() + " of " + upload.getChunkCount() + " chunks are missing.";
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(outputStream -> outputStream.write(message.getBytes()));
+        }
+        if (cuts == null || cuts <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(outputStream -> outputStream.write("The number of cuts must be a positive integer.".getBytes()));
+        }
+        ExtractionMode mode;
+        PageRange range;
+        try {
+            mode = UploadValidator.parseMode(modeName);
+            range = PageRange.of(firstPage, lastPage);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(outputStream -> outputStream.write(e.getMessage().getBytes()));
+        }
+
+        // Large uploads are not scanned for their page count; the estimate comes from the size alone
+        MemoryAdmission.Permit permit = pdfWorkScheduler.isSaturated() ? null : memoryAdmission.tryAdmit(upload.getSize(), -1);
+        if (permit == null) {
+            return tooManyRequests(outputStream -> outputStream.write("Server is at capacity. Please retry later.".getBytes()));
+        }
+        ChunkedUpload taken = chunkedUploadService.take(uploadId);
+        if (taken == null) {
+            // Segmented or deleted by a concurrent request
+            permit.close();
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            try (MemoryAdmission.Permit admitted = permit; PdfSource pdf = chunkedUploadService.source(taken)) {
+                pdfWorkScheduler.submitCpu(() -> {
+                    ZipArchive archive = segmentArchiver.open(outputStream);
+                    pdfSegmentationService.segmentPdf(pdf, cuts, mode, range, archive);
+                    archive.finish();
+                    return null;
+                }).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Segmentation interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            } finally {
+                // The retained source is a link or copy of its own, so the upload can go
+                chunkedUploadService.delete(taken);
+            }
+        };
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "segmented_pdfs.zip");
+        return new ResponseEntity<>(body, headers, HttpStatus.CREATED);
+    }
+
+    private <T> ResponseEntity<T> tooManyRequests(T body) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(body);
+    }
+}
@@ -1,26 +1,43 @@
 package com.pdfprocessor.pdf_segmentation.controller;
 
+import com.pdfprocessor.pdf_segmentation.archive.SegmentArchiver;
+import com.pdfprocessor.pdf_segmentation.archive.ZipArchive;
+import com.pdfprocessor.pdf_segmentation.cache.SegmentationResultCache;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.metrics.SegmentationMetrics;
+import com.pdfprocessor.pdf_segmentation.metrics.StageTimings;
+import com.pdfprocessor.pdf_segmentation.scheduler.MemoryAdmission;
+import com.pdfprocessor.pdf_segmentation.scheduler.PdfWorkScheduler;
+import com.pdfprocessor.pdf_segmentation.service.PageRange;
 import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService;
+import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService.PdfMetadata;
+import com.pdfprocessor.pdf_segmentation.service.PdfSource;
+import com.pdfprocessor.pdf_segmentation.service.SegmentStore;
+import com.pdfprocessor.pdf_segmentation.store.MetadataStore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.tomcat.util.http.fileupload.ByteArrayOutputStream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.HashMap;
-import java.util.List;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Paths;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 @RestController
 @RequestMapping("/api/pdf")
@@ -29,66 +46,208 @@ public class PdfController {
     @Autowired
     private PdfSegmentationService pdfSegmentationService;
 
-    private final Map<String, PdfMetadata> pdfMetadataStorage = new HashMap<>();
+    @Autowired
+    private SegmentationResultCache segmentationResultCache;
+
+    @Autowired
+    private MetadataStore metadataStore;
+
+    @Autowired
+    private SegmentationMetrics segmentationMetrics;
+
+    // Adds a Server-Timing header with the stage breakdown to buffered /segment-pdf responses
+    @Value("${pdf.segmentation.metrics.server-timing:false}")
+    private boolean serverTimingHeader;
+
+    @Autowired
+    private PdfWorkScheduler pdfWorkScheduler;
+
+    @Autowired
+    private SegmentStore segmentStore;
+
+    @Autowired
+    private SegmentDownloader segmentDownloader;
+
+    @Autowired
+    private SegmentArchiver segmentArchiver;
+
+    @Autowired
+    private MemoryAdmission memoryAdmission;
 
-    private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10 MB file size limit
+    @Value("${pdf.segmentation.admission.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    // Uploads up to this size are segmented from memory; larger ones are spooled into spill-dir
+    @Value("${pdf.segmentation.pipeline.spill-threshold-bytes:8388608}")
+    private long spillThresholdBytes;
+
+    @Value("${pdf.segmentation.pipeline.spill-dir:${java.io.tmpdir}/pdf-segmentation-uploads}")
+    private String spillDir;
+
+    private static final String SPILLED_BYTES_HEADER = "X-Scratch-Spilled-Bytes";
+    private static final String BUSY_MESSAGE = "Server is at capacity. Please retry later.";
 
     // POST /segment-pdf: Segment PDF and return the segmented sections as a ZIP file
     @Operation(summary = "Segment PDF", description = "Segments a PDF file into specified parts.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Successfully segmented PDF"),
             @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "429", description = "Server is at capacity, retry later"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping("/segment-pdf")
-    public ResponseEntity<byte[]> segmentPdf(@RequestParam("file") MultipartFile file,
-                                             @RequestParam("cuts") Integer cuts) {
+    public CompletableFuture<ResponseEntity<byte[]>> segmentPdf(@RequestParam("file") MultipartFile file,
+                                                                @RequestParam("cuts") Integer cuts,
+                                                                @RequestParam(value = "mode", required = false) String modeName,
+                                                                @RequestParam(value = "firstPage", required = false) Integer firstPage,
+                                                                @RequestParam(value = "lastPage", required = false) Integer lastPage) {
         // Input Validation
-
-        // Validate file type (only PDF files allowed)
-        if (!file.getContentType().equals("application/pdf")) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(("Invalid file type. Only PDF files are accepted.").getBytes());
+        String validationError = UploadValidator.validate(file, cuts);
+        if (validationError != null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(validationError.getBytes()));
         }
-
-        // Validate file size (limit to 10 MB)
-        if (file.getSize() > MAX_FILE_SIZE) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(("File size exceeds the limit of 10 MB.").getBytes());
+        ExtractionMode mode;
+        PageRange range;
+        try {
+            mode = UploadValidator.parseMode(modeName);
+            range = PageRange.of(firstPage, lastPage);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage().getBytes()));
         }
 
-        // Validate number of cuts (must be a positive integer)
-        if (cuts == null || cuts <= 0) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(("The number of cuts must be a positive integer.").getBytes());
+        // Shed load before any work is queued
+        if (pdfWorkScheduler.isSaturated()) {
+            return CompletableFuture.completedFuture(tooManyRequests(BUSY_MESSAGE.getBytes()));
         }
 
+        // Admit and spool the upload on the I/O executor, then segment and zip on the CPU pool; the servlet thread
+        // is released
+        StageTimings timings = segmentationMetrics.beginRequest();
         try {
-            // Convert MultipartFile to File
-            File pdfFile = convertMultipartFileToFile(file);
-
-            // Call the service to segment the PDF
-            List<File> segmentedFiles = pdfSegmentationService.segmentPdf(pdfFile, cuts);
+            return pdfWorkScheduler.submitIo(() -> admit(file, range))
+                    .thenCompose(permit -> {
+                        if (permit == null) {
+                            return CompletableFuture.completedFuture(tooManyRequests(BUSY_MESSAGE.getBytes()));
+                        }
+                        return pdfWorkScheduler.submitIo(() -> {
+                                    // Read the upload into memory; only uploads above the spill threshold are written to disk
+                                    try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("upload")) {
+                                        return spoolUpload(file);
+                                    }
+                                })
+                                .thenCompose(source -> pdfWorkScheduler.submitCpu(() -> {
+                                    try (PdfSource pdf = source) {
+                                        return segmentToZip(pdf, cuts, mode, range, timings);
+                                    }
+                                }))
+                                .whenComplete((response, failure) -> permit.close());
+                    })
+                    .exceptionally(failure -> {
+                        Throwable cause = rootCause(failure);
+                        // A page range that only turns out invalid once the document's page count is known
+                        if (cause instanceof IllegalArgumentException) {
+                            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(cause.getMessage().getBytes());
+                        }
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(("Error processing PDF file: " + cause.getMessage()).getBytes());
+                    });
+        } finally {
+            segmentationMetrics.endRequest();
+        }
+    }
 
-            // Store metadata (dummy storage in this example)
-            String pdfId = pdfFile.getName(); // Using file name as ID
-            PdfMetadata metadata = new PdfMetadata(pdfId, segmentedFiles.size(), cuts);
-            pdfMetadataStorage.put(pdfId, metadata);
+    private ResponseEntity<byte[]> segmentToZip(PdfSource source, int cuts, ExtractionMode mode, PageRange range, StageTimings timings) throws IOException {
+        // Segments are compressed into the archive as they are produced instead of being read back from disk
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ZipArchive archive = segmentArchiver.open(baos);
+        PdfMetadata metadata = pdfSegmentationService.segmentPdf(source, cuts, mode, range, archive);
+        try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("zip")) {
+            archive.finish();
+        }
+        byte[] zipFile = baos.toByteArray();
 
-            // Create a ZIP file containing all segmented PDFs
-            byte[] zipFile = createZipFromFiles(segmentedFiles);
+        // Report how much of the job had to spill to scratch files
+        HttpHeaders headers = zipDownloadHeaders();
+        headers.set(SPILLED_BYTES_HEADER, String.valueOf(metadata.getSpilledBytes()));
+        if (serverTimingHeader) {
+            headers.set("Server-Timing", timings.toServerTiming());
+        }
 
-            // Prepare the HTTP headers for file download
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData("attachment", "segmented_pdfs.zip");
+        // Return the ZIP file as a response with 201 status (Created)
+        return new ResponseEntity<>(zipFile, headers, HttpStatus.CREATED);
+    }
 
-            // Return the ZIP file as a response with 201 status (Created)
-            return new ResponseEntity<>(zipFile, headers, HttpStatus.CREATED);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(("Error processing PDF file: " + e.getMessage()).getBytes());
+    // POST /segment-pdf?stream=true: Same as above, but segments are written into the ZIP response
+    // as they are produced, so the archive is never held on heap
+    @Operation(summary = "Segment PDF (streaming)", description = "Segments a PDF file and streams the ZIP while segments are produced.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Segmented PDF is being streamed"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "429", description = "Server is at capacity, retry later"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping(value = "/segment-pdf", params = "stream=true")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> segmentPdfStreaming(@RequestParam("file") MultipartFile file,
+                                                                                        @RequestParam("cuts") Integer cuts,
+                                                                                        @RequestParam(value = "mode", required = false) String modeName,
+                                                                                        @RequestParam(value = "firstPage", required = false) Integer firstPage,
+                                                                                        @RequestParam(value = "lastPage", required = false) Integer lastPage) {
+        String validationError = UploadValidator.validate(file, cuts);
+        if (validationError != null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(outputStream -> outputStream.write(validationError.getBytes())));
+        }
+        ExtractionMode mode;
+        PageRange range;
+        try {
+            mode = UploadValidator.parseMode(modeName);
+            range = PageRange.of(firstPage, lastPage);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(outputStream -> outputStream.write(e.getMessage().getBytes())));
+        }
+        StreamingResponseBody busy = outputStream -> outputStream.write(BUSY_MESSAGE.getBytes());
+        if (pdfWorkScheduler.isSaturated()) {
+            return CompletableFuture.completedFuture(tooManyRequests(busy));
         }
+
+        // Admission and spooling run on the I/O executor; the servlet thread is released
+        return pdfWorkScheduler.submitIo(() -> {
+                    MemoryAdmission.Permit permit = admit(file, range);
+                    if (permit == null) {
+                        return tooManyRequests(busy);
+                    }
+                    PdfSource source;
+                    try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("upload")) {
+                        source = spoolUpload(file);
+                    } catch (IOException e) {
+                        permit.close();
+                        throw e;
+                    }
+                    return new ResponseEntity<>(streamSegments(permit, source, cuts, mode, range), zipDownloadHeaders(), HttpStatus.CREATED);
+                })
+                .exceptionally(failure -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(outputStream -> outputStream.write(("Error processing PDF file: " + rootCause(failure).getMessage()).getBytes())));
+    }
+
+    // The response thread only waits; parsing and compression run on the CPU pool
+    private StreamingResponseBody streamSegments(MemoryAdmission.Permit permit, PdfSource source, int cuts, ExtractionMode mode, PageRange range) {
+        return outputStream -> {
+            try (MemoryAdmission.Permit admitted = permit; PdfSource pdf = source) {
+                pdfWorkScheduler.submitCpu(() -> {
+                    ZipArchive archive = segmentArchiver.open(outputStream);
+                    pdfSegmentationService.segmentPdf(pdf, cuts, mode, range, archive);
+                    archive.finish();
+                    return null;
+                }).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Segmentation interrupted");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        };
     }
 
     // GET /pdf-metadata/{id}: Retrieve metadata for the processed PDF
@@ -99,7 +258,7 @@ public class PdfController {
     })
     @GetMapping("/pdf-metadata/{id}")
     public ResponseEntity<PdfMetadata> getPdfMetadata(@PathVariable("id") String pdfId) {
-        PdfMetadata metadata = pdfMetadataStorage.get(pdfId);
+        PdfMetadata metadata = metadataStore.get(pdfId);
         if (metadata == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -115,13 +274,18 @@ public class PdfController {
     @PutMapping("/update-segmentation/{id}")
     public ResponseEntity<String> updateSegmentation(@PathVariable("id") String pdfId,
                                                      @RequestParam("cuts") int newCuts) {
-        PdfMetadata metadata = pdfMetadataStorage.get(pdfId);
-        if (metadata == null) {
+        if (metadataStore.get(pdfId) == null) {
             return new ResponseEntity<>("PDF metadata not found", HttpStatus.NOT_FOUND);
         }
 
-        // Simulate updating segmentation by calling the segmentation service again
-        metadata.setCuts(newCuts);
+        // Re-cut the document from its layout index; the PDF is not uploaded or parsed again
+        try {
+            pdfSegmentationService.updateSegmentation(pdfId, newCuts);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IOException e) {
+            return new ResponseEntity<>("Error re-segmenting PDF file: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
         return new ResponseEntity<>("Segmentation updated successfully", HttpStatus.OK);
     }
 
@@ -134,15 +298,20 @@ public class PdfController {
     @PatchMapping("/modify-segmentation/{id}")
     public ResponseEntity<String> modifySegmentation(@PathVariable("id") String pdfId,
                                                      @RequestBody Map<String, Object> updates) {
-        PdfMetadata metadata = pdfMetadataStorage.get(pdfId);
-        if (metadata == null) {
+        if (metadataStore.get(pdfId) == null) {
             return new ResponseEntity<>("PDF metadata not found", HttpStatus.NOT_FOUND);
         }
 
         // Apply partial updates (for simplicity, only cuts)
-        if (updates.containsKey("cuts")) {
-            int newCuts = (int) updates.get("cuts");
-            metadata.setCuts(newCuts);
+        if (updates.get("cuts") instanceof Number) {
+            int newCuts = ((Number) updates.get("cuts")).intValue();
+            try {
+                pdfSegmentationService.modifySegmentation(pdfId, newCuts);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            } catch (IOException e) {
+                return new ResponseEntity<>("Error re-segmenting PDF file: " + e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+            }
         }
 
         return new ResponseEntity<>("Segmentation details modified successfully", HttpStatus.OK);
@@ -156,75 +325,90 @@ public class PdfController {
     })
     @DeleteMapping("/delete-pdf/{id}")
     public ResponseEntity<Void> deletePdf(@PathVariable("id") String pdfId) {
-        PdfMetadata metadata = pdfMetadataStorage.remove(pdfId);
-        if (metadata == null) {
+        // Drops the metadata together with the retained source and layout index
+        if (!pdfSegmentationService.deletePdf(pdfId)) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
 
-        // Simulate deletion (in a real application, delete files from storage)
         return new ResponseEntity<>(HttpStatus.NO_CONTENT); // Return 204 No Content for successful deletion
     }
 
-    // Utility method to convert MultipartFile to File
-    private File convertMultipartFileToFile(MultipartFile file) throws IOException {
-        File convertedFile = new File(file.getOriginalFilename());
-        file.transferTo(convertedFile);
-        return convertedFile;
-    }
-
-    // Utility method to create a ZIP archive from a list of files
-    private byte[] createZipFromFiles(List<File> files) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             ZipOutputStream zos = new ZipOutputStream(baos)) {
-
-            for (File file : files) {
-                // Add each file to the ZIP archive
-                ZipEntry zipEntry = new ZipEntry(file.getName());
-                zos.putNextEntry(zipEntry);
-                byte[] fileBytes = Files.readAllBytes(file.toPath());
-                zos.write(fileBytes, 0, fileBytes.length);
-                zos.closeEntry();
-            }
-
-            zos.finish();
-            return baos.toByteArray();
+    // GET /segments/{id}/{index}: Download one stored segment (1-based index) without the rest of the archive
+    @Operation(summary = "Download Segment", description = "Downloads a single segment of a processed PDF. "
+            + "Supports Range requests and conditional requests with If-None-Match.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "The segment"),
+            @ApiResponse(responseCode = "206", description = "The requested byte range of the segment"),
+            @ApiResponse(responseCode = "304", description = "The segment matches the given ETag"),
+            @ApiResponse(responseCode = "404", description = "PDF or segment not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range cannot be satisfied")
+    })
+    @GetMapping("/segments/{id}/{index}")
+    public void downloadSegment(@PathVariable("id") String pdfId,
+                                @PathVariable("index") int index,
+                                HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
+        SegmentStore.Segment segment = segmentStore.getSegment(pdfId, index - 1);
+        if (segment == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
         }
+        segmentDownloader.send(segment, request, response);
     }
 
-    // Dummy class to represent PDF metadata
-    static class PdfMetadata {
-        private String pdfId;
-        private int segmentCount;
-        private int cuts;
+    // GET /cache-stats: Hit, miss and size counters of the segmentation result cache
+    @Operation(summary = "Result Cache Statistics", description = "Hit, miss, eviction and size counters of the segmentation result cache.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cache statistics")
+    })
+    @GetMapping("/cache-stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return new ResponseEntity<>(segmentationResultCache.getStats(), HttpStatus.OK);
+    }
 
-        public PdfMetadata(String pdfId, int segmentCount, int cuts) {
-            this.pdfId = pdfId;
-            this.segmentCount = segmentCount;
-            this.cuts = cuts;
+    // Admission for one upload: 429 when the CPU pool is backed up or the memory budget is taken.
+    // Returns the permit to release when the request finishes, or null when the request must be shed.
+    private MemoryAdmission.Permit admit(MultipartFile file, PageRange range) throws IOException {
+        if (pdfWorkScheduler.isSaturated()) {
+            return null;
         }
-
-        public String getPdfId() {
-            return pdfId;
+        int pageCount;
+        try (InputStream in = file.getInputStream()) {
+            pageCount = MemoryAdmission.scanPageCount(in);
         }
-
-        public void setPdfId(String pdfId) {
-            this.pdfId = pdfId;
+        // Only the requested pages are parsed and analysed
+        if (range != null && pageCount > 0) {
+            pageCount = Math.max(0, range.toIndex(pageCount) - range.fromIndex());
         }
+        return memoryAdmission.tryAdmit(file.getSize(), pageCount);
+    }
 
-        public int getSegmentCount() {
-            return segmentCount;
-        }
+    private <T> ResponseEntity<T> tooManyRequests(T body) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(body);
+    }
 
-        public void setSegmentCount(int segmentCount) {
-            this.segmentCount = segmentCount;
+    private static Throwable rootCause(Throwable failure) {
+        while (failure instanceof CompletionException && failure.getCause() != null) {
+            failure = failure.getCause();
         }
+        return failure;
+    }
 
-        public int getCuts() {
-            return cuts;
-        }
+    // Prepare the HTTP headers for the ZIP download
+    private HttpHeaders zipDownloadHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "segmented_pdfs.zip");
+        return headers;
+    }
 
-        public void setCuts(int cuts) {
-            this.cuts = cuts;
+    // Read an upload into memory, continuing into a file in the spill directory beyond the threshold
+    private PdfSource spoolUpload(MultipartFile file) throws IOException {
+        String name = UploadValidator.fileName(file);
+        try (InputStream in = file.getInputStream()) {
+            return PdfSource.spool(name, in, spillThresholdBytes, Paths.get(spillDir));
         }
     }
 }
@@ -0,0 +1,134 @@
+package com.pdfprocessor.pdf_segmentation.controller;
+
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.service.SegmentationJob;
+import com.pdfprocessor.pdf_segmentation.service.SegmentationJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/pdf/jobs")
+public class SegmentationJobController {
+
+    @Autowired
+    private SegmentationJobService segmentationJobService;
+
+    @Value("${pdf.segmentation.jobs.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    // POST /jobs: Queue a segmentation and return its job id immediately
+    @Operation(summary = "Submit Segmentation Job", description = "Queues a PDF for asynchronous segmentation and returns the job id.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Job accepted"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "429", description = "Job queue is full, retry later"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    @PostMapping
+    public ResponseEntity<?> submitJob(@RequestParam("file") MultipartFile file,
+                                       @RequestParam("cuts") Integer cuts,
+                                       @RequestParam(value = "mode", required = false) String modeName) {
+        String validationError = UploadValidator.validate(file, cuts);
+        if (validationError != null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(validationError);
+        }
+        ExtractionMode mode;
+        try {
+            mode = UploadValidator.parseMode(modeName);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+
+        // Reject before spooling the upload when the queue is already full
+        if (segmentationJobService.isSaturated()) {
+            return tooManyRequests();
+        }
+
+        try (InputStream upload = file.getInputStream()) {
+            SegmentationJob job = segmentationJobService.submit(upload, UploadValidator.fileName(file), cuts, mode);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/pdf/jobs/" + job.getJobId())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return tooManyRequests();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error queueing PDF file: " + e.getMessage());
+        }
+    }
+
+    // GET /jobs/{id}: Poll status and progress of a job
+    @Operation(summary = "Get Segmentation Job", description = "Returns status and progress of a segmentation job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status"),
+            @ApiResponse(responseCode = "404", description = "Job not found")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<SegmentationJob> getJob(@PathVariable("id") String jobId) {
+        SegmentationJob job = segmentationJobService.getJob(jobId);
+        if (job == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(job, HttpStatus.OK);
+    }
+
+    // GET /jobs/{id}/result: Download the ZIP of a completed job
+    @Operation(summary = "Download Segmentation Result", description = "Downloads the ZIP produced by a completed job.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "ZIP archive of the segments"),
+            @ApiResponse(responseCode = "404", description = "Job not found"),
+            @ApiResponse(responseCode = "409", description = "Job has not completed")
+    })
+    @GetMapping("/{id}/result")
+    public ResponseEntity<Resource> getResult(@PathVariable("id") String jobId) {
+        SegmentationJob job = segmentationJobService.getJob(jobId);
+        if (job == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        File result = segmentationJobService.getResult(jobId);
+        if (result == null) {
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData("attachment", "segmented_pdfs.zip");
+        return new ResponseEntity<>(new FileSystemResource(result), headers, HttpStatus.OK);
+    }
+
+    // DELETE /jobs/{id}: Forget a job and remove its result
+    @Operation(summary = "Delete Segmentation Job", description = "Deletes a job and its result.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Job deleted"),
+            @ApiResponse(responseCode = "404", description = "Job not found")
+    })
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteJob(@PathVariable("id") String jobId) {
+        if (!segmentationJobService.deleteJob(jobId)) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    private ResponseEntity<?> tooManyRequests() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("Too many segmentation jobs in progress. Please retry later.");
+    }
+}
@@ -0,0 +1,74 @@
+package com.pdfprocessor.pdf_segmentation.controller;
+
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.service.PdfStructure;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+
+// Input validation shared by the endpoints that accept PDF uploads
+final class UploadValidator {
+
+    static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10 MB file size limit
+
+    static final String DEFAULT_FILE_NAME = "document.pdf";
+
+    static final String NO_HEADER_MESSAGE = "Invalid file content. The file does not start with a PDF header.";
+
+    private UploadValidator() {
+    }
+
+    // Returns an error message for invalid uploads, or null when the upload can be processed
+    static String validate(MultipartFile file, Integer cuts) {
+        // Validate file type (only PDF files allowed)
+        if (!"application/pdf".equals(file.getContentType())) {
+            return "Invalid file type. Only PDF files are accepted.";
+        }
+
+        // Validate file size (limit to 10 MB)
+        if (file.getSize() > MAX_FILE_SIZE) {
+            return "File size exceeds the limit of 10 MB.";
+        }
+
+        // The content type is chosen by the client, so also look at the first bytes before anything is spooled
+        if (!hasPdfHeader(file)) {
+            return NO_HEADER_MESSAGE;
+        }
+
+        // Validate number of cuts (must be a positive integer)
+        if (cuts == null || cuts <= 0) {
+            return "The number of cuts must be a positive integer.";
+        }
+        return null;
+    }
+
+    // Base name of the uploaded file; clients may send no name, or one that is only a path
+    static String fileName(MultipartFile file) {
+        String name = file.getOriginalFilename() != null ? new File(file.getOriginalFilename()).getName() : "";
+        return name.isBlank() || ".".equals(name) || "..".equals(name) ? DEFAULT_FILE_NAME : name;
+    }
+
+    private static boolean hasPdfHeader(MultipartFile file) {
+        try (InputStream in = file.getInputStream()) {
+            byte[] head = in.readNBytes(PdfStructure.HEADER_WINDOW);
+            return PdfStructure.findHeader(head, head.length) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Extraction mode requested by a client, e.g. "content-stream"; null when none was given
+    static ExtractionMode parseMode(String mode) {
+        if (mode == null || mode.isBlank()) {
+            return null;
+        }
+        try {
+            return ExtractionMode.valueOf(mode.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown extraction mode. Use text, geometry, content-stream or raster.");
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.util.Matrix;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Geometry from the content stream operators alone: tracks the graphics and text matrices (cm, q/Q,
+// BT, Td, TD, Tm, T*, ', ") and records the baseline of every text-showing operator and the vertical
+// extent of every image placement (Do, inline images). Fonts are never loaded and no text is decoded,
+// so glyph widths and heights are unknown: line heights are estimated from the effective font size and
+// all glyphs of one show operator share its baseline. Page rotation is not applied.
+public class ContentStreamScanner {
+
+    // Approximate cap height of a font as a fraction of its size, used as the height of a text line
+    private static final float CAP_HEIGHT = 0.7f;
+    // Images are recorded as occupied Y positions this far apart so no gap is found inside them
+    private static final float IMAGE_STEP = 4f;
+    private static final int MAX_IMAGE_SAMPLES = 256;
+    // Form XObjects may nest; deeper forms are ignored
+    private static final int MAX_FORM_DEPTH = 8;
+
+    private final GrowableFloatArray yPositions = new GrowableFloatArray(1024);
+    private final GrowableFloatArray lineTops = new GrowableFloatArray();
+    private final GrowableFloatArray lineBottoms = new GrowableFloatArray();
+    private float pageTop;
+    private boolean textShown;
+
+    // Scan pages [fromPage, toPage) of the document; like the text strippers, pages without content are skipped
+    public static List<PageLayout> scanPages(PDDocument document, int fromPage, int toPage) throws IOException {
+        ContentStreamScanner scanner = new ContentStreamScanner();
+        List<PageLayout> pages = new ArrayList<>(toPage - fromPage);
+        for (int page = fromPage; page < toPage; page++) {
+            PDPage pdPage = document.getPage(page);
+            if (pdPage.hasContents()) {
+                pages.add(scanner.scan(pdPage, page));
+            }
+        }
+        return pages;
+    }
+
+    public PageLayout scan(PDPage page, int pageIndex) throws IOException {
+        yPositions.clear();
+        lineTops.clear();
+        lineBottoms.clear();
+        textShown = false;
+        // Same coordinates as TextPosition.getYDirAdj: top-down, relative to the crop box
+        pageTop = page.getCropBox().getUpperRightY();
+        scanStream(page, page.getResources(), new Matrix(), 0);
+        return new PageLayout(pageIndex, yPositions.toArray(), lineTops.toArray(), lineBottoms.toArray(), textShown);
+    }
+
+    private void scanStream(PDContentStream stream, PDResources resources, Matrix initialCtm, int depth) throws IOException {
+        Deque<State> saved = new ArrayDeque<>();
+        State state = new State(initialCtm);
+        Matrix textMatrix = new Matrix();
+        Matrix textLineMatrix = new Matrix();
+        List<COSBase> operands = new ArrayList<>();
+
+        PDFStreamParser parser = new PDFStreamParser(stream);
+        for (Object token = parser.parseNextToken(); token != null; token = parser.parseNextToken()) {
+            if (!(token instanceof Operator)) {
+                if (token instanceof COSBase) {
+                    operands.add((COSBase) token);
+                }
+                continue;
+            }
+            Operator operator = (Operator) token;
+            switch (operator.getName()) {
+                case "q":
+                    saved.push(state.copy());
+                    break;
+                case "Q":
+                    if (!saved.isEmpty()) {
+                        state = saved.pop();
+                    }
+                    break;
+                case "cm":
+                    if (operands.size() == 6) {
+                        state.ctm = matrix(operands).multiply(state.ctm);
+                    }
+                    break;
+                case "BT":
+                    textMatrix = new Matrix();
+                    textLineMatrix = new Matrix();
+                    break;
+                case "Tf":
+                    if (operands.size() == 2) {
+                        state.fontSize = number(operands.get(1));
+                    }
+                    break;
+                case "TL":
+                    if (operands.size() == 1) {
+                        state.leading = number(operands.get(0));
+                    }
+                    break;
+                case "Ts":
+                    if (operands.size() == 1) {
+                        state.rise = number(operands.get(0));
+                    }
+                    break;
+                case "TD":
+                    if (operands.size() == 2) {
+                        state.leading = -number(operands.get(1));
+                    }
+                    // fall through: TD moves like Td
+                case "Td":
+                    if (operands.size() == 2) {
+                        textLineMatrix = Matrix.getTranslateInstance(number(operands.get(0)), number(operands.get(1))).multiply(textLineMatrix);
+                        textMatrix = textLineMatrix.clone();
+                    }
+                    break;
+                case "Tm":
+                    if (operands.size() == 6) {
+                        textLineMatrix = matrix(operands);
+                        textMatrix = textLineMatrix.clone();
+                    }
+                    break;
+                case "T*":
+                    textLineMatrix = Matrix.getTranslateInstance(0, -state.leading).multiply(textLineMatrix);
+                    textMatrix = textLineMatrix.clone();
+                    break;
+                case "'":
+                case "\"":
+                    textLineMatrix = Matrix.getTranslateInstance(0, -state.leading).multiply(textLineMatrix);
+                    textMatrix = textLineMatrix.clone();
+                    if (!operands.isEmpty() && showsGlyphs(operands.get(operands.size() - 1))) {
+                        recordText(textMatrix, state);
+                    }
+                    break;
+                case "Tj":
+                case "TJ":
+                    if (!operands.isEmpty() && showsGlyphs(operands.get(0))) {
+                        recordText(textMatrix, state);
+                    }
+                    break;
+                case "BI":
+                    recordImage(state.ctm);
+                    break;
+                case "Do":
+                    if (!operands.isEmpty() && operands.get(0) instanceof COSName && resources != null) {
+                        COSName name = (COSName) operands.get(0);
+                        if (resources.isImageXObject(name)) {
+                            recordImage(state.ctm);
+                        } else if (depth < MAX_FORM_DEPTH) {
+                            PDXObject xObject = resources.getXObject(name);
+                            if (xObject instanceof PDFormXObject) {
+                                PDFormXObject form = (PDFormXObject) xObject;
+                                PDResources formResources = form.getResources() != null ? form.getResources() : resources;
+                                scanStream(form, formResources, form.getMatrix().multiply(state.ctm), depth + 1);
+                            }
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            operands.clear();
+        }
+    }
+
+    // Baseline and estimated top of the glyphs shown with the current text matrix
+    private void recordText(Matrix textMatrix, State state) {
+        Matrix rendering = textMatrix.multiply(state.ctm);
+        float y = pageTop - (rendering.getScaleY() * state.rise + rendering.getTranslateY());
+        float height = Math.abs(state.fontSize * rendering.getScalingFactorY()) * CAP_HEIGHT;
+        textShown = true;
+        yPositions.add(y);
+        lineTops.add(y - height);
+        lineBottoms.add(y);
+    }
+
+    // An image fills the unit square of the current transformation matrix
+    private void recordImage(Matrix ctm) {
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int corner = 0; corner < 4; corner++) {
+            float x = corner & 1;
+            float y = corner >> 1;
+            float userY = ctm.getShearY() * x + ctm.getScaleY() * y + ctm.getTranslateY();
+            minY = Math.min(minY, userY);
+            maxY = Math.max(maxY, userY);
+        }
+        float top = pageTop - maxY;
+        float bottom = pageTop - minY;
+        int samples = Math.min(MAX_IMAGE_SAMPLES, (int) Math.ceil((bottom - top) / IMAGE_STEP));
+        for (int i = 0; i <= samples; i++) {
+            yPositions.add(samples == 0 ? top : top + (bottom - top) * i / samples);
+        }
+        lineTops.add(top);
+        lineBottoms.add(bottom);
+    }
+
+    private static boolean showsGlyphs(COSBase operand) {
+        if (operand instanceof COSString) {
+            return ((COSString) operand).getBytes().length > 0;
+        }
+        if (operand instanceof COSArray) {
+            for (COSBase element : (COSArray) operand) {
+                if (element instanceof COSString && ((COSString) element).getBytes().length > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Matrix matrix(List<COSBase> operands) {
+        return new Matrix(number(operands.get(0)), number(operands.get(1)), number(operands.get(2)),
+                number(operands.get(3)), number(operands.get(4)), number(operands.get(5)));
+    }
+
+    private static float number(COSBase operand) {
+        return operand instanceof COSNumber ? ((COSNumber) operand).floatValue() : 0f;
+    }
+
+    // The parts of the graphics state that move text and images; saved and restored by q/Q
+    private static final class State {
+        Matrix ctm;
+        float fontSize;
+        float leading;
+        float rise;
+
+        State(Matrix ctm) {
+            this.ctm = ctm;
+        }
+
+        State copy() {
+            State copy = new State(ctm.clone());
+            copy.fontSize = fontSize;
+            copy.leading = leading;
+            copy.rise = rise;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Page-aware text geometry of a document: one PageLayout per analysed page, in page order
+public final class DocumentLayout {
+
+    private final int pageCount;
+    private final List<PageLayout> pages;
+
+    public DocumentLayout(int pageCount, List<PageLayout> pages) {
+        List<PageLayout> ordered = new ArrayList<>(pages);
+        ordered.sort(Comparator.comparingInt(PageLayout::getPageIndex));
+        this.pageCount = pageCount;
+        this.pages = Collections.unmodifiableList(ordered);
+    }
+
+    // Number of pages in the source document, including pages without text
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public List<PageLayout> getPages() {
+        return pages;
+    }
+
+    // Y positions of every page concatenated in page order, as consumed by GapSelector
+    public float[] allYPositions() {
+        int total = 0;
+        for (PageLayout page : pages) {
+            total += page.getYPositions().length;
+        }
+        float[] all = new float[total];
+        int offset = 0;
+        for (PageLayout page : pages) {
+            float[] yPositions = page.getYPositions();
+            System.arraycopy(yPositions, 0, all, offset, yPositions.length);
+            offset += yPositions.length;
+        }
+        return all;
+    }
+}
@@ -0,0 +1,18 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+
+// Opens a fresh, independent PDDocument for the same source. PDDocument is not thread-safe,
+// so every worker that needs the document opens its own instance.
+@FunctionalInterface
+public interface DocumentOpener {
+
+    PDDocument open() throws IOException;
+
+    // A document of which only pages [fromPage, toPage) will be used; openers may skip parsing the rest
+    default PDDocument open(int fromPage, int toPage) throws IOException {
+        return open();
+    }
+}
@@ -0,0 +1,14 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+// How Y coordinates are extracted from a document before gaps are ranked
+public enum ExtractionMode {
+    // Full PDFTextStripper pass, including text assembly and position sorting
+    TEXT,
+    // Glyph positions only, collected into primitive buffers without building any text
+    GEOMETRY,
+    // Text and image placements read from the content stream operators, without loading fonts or decoding text
+    CONTENT_STREAM,
+    // Horizontal whitespace profiles of every page rendered in grayscale; the other modes fall back to it for
+    // pages without text, such as scans
+    RASTER
+}
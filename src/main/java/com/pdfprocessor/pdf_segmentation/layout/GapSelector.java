@@ -0,0 +1,125 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import java.util.Arrays;
+
+// Ranks the whitespace gaps between consecutive distinct Y positions and picks the k largest ones.
+// Selection uses a bounded heap of gap indices, so ranking n gaps costs O(n log k) on primitive arrays.
+// Equal gaps are ordered by position: the gap closer to the top of the document wins.
+public final class GapSelector {
+
+    private GapSelector() {
+    }
+
+    // Sorts the first length values in place and moves the distinct ones to the front; returns their count
+    public static int sortDistinct(float[] values, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        Arrays.sort(values, 0, length);
+        int distinct = 1;
+        for (int i = 1; i < length; i++) {
+            if (values[i] != values[distinct - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return distinct;
+    }
+
+    // Indices of the k largest gaps, ascending. Gap i lies between sorted[i] and sorted[i + 1].
+    // Fewer than k indices are returned when there are not enough gaps.
+    public static int[] selectLargestGaps(float[] sorted, int length, int k) {
+        int gapCount = Math.max(length - 1, 0);
+        int size = Math.min(k, gapCount);
+        if (size <= 0) {
+            return new int[0];
+        }
+
+        // Min-heap on (gap, -index): the root is the weakest gap selected so far
+        int[] heap = new int[size];
+        int heapSize = 0;
+        for (int i = 0; i < gapCount; i++) {
+            if (heapSize < size) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++, sorted);
+            } else if (ranksAbove(i, heap[0], sorted)) {
+                heap[0] = i;
+                siftDown(heap, heapSize, sorted);
+            }
+        }
+        Arrays.sort(heap);
+        return heap;
+    }
+
+    // All gap indices ordered by rank: largest gap first, ties by position. Gaps are non-negative, so their
+    // float bits order like the values and rank and index can be packed into one primitive sort key.
+    public static int[] rankGaps(float[] sorted, int length) {
+        int gapCount = Math.max(length - 1, 0);
+        long[] keys = new long[gapCount];
+        for (int i = 0; i < gapCount; i++) {
+            long inverseGap = Integer.MAX_VALUE - Float.floatToIntBits(gap(sorted, i));
+            keys[i] = (inverseGap << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] ranked = new int[gapCount];
+        for (int i = 0; i < gapCount; i++) {
+            ranked[i] = (int) keys[i];
+        }
+        return ranked;
+    }
+
+    // Cut positions as used by the segmentation service: the rounded Y position above each of the k largest gaps.
+    // Sorts the first length values of yPositions in place.
+    public static int[] cutPositions(float[] yPositions, int length, int cuts) {
+        int distinct = sortDistinct(yPositions, length);
+        int[] gapIndices = selectLargestGaps(yPositions, distinct, cuts);
+        int[] positions = new int[gapIndices.length];
+        for (int i = 0; i < gapIndices.length; i++) {
+            positions[i] = Math.round(yPositions[gapIndices[i]]);
+        }
+        return positions;
+    }
+
+    private static float gap(float[] sorted, int index) {
+        return sorted[index + 1] - sorted[index];
+    }
+
+    // True when gap a should be preferred over gap b
+    private static boolean ranksAbove(int a, int b, float[] sorted) {
+        float gapA = gap(sorted, a);
+        float gapB = gap(sorted, b);
+        return gapA > gapB || (gapA == gapB && a < b);
+    }
+
+    private static void siftUp(int[] heap, int index, float[] sorted) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!ranksAbove(heap[parent], value, sorted)) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int size, float[] sorted) {
+        int index = 0;
+        int value = heap[0];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && ranksAbove(heap[child], heap[child + 1], sorted)) {
+                child++;
+            }
+            if (!ranksAbove(value, heap[child], sorted)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+}
@@ -0,0 +1,137 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Geometry-only extraction: records the Y coordinate of every glyph and the vertical extent of every
+// text line into primitive buffers. Glyphs are intercepted before PDFTextStripper groups them into
+// articles, so no text is assembled, sorted or written.
+public class GeometryTextStripper extends PDFTextStripper {
+
+    // Glyphs whose baselines differ by less than this fraction of the glyph height share a line
+    private static final float LINE_TOLERANCE = 0.5f;
+
+    private final GrowableFloatArray yPositions = new GrowableFloatArray(4096);
+    private final GrowableFloatArray lineTops = new GrowableFloatArray();
+    private final GrowableFloatArray lineBottoms = new GrowableFloatArray();
+    private int[] pageLineOffsets = new int[16];
+    private int[] pageIndices = new int[16];
+    private int[] pageGlyphOffsets = new int[16];
+    private int pageCount;
+
+    private boolean lineOpen;
+    private float lineBaseline;
+    private float lineTop;
+
+    public GeometryTextStripper() throws IOException {
+        super();
+    }
+
+    // Run the extraction over the configured page range; the collected geometry is available afterwards
+    public void extract(PDDocument document) throws IOException {
+        writeText(document, Writer.nullWriter());
+    }
+
+    // Per-page snapshot of the collected geometry
+    public List<PageLayout> toPageLayouts() {
+        float[] glyphs = yPositions.toArray();
+        float[] tops = lineTops.toArray();
+        float[] bottoms = lineBottoms.toArray();
+        List<PageLayout> pages = new ArrayList<>(pageCount);
+        for (int page = 0; page < pageCount; page++) {
+            pages.add(new PageLayout(pageIndices[page],
+                    Arrays.copyOfRange(glyphs, pageGlyphOffsets[page], pageGlyphOffsets[page + 1]),
+                    Arrays.copyOfRange(tops, pageLineOffsets[page], pageLineOffsets[page + 1]),
+                    Arrays.copyOfRange(bottoms, pageLineOffsets[page], pageLineOffsets[page + 1])));
+        }
+        return pages;
+    }
+
+    @Override
+    protected void startPage(PDPage page) throws IOException {
+        closeLine();
+        if (pageCount + 1 >= pageLineOffsets.length) {
+            pageLineOffsets = Arrays.copyOf(pageLineOffsets, pageLineOffsets.length * 2);
+            pageIndices = Arrays.copyOf(pageIndices, pageIndices.length * 2);
+            pageGlyphOffsets = Arrays.copyOf(pageGlyphOffsets, pageGlyphOffsets.length * 2);
+        }
+        pageGlyphOffsets[pageCount] = yPositions.size();
+        // Pages without content streams are never visited, so keep the real page index
+        pageIndices[pageCount] = getCurrentPageNo() - 1;
+        pageLineOffsets[pageCount++] = lineTops.size();
+    }
+
+    @Override
+    protected void endPage(PDPage page) throws IOException {
+        closeLine();
+        pageLineOffsets[pageCount] = lineTops.size();
+        pageGlyphOffsets[pageCount] = yPositions.size();
+    }
+
+    @Override
+    protected void processTextPosition(TextPosition text) {
+        float y = text.getYDirAdj();
+        float height = text.getHeightDir();
+        yPositions.add(y);
+
+        if (lineOpen && Math.abs(y - lineBaseline) <= Math.max(height, 1f) * LINE_TOLERANCE) {
+            lineTop = Math.min(lineTop, y - height);
+            return;
+        }
+        closeLine();
+        lineOpen = true;
+        lineBaseline = y;
+        lineTop = y - height;
+    }
+
+    private void closeLine() {
+        if (lineOpen) {
+            lineTops.add(lineTop);
+            lineBottoms.add(lineBaseline);
+            lineOpen = false;
+        }
+    }
+
+    // Glyph Y coordinates (top-down, page relative) in content order
+    public GrowableFloatArray getYPositions() {
+        return yPositions;
+    }
+
+    // Top edge of each detected text line
+    public GrowableFloatArray getLineTops() {
+        return lineTops;
+    }
+
+    // Baseline of each detected text line
+    public GrowableFloatArray getLineBottoms() {
+        return lineBottoms;
+    }
+
+    // Number of pages visited by the last extraction
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    // Zero-based document page index of the given visited page
+    public int getPageIndex(int visitedPage) {
+        return pageIndices[visitedPage];
+    }
+
+    // Index of the first glyph of the given visited page; getPageGlyphOffset(getPageCount()) is the glyph count
+    public int getPageGlyphOffset(int visitedPage) {
+        return pageGlyphOffsets[visitedPage];
+    }
+
+    // Index of the first line of the given visited page; getPageLineOffset(getPageCount()) is the line count
+    public int getPageLineOffset(int visitedPage) {
+        return pageLineOffsets[visitedPage];
+    }
+}
@@ -0,0 +1,49 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import java.util.Arrays;
+
+// Append-only float buffer that avoids boxing every coordinate into a List<Float>
+public final class GrowableFloatArray {
+
+    private float[] values;
+    private int size;
+
+    public GrowableFloatArray() {
+        this(256);
+    }
+
+    public GrowableFloatArray(int initialCapacity) {
+        this.values = new float[Math.max(initialCapacity, 8)];
+    }
+
+    public void add(float value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length + (values.length >> 1));
+        }
+        values[size++] = value;
+    }
+
+    public float get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return values[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // Copy of the used part of the buffer
+    public float[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
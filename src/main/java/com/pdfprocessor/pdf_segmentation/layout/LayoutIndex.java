@@ -0,0 +1,78 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import java.util.Arrays;
+
+// Compact result of one layout analysis: the sorted distinct Y positions, every gap ranked from largest
+// to smallest, and the page boundaries of the detected lines. Choosing a different number of cuts only
+// reads the first k ranked gaps, so re-cutting an indexed document costs O(k log k) instead of a re-parse.
+public final class LayoutIndex {
+
+    private final float[] sortedYPositions;
+    private final int[] rankedGaps;
+    private final int pageCount;
+    private final int[] pageIndices;
+    private final int[] pageLineOffsets;
+
+    private LayoutIndex(float[] sortedYPositions, int[] rankedGaps, int pageCount, int[] pageIndices, int[] pageLineOffsets) {
+        this.sortedYPositions = sortedYPositions;
+        this.rankedGaps = rankedGaps;
+        this.pageCount = pageCount;
+        this.pageIndices = pageIndices;
+        this.pageLineOffsets = pageLineOffsets;
+    }
+
+    // Build the index from raw Y positions; the array is sorted in place. The layout may be null when
+    // the positions did not come from a page-aware extraction.
+    public static LayoutIndex build(float[] yPositions, DocumentLayout layout) {
+        int distinct = GapSelector.sortDistinct(yPositions, yPositions.length);
+        float[] sorted = Arrays.copyOf(yPositions, distinct);
+        int[] ranked = GapSelector.rankGaps(sorted, distinct);
+
+        if (layout == null) {
+            return new LayoutIndex(sorted, ranked, 0, new int[0], new int[]{0});
+        }
+        int pages = layout.getPages().size();
+        int[] pageIndices = new int[pages];
+        int[] pageLineOffsets = new int[pages + 1];
+        for (int i = 0; i < pages; i++) {
+            PageLayout page = layout.getPages().get(i);
+            pageIndices[i] = page.getPageIndex();
+            pageLineOffsets[i + 1] = pageLineOffsets[i] + page.getLineCount();
+        }
+        return new LayoutIndex(sorted, ranked, layout.getPageCount(), pageIndices, pageLineOffsets);
+    }
+
+    // Same result as GapSelector.cutPositions over the original Y positions
+    public int[] cutPositions(int cuts) {
+        int count = Math.min(Math.max(cuts, 0), rankedGaps.length);
+        int[] gapIndices = Arrays.copyOf(rankedGaps, count);
+        Arrays.sort(gapIndices);
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = Math.round(sortedYPositions[gapIndices[i]]);
+        }
+        return positions;
+    }
+
+    public int getGapCount() {
+        return rankedGaps.length;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    // Pages that contained text, with the offsets of their first line into the document's line sequence
+    public int[] getPageIndices() {
+        return pageIndices;
+    }
+
+    public int[] getPageLineOffsets() {
+        return pageLineOffsets;
+    }
+
+    // Approximate heap footprint of the index
+    public long sizeBytes() {
+        return 4L * (sortedYPositions.length + rankedGaps.length + pageIndices.length + pageLineOffsets.length);
+    }
+}
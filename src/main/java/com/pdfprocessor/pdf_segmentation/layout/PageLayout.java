@@ -0,0 +1,49 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+// Text geometry of a single page. All coordinates are top-down and relative to that page.
+public final class PageLayout {
+
+    private final int pageIndex;
+    private final float[] yPositions;
+    private final float[] lineTops;
+    private final float[] lineBottoms;
+    private final boolean text;
+
+    public PageLayout(int pageIndex, float[] yPositions, float[] lineTops, float[] lineBottoms) {
+        this(pageIndex, yPositions, lineTops, lineBottoms, yPositions.length > 0);
+    }
+
+    // text is false when the positions come from anything but glyphs, e.g. only from images
+    public PageLayout(int pageIndex, float[] yPositions, float[] lineTops, float[] lineBottoms, boolean text) {
+        this.pageIndex = pageIndex;
+        this.yPositions = yPositions;
+        this.lineTops = lineTops;
+        this.lineBottoms = lineBottoms;
+        this.text = text;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public float[] getYPositions() {
+        return yPositions;
+    }
+
+    public float[] getLineTops() {
+        return lineTops;
+    }
+
+    public float[] getLineBottoms() {
+        return lineBottoms;
+    }
+
+    public int getLineCount() {
+        return lineTops.length;
+    }
+
+    // Whether any text was found on the page; pages without are profiled from their rendering instead
+    public boolean hasText() {
+        return text;
+    }
+}
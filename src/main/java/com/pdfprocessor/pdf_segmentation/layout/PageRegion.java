@@ -0,0 +1,27 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+// Horizontal band of one page, top-down and relative to the page's crop box like PageLayout
+public final class PageRegion {
+
+    private final int pageIndex;
+    private final float top;
+    private final float bottom;
+
+    public PageRegion(int pageIndex, float top, float bottom) {
+        this.pageIndex = pageIndex;
+        this.top = top;
+        this.bottom = bottom;
+    }
+
+    public int getPageIndex() {
+        return pageIndex;
+    }
+
+    public float getTop() {
+        return top;
+    }
+
+    public float getBottom() {
+        return bottom;
+    }
+}
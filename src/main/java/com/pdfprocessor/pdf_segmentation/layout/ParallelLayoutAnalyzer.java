@@ -0,0 +1,223 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Extracts a DocumentLayout by splitting the page range into chunks that are analysed on a dedicated ForkJoinPool.
+// Every chunk opens its own document and its own stripper, so no PDFBox state is shared between threads.
+// Pages the extraction finds no text on are handed to the RasterProfileAnalyzer when its fallback is enabled.
+@Component
+public class ParallelLayoutAnalyzer {
+
+    private final ForkJoinPool pool;
+    private final int chunkPages;
+    private final int minPages;
+
+    @Autowired
+    private RasterProfileAnalyzer rasterProfileAnalyzer = RasterProfileAnalyzer.withDefaults();
+
+    public ParallelLayoutAnalyzer(@Value("${pdf.segmentation.parallel.parallelism:${pdf.segmentation.scheduler.cpu-threads:0}}") int parallelism,
+                                  @Value("${pdf.segmentation.parallel.chunk-pages:0}") int chunkPages,
+                                  @Value("${pdf.segmentation.parallel.min-pages:8}") int minPages) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.chunkPages = chunkPages;
+        this.minPages = minPages;
+    }
+
+    // Number of chunks analysed at a time, shared by all jobs
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    // Whether a document of this size is worth splitting; small documents are analysed on the calling thread
+    public boolean shouldParallelize(int pageCount) {
+        return minPages > 0 && pageCount >= minPages && pool.getParallelism() > 1;
+    }
+
+    // Rendering a page costs far more than extracting its text, so RASTER splits any document of several pages
+    public boolean shouldParallelize(int pageCount, ExtractionMode mode) {
+        if (mode == ExtractionMode.RASTER) {
+            return minPages > 0 && pageCount > 1 && pool.getParallelism() > 1;
+        }
+        return shouldParallelize(pageCount);
+    }
+
+    public DocumentLayout analyze(DocumentOpener opener, int pageCount) throws IOException {
+        return analyze(opener, pageCount, ExtractionMode.GEOMETRY);
+    }
+
+    // GEOMETRY, CONTENT_STREAM or RASTER extraction; TEXT has no page-aware form
+    public DocumentLayout analyze(DocumentOpener opener, int pageCount, ExtractionMode mode) throws IOException {
+        return analyze(opener, 0, pageCount, pageCount, mode);
+    }
+
+    // Only pages [fromPage, toPage) of a document with pageCount pages
+    public DocumentLayout analyze(DocumentOpener opener, int fromPage, int toPage, int pageCount, ExtractionMode mode) throws IOException {
+        try {
+            List<PageLayout> pages = pool.invoke(new ChunkTask(opener, fromPage, toPage, chunkSize(toPage - fromPage), mode,
+                    rasterProfileAnalyzer));
+            return new DocumentLayout(pageCount, pages);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Pages [fromPage, toPage) of an open document, extracted on the calling thread; the pages without text are
+    // then rendered on the pool when there are several, each chunk with its own document
+    public List<PageLayout> analyzeInline(PDDocument document, DocumentOpener opener, int fromPage, int toPage,
+                                          ExtractionMode mode) throws IOException {
+        List<PageLayout> pages = mode == ExtractionMode.RASTER ? List.of() : analyzePages(document, fromPage, toPage, mode);
+        if (mode != ExtractionMode.RASTER && !rasterProfileAnalyzer.isAutomatic()) {
+            return pages;
+        }
+        int[] textless = RasterProfileAnalyzer.textlessPages(document, fromPage, toPage, pages);
+        return textless.length == 0 ? pages : RasterProfileAnalyzer.merge(pages, profilePages(document, opener, textless));
+    }
+
+    // Raster profiles of the given pages of an open document; without an opener they are rendered on the calling thread
+    public List<PageLayout> profilePages(PDDocument document, DocumentOpener opener, int[] pageIndices) throws IOException {
+        if (opener == null || pageIndices.length < 2 || pool.getParallelism() < 2) {
+            return rasterProfileAnalyzer.profilePages(document, pageIndices);
+        }
+        try {
+            return pool.invoke(new RasterTask(opener, pageIndices, chunkSize(pageIndices.length), rasterProfileAnalyzer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Analyse the given pages of an already open document on the calling thread
+    public static List<PageLayout> analyzePages(PDDocument document, int fromPage, int toPage) throws IOException {
+        return analyzePages(document, fromPage, toPage, ExtractionMode.GEOMETRY);
+    }
+
+    // Extraction alone: pages without text are not profiled, except that RASTER profiles every page with default settings
+    public static List<PageLayout> analyzePages(PDDocument document, int fromPage, int toPage, ExtractionMode mode) throws IOException {
+        return analyzePages(document, fromPage, toPage, mode, null);
+    }
+
+    // With a raster analyzer whose fallback is enabled, pages without text are profiled from their rendering
+    public static List<PageLayout> analyzePages(PDDocument document, int fromPage, int toPage, ExtractionMode mode,
+                                                RasterProfileAnalyzer raster) throws IOException {
+        if (mode == ExtractionMode.RASTER) {
+            RasterProfileAnalyzer analyzer = raster != null ? raster : RasterProfileAnalyzer.withDefaults();
+            return analyzer.profilePages(document, RasterProfileAnalyzer.textlessPages(document, fromPage, toPage, List.of()));
+        }
+        List<PageLayout> pages = extractPages(document, fromPage, toPage, mode);
+        if (raster == null || !raster.isAutomatic()) {
+            return pages;
+        }
+        int[] textless = RasterProfileAnalyzer.textlessPages(document, fromPage, toPage, pages);
+        return textless.length == 0 ? pages : RasterProfileAnalyzer.merge(pages, raster.profilePages(document, textless));
+    }
+
+    private static List<PageLayout> extractPages(PDDocument document, int fromPage, int toPage, ExtractionMode mode) throws IOException {
+        if (mode == ExtractionMode.CONTENT_STREAM) {
+            return ContentStreamScanner.scanPages(document, fromPage, toPage);
+        }
+        GeometryTextStripper stripper = new GeometryTextStripper();
+        stripper.setStartPage(fromPage + 1);
+        stripper.setEndPage(toPage);
+        stripper.extract(document);
+        return stripper.toPageLayouts();
+    }
+
+    // Each chunk pays for one document open, so aim for a few chunks per worker rather than one per page
+    private int chunkSize(int pageCount) {
+        if (chunkPages > 0) {
+            return chunkPages;
+        }
+        int chunks = pool.getParallelism() * 2;
+        return Math.max(1, (pageCount + chunks - 1) / chunks);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static class ChunkTask extends RecursiveTask<List<PageLayout>> {
+        private final DocumentOpener opener;
+        private final int fromPage;
+        private final int toPage;
+        private final int chunkSize;
+        private final ExtractionMode mode;
+        private final RasterProfileAnalyzer raster;
+
+        ChunkTask(DocumentOpener opener, int fromPage, int toPage, int chunkSize, ExtractionMode mode, RasterProfileAnalyzer raster) {
+            this.opener = opener;
+            this.fromPage = fromPage;
+            this.toPage = toPage;
+            this.chunkSize = chunkSize;
+            this.mode = mode;
+            this.raster = raster;
+        }
+
+        @Override
+        protected List<PageLayout> compute() {
+            if (toPage - fromPage <= chunkSize) {
+                // A chunk only parses its own pages
+                try (PDDocument document = opener.open(fromPage, toPage)) {
+                    return analyzePages(document, fromPage, toPage, mode, raster);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            int middle = (fromPage + toPage) >>> 1;
+            ChunkTask upper = new ChunkTask(opener, fromPage, middle, chunkSize, mode, raster);
+            ChunkTask lower = new ChunkTask(opener, middle, toPage, chunkSize, mode, raster);
+            upper.fork();
+            List<PageLayout> lowerPages = lower.compute();
+            List<PageLayout> pages = new ArrayList<>(upper.join());
+            pages.addAll(lowerPages);
+            return pages;
+        }
+    }
+
+    // Renders a list of pages, which need not be contiguous; a chunk opens the pages from its first to its last
+    private static class RasterTask extends RecursiveTask<List<PageLayout>> {
+        private final DocumentOpener opener;
+        private final int[] pageIndices;
+        private final int chunkSize;
+        private final RasterProfileAnalyzer raster;
+
+        RasterTask(DocumentOpener opener, int[] pageIndices, int chunkSize, RasterProfileAnalyzer raster) {
+            this.opener = opener;
+            this.pageIndices = pageIndices;
+            this.chunkSize = chunkSize;
+            this.raster = raster;
+        }
+
+        @Override
+        protected List<PageLayout> compute() {
+            if (pageIndices.length <= chunkSize) {
+                try (PDDocument document = opener.open(pageIndices[0], pageIndices[pageIndices.length - 1] + 1)) {
+                    return raster.profilePages(document, pageIndices);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            int middle = pageIndices.length >>> 1;
+            RasterTask upper = new RasterTask(opener, Arrays.copyOfRange(pageIndices, 0, middle), chunkSize, raster);
+            RasterTask lower = new RasterTask(opener, Arrays.copyOfRange(pageIndices, middle, pageIndices.length), chunkSize, raster);
+            upper.fork();
+            List<PageLayout> lowerPages = lower.compute();
+            List<PageLayout> pages = new ArrayList<>(upper.join());
+            pages.addAll(lowerPages);
+            return pages;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+// Layout of pages without text (scans, pages of vector drawings) from their rendering: every page is rendered in
+// grayscale at a low resolution, the dark pixels of every pixel row are counted, and runs of rows with ink become
+// bands. A band is recorded like a line of text, with its bottom as the baseline, so gaps are ranked the same way
+// as for the text modes. Taller bands are sampled like images in ContentStreamScanner, so no gap is found inside
+// a picture.
+//
+// Memory stays bounded whatever the page size: a page is rendered in horizontal tiles of at most maxTilePixels
+// pixels into a buffer that belongs to the thread and is reused for every page it renders. Each tile replays the
+// page's content stream, so at the default resolution a typical page fits a single tile.
+@Component
+public class RasterProfileAnalyzer {
+
+    // Bands are recorded as occupied Y positions this far apart so no gap is found inside them
+    private static final float BAND_STEP = 4f;
+    private static final int MAX_BAND_SAMPLES = 256;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private final boolean automatic;
+    private final float scale;
+    private final int inkThreshold;
+    private final float minInkFraction;
+    private final int maxTilePixels;
+
+    public RasterProfileAnalyzer(@Value("${pdf.segmentation.raster.auto:true}") boolean automatic,
+                                 @Value("${pdf.segmentation.raster.dpi:50}") float dpi,
+                                 @Value("${pdf.segmentation.raster.ink-threshold:192}") int inkThreshold,
+                                 @Value("${pdf.segmentation.raster.min-ink-fraction:0.005}") float minInkFraction,
+                                 @Value("${pdf.segmentation.raster.max-tile-pixels:262144}") int maxTilePixels) {
+        if (dpi <= 0 || inkThreshold < 1 || inkThreshold > 256 || minInkFraction < 0 || maxTilePixels <= 0) {
+            throw new IllegalArgumentException("Invalid raster profile settings");
+        }
+        this.automatic = automatic;
+        this.scale = dpi / 72f;
+        this.inkThreshold = inkThreshold;
+        this.minInkFraction = minInkFraction;
+        this.maxTilePixels = maxTilePixels;
+    }
+
+    // The settings used when nothing is configured, e.g. outside the application context
+    public static RasterProfileAnalyzer withDefaults() {
+        return new RasterProfileAnalyzer(true, 50, 192, 0.005f, 262144);
+    }
+
+    // Whether the text modes fall back to raster profiles for pages without text
+    public boolean isAutomatic() {
+        return automatic;
+    }
+
+    // Everything that changes the profiles, for cache keys
+    public String describe() {
+        return (automatic ? "auto" : "off") + "@" + scale * 72f + "dpi/" + inkThreshold + "/" + minInkFraction;
+    }
+
+    // Profile the given pages of the document on the calling thread
+    public List<PageLayout> profilePages(PDDocument document, int[] pageIndices) throws IOException {
+        PDFRenderer renderer = new PDFRenderer(document);
+        // Images are drawn far below their resolution, so they may be decoded at a fraction of it
+        renderer.setSubsamplingAllowed(true);
+        Buffers buffers = BUFFERS.get();
+        List<PageLayout> pages = new ArrayList<>(pageIndices.length);
+        for (int pageIndex : pageIndices) {
+            pages.add(profile(renderer, document.getPage(pageIndex), pageIndex, buffers));
+        }
+        return pages;
+    }
+
+    private PageLayout profile(PDFRenderer renderer, PDPage page, int pageIndex, Buffers buffers) throws IOException {
+        PDRectangle cropBox = page.getCropBox();
+        boolean rotated = page.getRotation() % 180 != 0;
+        int width = Math.max(1, Math.round((rotated ? cropBox.getHeight() : cropBox.getWidth()) * scale));
+        int height = Math.max(1, Math.round((rotated ? cropBox.getWidth() : cropBox.getHeight()) * scale));
+        int tileRows = Math.max(1, Math.min(height, maxTilePixels / width));
+
+        BufferedImage tile = buffers.tile(width, tileRows);
+        int[] ink = buffers.profile(height);
+        for (int top = 0; top < height; top += tileRows) {
+            int rows = Math.min(tileRows, height - top);
+            Graphics2D graphics = tile.createGraphics();
+            try {
+                graphics.setBackground(Color.WHITE);
+                graphics.clearRect(0, 0, tile.getWidth(), tile.getHeight());
+                graphics.clipRect(0, 0, width, rows);
+                graphics.translate(0, -top);
+                renderer.renderPageToGraphics(pageIndex, graphics, scale);
+            } finally {
+                graphics.dispose();
+            }
+            countInk(tile, width, rows, ink, top);
+        }
+        return bands(pageIndex, ink, width, height);
+    }
+
+    // Number of pixels darker than the threshold in each of the first rows of the tile
+    private void countInk(BufferedImage tile, int width, int rows, int[] ink, int firstRow) {
+        byte[] pixels = ((DataBufferByte) tile.getRaster().getDataBuffer()).getData();
+        int stride = tile.getWidth();
+        int threshold = inkThreshold;
+        for (int row = 0; row < rows; row++) {
+            int offset = row * stride;
+            int end = offset + width;
+            int count = 0;
+            for (int i = offset; i < end; i++) {
+                // 1 when the gray level is below the threshold, without a branch
+                count += ((pixels[i] & 0xFF) - threshold) >>> 31;
+            }
+            ink[firstRow + row] = count;
+        }
+    }
+
+    private PageLayout bands(int pageIndex, int[] ink, int width, int height) {
+        int minInk = Math.max(1, Math.round(width * minInkFraction));
+        GrowableFloatArray yPositions = new GrowableFloatArray();
+        GrowableFloatArray lineTops = new GrowableFloatArray();
+        GrowableFloatArray lineBottoms = new GrowableFloatArray();
+        int row = 0;
+        while (row < height) {
+            if (ink[row] < minInk) {
+                row++;
+                continue;
+            }
+            int first = row;
+            while (row < height && ink[row] >= minInk) {
+                row++;
+            }
+            // Same coordinates as the text modes: points, top-down, relative to the top of the page
+            float top = first / scale;
+            float bottom = row / scale;
+            int samples = Math.min(MAX_BAND_SAMPLES, Math.max(1, (int) Math.ceil((bottom - top) / BAND_STEP)));
+            for (int i = 1; i <= samples; i++) {
+                yPositions.add(top + (bottom - top) * i / samples);
+            }
+            lineTops.add(top);
+            lineBottoms.add(bottom);
+        }
+        return new PageLayout(pageIndex, yPositions.toArray(), lineTops.toArray(), lineBottoms.toArray(), false);
+    }
+
+    // Pages of [fromPage, toPage) that have content but no text in the analysed pages; like the text strippers,
+    // pages without content are skipped
+    public static int[] textlessPages(PDDocument document, int fromPage, int toPage, List<PageLayout> pages) {
+        BitSet withText = new BitSet();
+        for (PageLayout page : pages) {
+            if (page.hasText()) {
+                withText.set(page.getPageIndex());
+            }
+        }
+        return textlessPages(document, fromPage, toPage, withText);
+    }
+
+    public static int[] textlessPages(PDDocument document, int fromPage, int toPage, BitSet withText) {
+        int[] textless = new int[toPage - fromPage];
+        int count = 0;
+        for (int page = fromPage; page < toPage; page++) {
+            if (!withText.get(page) && document.getPage(page).hasContents()) {
+                textless[count++] = page;
+            }
+        }
+        return Arrays.copyOf(textless, count);
+    }
+
+    // The analysed pages with the layouts of profiled pages replaced by their profiles, in page order
+    public static List<PageLayout> merge(List<PageLayout> pages, List<PageLayout> profiles) {
+        BitSet profiled = new BitSet();
+        for (PageLayout profile : profiles) {
+            profiled.set(profile.getPageIndex());
+        }
+        List<PageLayout> merged = new ArrayList<>(pages.size() + profiles.size());
+        for (PageLayout page : pages) {
+            if (!profiled.get(page.getPageIndex())) {
+                merged.add(page);
+            }
+        }
+        merged.addAll(profiles);
+        merged.sort(Comparator.comparingInt(PageLayout::getPageIndex));
+        return merged;
+    }
+
+    // A thread's tile and row profile, grown when a page needs more and otherwise reused
+    private static final class Buffers {
+        private BufferedImage tile;
+        private int[] profile = new int[0];
+
+        BufferedImage tile(int width, int rows) {
+            if (tile == null || tile.getWidth() < width || tile.getHeight() < rows) {
+                tile = new BufferedImage(width, rows, BufferedImage.TYPE_BYTE_GRAY);
+            }
+            return tile;
+        }
+
+        int[] profile(int rows) {
+            if (profile.length < rows) {
+                profile = new int[rows];
+            }
+            return profile;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Places cuts window by window so segments can be written before the rest of the document is read.
+// Gaps are measured on each page between blocks of overlapping lines, and across page breaks as the
+// whitespace below the last block plus the whitespace above the next one, so positions from different
+// pages are never compared as if they shared one coordinate system. Every window receives the share of
+// the cuts that matches its share of the pages; a window with fewer gaps than its share passes the rest
+// on to the next window. Only the open segment is held between windows.
+public final class StreamingCutPlanner {
+
+    private final int firstPage;
+    private final int pageCount;
+    private final int cuts;
+    private int cutsMade;
+
+    // Whitespace below the last block seen so far; negative until the first block
+    private float whitespaceSinceContent = -1;
+    private List<PageRegion> openSegment = new ArrayList<>();
+
+    // Candidate gaps of the current window, in document order
+    private int[] candidatePages = new int[64];
+    private final GrowableFloatArray candidateYs = new GrowableFloatArray(64);
+    private final GrowableFloatArray candidateSizes = new GrowableFloatArray(64);
+
+    public StreamingCutPlanner(int pageCount, int cuts) {
+        this(0, pageCount, cuts);
+    }
+
+    // Plans the pageCount pages starting at firstPage; windows use document page indices
+    public StreamingCutPlanner(int firstPage, int pageCount, int cuts) {
+        this.firstPage = firstPage;
+        this.pageCount = pageCount;
+        this.cuts = cuts;
+    }
+
+    // Add pages [fromPage, toPage). layouts holds the analysed pages of the window in page order (pages
+    // without content may be missing) and pageHeights the height of every page of the window.
+    // Returns the segments completed by this window.
+    public List<List<PageRegion>> addWindow(int fromPage, int toPage, List<PageLayout> layouts, float[] pageHeights) {
+        candidateYs.clear();
+        candidateSizes.clear();
+        int layoutIndex = 0;
+        for (int page = fromPage; page < toPage; page++) {
+            float height = pageHeights[page - fromPage];
+            PageLayout layout = null;
+            if (layoutIndex < layouts.size() && layouts.get(layoutIndex).getPageIndex() == page) {
+                layout = layouts.get(layoutIndex++);
+            }
+            addPageGaps(page, height, layout);
+        }
+
+        // This window's share of the cuts, plus whatever earlier windows could not place
+        int target = (int) Math.round((double) (toPage - firstPage) * cuts / Math.max(pageCount, 1));
+        int budget = Math.min(target, cuts) - cutsMade;
+        int[] chosen = choose(budget);
+        cutsMade += chosen.length;
+
+        List<List<PageRegion>> completed = new ArrayList<>();
+        int next = 0;
+        for (int page = fromPage; page < toPage; page++) {
+            float height = pageHeights[page - fromPage];
+            float top = 0;
+            while (next < chosen.length && candidatePages[chosen[next]] == page) {
+                float y = candidateYs.get(chosen[next++]);
+                if (y > top) {
+                    openSegment.add(new PageRegion(page, top, y));
+                }
+                completed.add(openSegment);
+                openSegment = new ArrayList<>();
+                top = y;
+            }
+            if (height > top) {
+                openSegment.add(new PageRegion(page, top, height));
+            }
+        }
+        return completed;
+    }
+
+    // The last segment, once every page was added; null for a document without pages
+    public List<PageRegion> finish() {
+        List<PageRegion> last = openSegment.isEmpty() ? null : openSegment;
+        openSegment = new ArrayList<>();
+        return last;
+    }
+
+    public int getCutsMade() {
+        return cutsMade;
+    }
+
+    private void addPageGaps(int page, float height, PageLayout layout) {
+        int lines = layout != null ? layout.getLineCount() : 0;
+        if (lines == 0) {
+            if (whitespaceSinceContent >= 0) {
+                whitespaceSinceContent += height;
+            }
+            return;
+        }
+
+        // Merge overlapping lines into blocks, walking the lines from the top of the page
+        float[] tops = layout.getLineTops();
+        float[] bottoms = layout.getLineBottoms();
+        int[] order = orderByTop(tops, lines);
+        float blockTop = clamp(tops[order[0]], height);
+        float blockBottom = clamp(bottoms[order[0]], height);
+        if (whitespaceSinceContent >= 0) {
+            // Cutting at the page break ends the segment with the previous page
+            addCandidate(page, 0, whitespaceSinceContent + blockTop);
+        }
+        for (int i = 1; i < lines; i++) {
+            float top = clamp(tops[order[i]], height);
+            float bottom = clamp(bottoms[order[i]], height);
+            if (top > blockBottom) {
+                addCandidate(page, (blockBottom + top) / 2, top - blockBottom);
+                blockTop = top;
+                blockBottom = bottom;
+            } else {
+                blockBottom = Math.max(blockBottom, bottom);
+            }
+        }
+        whitespaceSinceContent = Math.max(0, height - blockBottom);
+    }
+
+    private void addCandidate(int page, float y, float size) {
+        int index = candidateYs.size();
+        if (index == candidatePages.length) {
+            candidatePages = Arrays.copyOf(candidatePages, index * 2);
+        }
+        candidatePages[index] = page;
+        candidateYs.add(y);
+        candidateSizes.add(size);
+    }
+
+    // Indices of the budget largest candidates in document order; equal gaps prefer the earlier one
+    private int[] choose(int budget) {
+        int count = candidateSizes.size();
+        int size = Math.max(0, Math.min(budget, count));
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            long inverseGap = Integer.MAX_VALUE - Float.floatToIntBits(candidateSizes.get(i));
+            keys[i] = (inverseGap << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] chosen = new int[size];
+        for (int i = 0; i < size; i++) {
+            chosen[i] = (int) keys[i];
+        }
+        Arrays.sort(chosen);
+        return chosen;
+    }
+
+    // Line indices sorted by their top; tops may be negative for text above the crop box
+    private static int[] orderByTop(float[] tops, int lines) {
+        long[] keys = new long[lines];
+        for (int i = 0; i < lines; i++) {
+            int bits = Float.floatToIntBits(tops[i]);
+            bits ^= (bits >> 31) & Integer.MAX_VALUE;
+            keys[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+
+    private static float clamp(float y, float height) {
+        return Math.max(0, Math.min(y, height));
+    }
+}
@@ -0,0 +1,135 @@
+package com.pdfprocessor.pdf_segmentation.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+// Micrometer meters for the segmentation pipeline:
+//   pdf.segmentation.stage            timer per stage (tag "stage"); percentiles are configured in application.properties
+//   pdf.segmentation.stage.allocated  bytes allocated by the calling thread during a stage
+//   pdf.segmentation.job.pages        pages analysed per job
+//   pdf.segmentation.job.bytes        bytes read and written per job (tag "direction" = in/out)
+// Stages also add to the StageTimings of the current request when the controller opened one.
+@Component
+public class SegmentationMetrics {
+
+    public static final String STAGE_TIMER = "pdf.segmentation.stage";
+    public static final String STAGE_ALLOCATED = "pdf.segmentation.stage.allocated";
+    public static final String JOB_PAGES = "pdf.segmentation.job.pages";
+    public static final String JOB_BYTES = "pdf.segmentation.job.bytes";
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = allocationCountingThreadMXBean();
+
+    private final ThreadLocal<StageTimings> currentRequest = new ThreadLocal<>();
+    private final MeterRegistry registry;
+    private final DistributionSummary jobPages;
+    private final DistributionSummary jobBytesIn;
+    private final DistributionSummary jobBytesOut;
+
+    @Autowired
+    public SegmentationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.jobPages = DistributionSummary.builder(JOB_PAGES)
+                .description("Pages analysed per segmentation job")
+                .register(registry);
+        this.jobBytesIn = DistributionSummary.builder(JOB_BYTES)
+                .description("Bytes read and written per segmentation job")
+                .baseUnit("bytes")
+                .tag("direction", "in")
+                .register(registry);
+        this.jobBytesOut = DistributionSummary.builder(JOB_BYTES)
+                .description("Bytes read and written per segmentation job")
+                .baseUnit("bytes")
+                .tag("direction", "out")
+                .register(registry);
+    }
+
+    // Time a stage: try (SegmentationMetrics.Stage stage = metrics.stage("load")) { ... }
+    public Stage stage(String name) {
+        return new Stage(name);
+    }
+
+    // Collect the stages run by this thread until endRequest; used for the Server-Timing header
+    public StageTimings beginRequest() {
+        StageTimings timings = new StageTimings();
+        currentRequest.set(timings);
+        return timings;
+    }
+
+    public void endRequest() {
+        currentRequest.remove();
+    }
+
+    // The request this thread is collecting stages for, or null
+    public StageTimings currentRequest() {
+        return currentRequest.get();
+    }
+
+    // Continue collecting stages of a request on another thread; endRequest detaches again
+    public void joinRequest(StageTimings timings) {
+        if (timings == null) {
+            currentRequest.remove();
+        } else {
+            currentRequest.set(timings);
+        }
+    }
+
+    public void recordJob(int pages, long bytesIn, long bytesOut) {
+        jobPages.record(pages);
+        jobBytesIn.record(bytesIn);
+        jobBytesOut.record(bytesOut);
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCountingThreadMXBean() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+                && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+            return bean;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_MX_BEAN != null ? THREAD_MX_BEAN.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    public class Stage implements AutoCloseable {
+        private final String name;
+        private final long startedAt;
+        private final long allocatedAtStart;
+
+        private Stage(String name) {
+            this.name = name;
+            this.allocatedAtStart = allocatedBytes();
+            this.startedAt = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long elapsed = System.nanoTime() - startedAt;
+            Timer.builder(STAGE_TIMER)
+                    .description("Time spent in each stage of the segmentation pipeline")
+                    .tag("stage", name)
+                    .register(registry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+            // Only the calling thread is counted; work fanned out to the layout pool is not included
+            if (THREAD_MX_BEAN != null) {
+                DistributionSummary.builder(STAGE_ALLOCATED)
+                        .description("Bytes allocated by the calling thread in each stage")
+                        .baseUnit("bytes")
+                        .tag("stage", name)
+                        .register(registry)
+                        .record(allocatedBytes() - allocatedAtStart);
+            }
+
+            StageTimings timings = currentRequest.get();
+            if (timings != null) {
+                timings.add(name, elapsed);
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.pdfprocessor.pdf_segmentation.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Stage durations of a single request, in the order the stages first ran. A stage that runs more than
+// once (e.g. per segment) accumulates. Stages of one request may run on different pool threads.
+public class StageTimings {
+
+    private final Map<String, Long> nanos = new LinkedHashMap<>();
+    private final long startedAt = System.nanoTime();
+
+    synchronized void add(String stage, long elapsedNanos) {
+        nanos.merge(stage, elapsedNanos, Long::sum);
+    }
+
+    public synchronized Map<String, Long> getNanos() {
+        return new LinkedHashMap<>(nanos);
+    }
+
+    // Server-Timing header value, e.g. "load;dur=3.2, analyze;dur=41.0, total;dur=52.7" (milliseconds)
+    public synchronized String toServerTiming() {
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, Long> entry : nanos.entrySet()) {
+            appendMetric(header, entry.getKey(), entry.getValue());
+        }
+        appendMetric(header, "total", System.nanoTime() - startedAt);
+        return header.toString();
+    }
+
+    private static void appendMetric(StringBuilder header, String name, long elapsedNanos) {
+        if (header.length() > 0) {
+            header.append(", ");
+        }
+        header.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.1f", elapsedNanos / 1_000_000.0));
+    }
+}
@@ -0,0 +1,275 @@
+package com.pdfprocessor.pdf_segmentation.scheduler;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Admits PDF work against a heap budget. Each request reserves an estimate of the memory it will need,
+// derived from its file size and page count, and releases it when done; requests that would exceed the
+// budget are refused so the caller can answer 429 instead of queueing work the heap cannot hold.
+@Component
+public class MemoryAdmission {
+
+    private final long budgetBytes;
+    private final long bytesPerFileByte;
+    private final long bytesPerPage;
+    private final long bytesPerEstimatedPage;
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public MemoryAdmission(@Value("${pdf.segmentation.admission.max-memory-bytes:0}") long maxMemoryBytes,
+                           @Value("${pdf.segmentation.admission.bytes-per-file-byte:3}") long bytesPerFileByte,
+                           @Value("${pdf.segmentation.admission.bytes-per-page:131072}") long bytesPerPage,
+                           @Value("${pdf.segmentation.admission.file-bytes-per-page:20480}") long bytesPerEstimatedPage) {
+        // Default to half the heap; the rest is left for Tomcat, caches and the JVM
+        this.budgetBytes = maxMemoryBytes > 0 ? maxMemoryBytes : Runtime.getRuntime().maxMemory() / 2;
+        this.bytesPerFileByte = bytesPerFileByte;
+        this.bytesPerPage = bytesPerPage;
+        this.bytesPerEstimatedPage = Math.max(bytesPerEstimatedPage, 1);
+    }
+
+    // Reserve the estimate, or return null when the budget is exhausted. A request larger than the whole
+    // budget is still admitted when nothing else is running, otherwise it could never run at all.
+    public Permit tryAdmit(long fileSize, int pageCount) {
+        return tryAdmitBytes(estimate(fileSize, pageCount));
+    }
+
+    public Permit tryAdmitBytes(long estimate) {
+        while (true) {
+            long reserved = reservedBytes.get();
+            if (reserved > 0 && reserved + estimate > budgetBytes) {
+                rejected.incrementAndGet();
+                return null;
+            }
+            if (reservedBytes.compareAndSet(reserved, reserved + estimate)) {
+                return new Permit(estimate);
+            }
+        }
+    }
+
+    // Parsed object graph grows with the file size, page objects and their resources with the page count.
+    // When the page count is unknown (< 0) it is guessed from the file size.
+    public long estimate(long fileSize, int pageCount) {
+        long pages = pageCount >= 0 ? pageCount : Math.max(1, fileSize / bytesPerEstimatedPage);
+        return fileSize * bytesPerFileByte + pages * bytesPerPage;
+    }
+
+    // Cheap page count without parsing: the /Count of the page tree root, the /Type /Pages dictionary without a
+    // /Parent. Other dictionaries with a /Count, such as outlines and intermediate page tree nodes, are ignored and
+    // stream data is skipped. When an incremental update rewrote the root, the last one wins. Returns -1 when no
+    // root is visible, e.g. when objects are compressed into object streams.
+    public static int scanPageCount(InputStream in) throws IOException {
+        PageTreeScanner scanner = new PageTreeScanner();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            for (int i = 0; i < read; i++) {
+                scanner.accept(buffer[i]);
+            }
+        }
+        return scanner.pageCount > 0 ? scanner.pageCount : -1;
+    }
+
+    public long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    // Released exactly once, however many times it is closed
+    public class Permit implements AutoCloseable {
+        private final long bytes;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                reservedBytes.addAndGet(-bytes);
+            }
+        }
+    }
+
+    // Just enough of a PDF tokenizer to follow the keys of top-level dictionaries, fed one byte at a time
+    private static final class PageTreeScanner {
+        private static final byte[] END_STREAM = "endstream".getBytes(StandardCharsets.US_ASCII);
+        private static final int MAX_TOKEN = 16;
+
+        private final byte[] token = new byte[MAX_TOKEN];
+        private int tokenLength = -1;
+        private boolean tokenIsName;
+
+        private int dictionaryDepth;
+        private int stringDepth;
+        private boolean escaped;
+        private boolean hexString;
+        private boolean comment;
+        private boolean lessThan;
+        private boolean greaterThan;
+        private int endStreamMatched = -1;
+
+        // Keys of the current top-level dictionary
+        private String expecting;
+        private boolean pagesType;
+        private boolean hasParent;
+        private int count = -1;
+
+        int pageCount = -1;
+
+        void accept(byte b) {
+            if (endStreamMatched >= 0) {
+                endStreamMatched = b == END_STREAM[endStreamMatched] ? endStreamMatched + 1 : (b == END_STREAM[0] ? 1 : 0);
+                if (endStreamMatched == END_STREAM.length) {
+                    endStreamMatched = -1;
+                }
+                return;
+            }
+            if (comment) {
+                comment = b != '\r' && b != '\n';
+                return;
+            }
+            if (stringDepth > 0) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '(') {
+                    stringDepth++;
+                } else if (b == ')') {
+                    stringDepth--;
+                }
+                return;
+            }
+            if (hexString) {
+                hexString = b != '>';
+                return;
+            }
+            if (lessThan) {
+                lessThan = false;
+                if (b == '<') {
+                    openDictionary();
+                } else {
+                    // A single < opens a hex string
+                    hexString = b != '>';
+                }
+                return;
+            }
+            if (greaterThan) {
+                greaterThan = false;
+                if (b == '>') {
+                    closeDictionary();
+                    return;
+                }
+            }
+            boolean whitespace = b == ' ' || b == '\r' || b == '\n' || b == '\t' || b == '\f' || b == 0;
+            boolean delimiter = b == '/' || b == '<' || b == '>' || b == '(' || b == ')' || b == '[' || b == ']'
+                    || b == '{' || b == '}' || b == '%';
+            if (!whitespace && !delimiter) {
+                if (tokenLength < 0) {
+                    tokenLength = 0;
+                    tokenIsName = false;
+                }
+                if (tokenLength < MAX_TOKEN) {
+                    token[tokenLength] = b;
+                }
+                tokenLength++;
+                return;
+            }
+            endToken();
+            switch (b) {
+                case '/':
+                    tokenLength = 0;
+                    tokenIsName = true;
+                    break;
+                case '<':
+                    lessThan = true;
+                    break;
+                case '>':
+                    greaterThan = true;
+                    break;
+                case '(':
+                    stringDepth = 1;
+                    break;
+                case '%':
+                    comment = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void openDictionary() {
+            dictionaryDepth++;
+            if (dictionaryDepth == 1) {
+                expecting = null;
+                pagesType = false;
+                hasParent = false;
+                count = -1;
+            }
+        }
+
+        private void closeDictionary() {
+            if (dictionaryDepth == 1 && pagesType && !hasParent && count >= 0) {
+                pageCount = count;
+            }
+            dictionaryDepth = Math.max(0, dictionaryDepth - 1);
+        }
+
+        private void endToken() {
+            if (tokenLength < 0) {
+                return;
+            }
+            String value = tokenLength <= MAX_TOKEN ? new String(token, 0, tokenLength, StandardCharsets.US_ASCII) : "";
+            boolean name = tokenIsName;
+            tokenLength = -1;
+            if (!name && dictionaryDepth == 0 && "stream".equals(value)) {
+                endStreamMatched = 0;
+                return;
+            }
+            if (dictionaryDepth != 1) {
+                return;
+            }
+            String expected = expecting;
+            expecting = null;
+            if ("Type".equals(expected)) {
+                pagesType = name && "Pages".equals(value);
+            } else if ("Count".equals(expected) && !name && isCount(value)) {
+                count = Integer.parseInt(value);
+            } else if (name && ("Type".equals(value) || "Count".equals(value))) {
+                expecting = value;
+            } else if (name && "Parent".equals(value)) {
+                hasParent = true;
+            }
+        }
+
+        private static boolean isCount(String value) {
+            if (value.isEmpty() || value.length() > 9) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
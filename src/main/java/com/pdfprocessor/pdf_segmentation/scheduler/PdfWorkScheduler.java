@@ -0,0 +1,136 @@
+package com.pdfprocessor.pdf_segmentation.scheduler;
+
+import com.pdfprocessor.pdf_segmentation.metrics.SegmentationMetrics;
+import com.pdfprocessor.pdf_segmentation.metrics.StageTimings;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps PDF work off the servlet threads. Parsing, layout analysis, splitting and compression run on a CPU
+// pool sized to the cores; spooling uploads and other blocking file I/O run on a separate I/O executor,
+// which uses virtual threads when the JDK provides them. Tasks inherit the submitting request's stage
+// timings so the Server-Timing breakdown still covers every stage.
+@Component
+public class PdfWorkScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfWorkScheduler.class);
+
+    // A unit of work that may throw checked exceptions; failures complete the returned future exceptionally
+    @FunctionalInterface
+    public interface Work<T> {
+        T call() throws Exception;
+    }
+
+    @Autowired
+    private SegmentationMetrics segmentationMetrics;
+
+    private final ThreadPoolExecutor cpuExecutor;
+    private final ExecutorService ioExecutor;
+    private final boolean virtualThreads;
+    private final int maxQueued;
+
+    public PdfWorkScheduler(@Value("${pdf.segmentation.scheduler.cpu-threads:0}") int cpuThreads,
+                            @Value("${pdf.segmentation.scheduler.io-threads:0}") int ioThreads,
+                            @Value("${pdf.segmentation.scheduler.max-queued:0}") int maxQueued) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int cpuPoolSize = cpuThreads > 0 ? cpuThreads : cores;
+        // The queue itself is unbounded: admission (isSaturated) rejects new requests, while work that
+        // belongs to an admitted request, such as the files of a batch, is always accepted
+        this.cpuExecutor = new ThreadPoolExecutor(cpuPoolSize, cpuPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), namedThreads("pdf-cpu-"));
+        this.maxQueued = maxQueued > 0 ? maxQueued : 4 * cpuPoolSize;
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.ioExecutor = virtual;
+        } else {
+            int ioPoolSize = ioThreads > 0 ? ioThreads : 4 * cores;
+            this.ioExecutor = new ThreadPoolExecutor(ioPoolSize, ioPoolSize, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), namedThreads("pdf-io-"));
+        }
+        log.info("PDF work scheduler: {} CPU threads, I/O on {}", cpuPoolSize,
+                virtualThreads ? "virtual threads" : "a pool of platform threads");
+    }
+
+    public <T> CompletableFuture<T> submitCpu(Work<T> work) {
+        return submit(cpuExecutor, work);
+    }
+
+    public <T> CompletableFuture<T> submitIo(Work<T> work) {
+        return submit(ioExecutor, work);
+    }
+
+    // For services that schedule their own CPU-bound tasks, such as the batch writer
+    public Executor cpuExecutor() {
+        return cpuExecutor;
+    }
+
+    // True when enough CPU work is already waiting that a new request would only add latency
+    public boolean isSaturated() {
+        return cpuExecutor.getQueue().size() >= maxQueued;
+    }
+
+    public int getCpuQueueDepth() {
+        return cpuExecutor.getQueue().size();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    private <T> CompletableFuture<T> submit(Executor executor, Work<T> work) {
+        StageTimings timings = segmentationMetrics.currentRequest();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            segmentationMetrics.joinRequest(timings);
+            try {
+                // Completing inside the joined scope lets dependent stages submitted from here inherit the timings
+                future.complete(work.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                segmentationMetrics.endRequest();
+            }
+        });
+        return future;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() exists from Java 21 (earlier as a preview); looked up
+    // reflectively so the application still runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cpuExecutor.shutdownNow();
+        ioExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,58 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import java.util.List;
+
+// One line of a batch manifest: how a single file of the batch was segmented, or why it was not
+public class BatchFileResult {
+
+    public enum Status {
+        COMPLETED, FAILED
+    }
+
+    private final String fileName;
+    private final int cuts;
+    private final Status status;
+    private final int segmentCount;
+    private final List<String> entries;
+    private final String error;
+    private final long elapsedMillis;
+
+    BatchFileResult(String fileName, int cuts, Status status, List<String> entries, String error, long elapsedMillis) {
+        this.fileName = fileName;
+        this.cuts = cuts;
+        this.status = status;
+        this.segmentCount = entries.size();
+        this.entries = entries;
+        this.error = error;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getCuts() {
+        return cuts;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    // Paths of the file's segments inside the combined ZIP
+    public List<String> getEntries() {
+        return entries;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,221 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfprocessor.pdf_segmentation.archive.ZipArchive;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.scheduler.MemoryAdmission;
+import com.pdfprocessor.pdf_segmentation.scheduler.PdfWorkScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Segments the files of a batch concurrently on the scheduler's CPU pool and writes all segments
+// into one ZIP, in the order the files finish, followed by a manifest.json with one result per file.
+// A failing file is recorded in the manifest and does not affect the others. Each batch keeps at most
+// max-in-flight files in progress, which bounds the segments held in memory before they are written.
+@Service
+public class BatchSegmentationService {
+
+    public static final String MANIFEST_ENTRY = "manifest.json";
+
+    private static final Logger log = LoggerFactory.getLogger(BatchSegmentationService.class);
+
+    @Autowired
+    private PdfSegmentationService pdfSegmentationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PdfWorkScheduler pdfWorkScheduler;
+
+    @Autowired
+    private MemoryAdmission memoryAdmission;
+
+    private final int maxInFlight;
+    private final int maxFiles;
+    private final Path workRoot;
+
+    public BatchSegmentationService(@Value("${pdf.segmentation.batch.max-in-flight:0}") int maxInFlight,
+                                    @Value("${pdf.segmentation.batch.max-files:500}") int maxFiles,
+                                    @Value("${pdf.segmentation.batch.work-dir:${java.io.tmpdir}/pdf-segmentation-batches}") String workDir) {
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : 2 * Runtime.getRuntime().availableProcessors();
+        this.maxFiles = maxFiles;
+        this.workRoot = Paths.get(workDir);
+    }
+
+    public SegmentationBatch newBatch() throws IOException {
+        Files.createDirectories(workRoot);
+        return new SegmentationBatch(Files.createDirectory(workRoot.resolve(UUID.randomUUID().toString())));
+    }
+
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    // Reserve memory for a spooled batch: at most maxInFlight files are parsed at once, so the cost is
+    // that of the largest maxInFlight files. Returns null when the batch has to be shed.
+    public MemoryAdmission.Permit admit(SegmentationBatch batch) throws IOException {
+        List<Long> estimates = new ArrayList<>();
+        for (SegmentationBatch.Item item : batch.items()) {
+            if (item.source != null) {
+                int pageCount;
+                try (InputStream in = Files.newInputStream(item.source.toPath())) {
+                    pageCount = MemoryAdmission.scanPageCount(in);
+                }
+                estimates.add(memoryAdmission.estimate(item.source.length(), pageCount));
+            }
+        }
+        estimates.sort(Comparator.reverseOrder());
+        long cost = 0;
+        for (int i = 0; i < Math.min(maxInFlight, estimates.size()); i++) {
+            cost += estimates.get(i);
+        }
+        return memoryAdmission.tryAdmitBytes(cost);
+    }
+
+    // Segments of a file go to "<file name without .pdf>/<segment name>"; the manifest is the last entry
+    // mode is the extraction for every file of the batch; null uses the configured mode
+    public List<BatchFileResult> run(SegmentationBatch batch, ExtractionMode mode, ZipArchive archive) throws IOException {
+        List<SegmentationBatch.Item> items = batch.items();
+        String[] folders = folderNames(items);
+        BatchFileResult[] results = new BatchFileResult[items.size()];
+
+        ExecutorCompletionService<SegmentedFile> completion = new ExecutorCompletionService<>(pdfWorkScheduler.cpuExecutor());
+        List<Future<SegmentedFile>> submitted = new ArrayList<>();
+        int next = 0;
+        int running = 0;
+        try {
+            while (next < items.size() || running > 0) {
+                while (next < items.size() && running < maxInFlight) {
+                    int index = next++;
+                    SegmentationBatch.Item item = items.get(index);
+                    if (item.error != null) {
+                        results[index] = new BatchFileResult(item.name, item.cuts, BatchFileResult.Status.FAILED,
+                                List.of(), item.error, 0);
+                        continue;
+                    }
+                    submitted.add(completion.submit(() -> segment(index, item, mode)));
+                    running++;
+                }
+                if (running == 0) {
+                    break;
+                }
+
+                SegmentedFile done = completion.take().get();
+                running--;
+                results[done.index] = write(done, items.get(done.index), folders[done.index], archive);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Batch worker failed", e.getCause());
+        } finally {
+            // Stop the remaining work when writing failed, e.g. because the client went away
+            submitted.forEach(future -> future.cancel(true));
+        }
+
+        archive.addEntry(MANIFEST_ENTRY, objectMapper.writeValueAsBytes(results));
+        return Arrays.asList(results);
+    }
+
+    // Runs on the worker pool; never throws so one file cannot fail the batch
+    private SegmentedFile segment(int index, SegmentationBatch.Item item, ExtractionMode mode) {
+        long start = System.nanoTime();
+        CollectingSegmentSink sink = new CollectingSegmentSink();
+        try {
+            // Batch files are only delivered in the ZIP; kept under their bare names they would overwrite each other
+            pdfSegmentationService.segmentDetached(item.source, item.cuts, mode, sink);
+            return new SegmentedFile(index, sink, null, elapsedMillis(start));
+        } catch (Exception e) {
+            log.warn("Batch file {} failed: {}", item.name, e.getMessage());
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new SegmentedFile(index, null, error, elapsedMillis(start));
+        }
+    }
+
+    private BatchFileResult write(SegmentedFile done, SegmentationBatch.Item item, String folder, ZipArchive archive) throws IOException {
+        if (done.error != null) {
+            return new BatchFileResult(item.name, item.cuts, BatchFileResult.Status.FAILED, List.of(), done.error, done.elapsedMillis);
+        }
+        List<String> entries = new ArrayList<>(done.segments.names.size());
+        for (int i = 0; i < done.segments.names.size(); i++) {
+            String entry = folder + "/" + done.segments.names.get(i);
+            archive.addEntry(entry, done.segments.contents.get(i).toByteArray());
+            entries.add(entry);
+        }
+        return new BatchFileResult(item.name, item.cuts, BatchFileResult.Status.COMPLETED, entries, null, done.elapsedMillis);
+    }
+
+    // Folder per file inside the ZIP; repeated names get the file's position in the batch appended
+    private static String[] folderNames(List<SegmentationBatch.Item> items) {
+        String[] folders = new String[items.size()];
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < folders.length; i++) {
+            String name = items.get(i).name;
+            String folder = name.toLowerCase(Locale.ROOT).endsWith(".pdf") ? name.substring(0, name.length() - 4) : name;
+            if (folder.isEmpty() || !used.add(folder)) {
+                folder = folder + "-" + (i + 1);
+                used.add(folder);
+            }
+            folders[i] = folder;
+        }
+        return folders;
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static final class SegmentedFile {
+        final int index;
+        final CollectingSegmentSink segments;
+        final String error;
+        final long elapsedMillis;
+
+        SegmentedFile(int index, CollectingSegmentSink segments, String error, long elapsedMillis) {
+            this.index = index;
+            this.segments = segments;
+            this.error = error;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    // Keeps the segments of one file in memory until the batch writer takes them
+    private static class CollectingSegmentSink implements SegmentSink {
+        private final List<String> names = new ArrayList<>();
+        private final List<ByteArrayOutputStream> contents = new ArrayList<>();
+
+        @Override
+        public OutputStream openSegment(int index, String name) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            names.add(name);
+            contents.add(content);
+            return content;
+        }
+    }
+}
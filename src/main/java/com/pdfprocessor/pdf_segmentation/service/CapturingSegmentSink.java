@@ -0,0 +1,85 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.cache.CachedSegments;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Passes segments through to another sink while keeping a copy of their bytes for the result cache.
+// Capturing stops, and nothing is kept, once the segments exceed the byte limit.
+class CapturingSegmentSink implements SegmentSink {
+
+    private final SegmentSink delegate;
+    private final long maxBytes;
+    private final List<byte[]> captured = new ArrayList<>();
+    private long capturedBytes;
+    private boolean overflowed;
+
+    CapturingSegmentSink(SegmentSink delegate, long maxBytes) {
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void begin(int segmentCount) throws IOException {
+        delegate.begin(segmentCount);
+    }
+
+    @Override
+    public OutputStream openSegment(int index, String name) throws IOException {
+        OutputStream target = delegate.openSegment(index, name);
+        if (overflowed) {
+            return target;
+        }
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        return new FilterOutputStream(target) {
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                capture(copy, new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                capture(copy, b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                out.close();
+                if (!overflowed) {
+                    captured.add(copy.toByteArray());
+                }
+            }
+        };
+    }
+
+    private void capture(ByteArrayOutputStream copy, byte[] b, int off, int len) {
+        if (overflowed) {
+            return;
+        }
+        capturedBytes += len;
+        if (capturedBytes > maxBytes) {
+            overflowed = true;
+            captured.clear();
+            return;
+        }
+        copy.write(b, off, len);
+    }
+
+    // Captured segments, or null when they exceeded the limit
+    CachedSegments toCachedSegments() {
+        return overflowed ? null : new CachedSegments(new ArrayList<>(captured));
+    }
+}
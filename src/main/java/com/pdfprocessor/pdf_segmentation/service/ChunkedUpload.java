@@ -0,0 +1,181 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// State of a resumable upload as reported to clients. The file is preallocated to its full size and
+// chunk i covers bytes [i * chunkSize, (i + 1) * chunkSize), so chunks can arrive in any order and in
+// parallel, and a client that lost its connection asks which chunks are missing and sends only those.
+public class ChunkedUpload {
+
+    public enum Status {
+        RECEIVING, COMPLETE
+    }
+
+    private final String uploadId;
+    private final String fileName;
+    private final long size;
+    private final int chunkSize;
+    private final int chunkCount;
+    private final Instant createdAt;
+    private final File workDirectory;
+    private final FileChannel channel;
+
+    // Guarded by this
+    private final BitSet received = new BitSet();
+    private int headerOffset = -1;
+    private boolean trailerChecked;
+    private long xrefOffset = -1;
+    private boolean xrefChecked;
+    private boolean discarded;
+
+    private volatile Status status = Status.RECEIVING;
+    private volatile Instant lastActivityAt;
+
+    ChunkedUpload(String uploadId, String fileName, long size, int chunkSize, File workDirectory, FileChannel channel) {
+        this.uploadId = uploadId;
+        this.fileName = fileName;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+        this.workDirectory = workDirectory;
+        this.channel = channel;
+        this.createdAt = Instant.now();
+        this.lastActivityAt = createdAt;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public synchronized int getReceivedChunks() {
+        return received.cardinality();
+    }
+
+    // Indices of the chunks still to be sent
+    public synchronized List<Integer> getMissingChunks() {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = received.nextClearBit(0); i < chunkCount; i = received.nextClearBit(i + 1)) {
+            missing.add(i);
+        }
+        return missing;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getLastActivityAt() {
+        return lastActivityAt;
+    }
+
+    File workDirectory() {
+        return workDirectory;
+    }
+
+    File file() {
+        return new File(workDirectory, fileName);
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    long chunkOffset(int index) {
+        return (long) index * chunkSize;
+    }
+
+    int chunkLength(int index) {
+        return (int) Math.min(chunkSize, size - chunkOffset(index));
+    }
+
+    void touch() {
+        lastActivityAt = Instant.now();
+    }
+
+    // Whether every byte of [from, to) has been received
+    synchronized boolean isReceived(long from, long to) {
+        int first = (int) (from / chunkSize);
+        int last = (int) ((to - 1) / chunkSize);
+        return received.nextClearBit(first) > last;
+    }
+
+    synchronized void chunkReceived(int index) {
+        received.set(index);
+    }
+
+    synchronized boolean isAllReceived() {
+        return received.cardinality() == chunkCount;
+    }
+
+    void markComplete() {
+        status = Status.COMPLETE;
+    }
+
+    synchronized boolean isHeaderChecked() {
+        return headerOffset >= 0;
+    }
+
+    synchronized void headerChecked(int headerOffset) {
+        this.headerOffset = headerOffset;
+    }
+
+    // Bytes of junk before the header, or -1 while the first chunk has not been checked
+    synchronized int headerOffset() {
+        return headerOffset;
+    }
+
+    synchronized boolean isTrailerChecked() {
+        return trailerChecked;
+    }
+
+    synchronized void trailerChecked(long xrefOffset) {
+        this.trailerChecked = true;
+        this.xrefOffset = xrefOffset;
+    }
+
+    // Offset startxref points to, or -1 while the trailer has not been checked
+    synchronized long xrefOffset() {
+        return xrefOffset;
+    }
+
+    synchronized boolean isXrefChecked() {
+        return xrefChecked;
+    }
+
+    synchronized void xrefChecked() {
+        xrefChecked = true;
+    }
+
+    synchronized boolean isDiscarded() {
+        return discarded;
+    }
+
+    synchronized void discard() {
+        discarded = true;
+    }
+}
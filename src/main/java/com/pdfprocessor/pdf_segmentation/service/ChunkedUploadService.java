@@ -0,0 +1,318 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+// Resumable uploads of large PDFs in fixed-size chunks. Each upload gets a scratch file of its full size
+// that chunks are written into at their own offset, straight from the request body, so chunks can be sent
+// in parallel and resent after a failure. The structure of the file is checked as soon as the relevant
+// bytes are in: the header when the first chunk arrives, startxref and %%EOF once the tail is complete, and
+// the cross-reference section once the chunk startxref points into is. An upload that fails a check is
+// discarded at once instead of after the last chunk.
+@Service
+public class ChunkedUploadService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final Path workRoot;
+    private final long maxBytes;
+    private final int defaultChunkBytes;
+    private final int maxChunkBytes;
+    private final int maxUploads;
+    private final Duration idleTimeout;
+    private final Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(@Value("${pdf.segmentation.upload.work-dir:${java.io.tmpdir}/pdf-segmentation-chunked}") String workDir,
+                                @Value("${pdf.segmentation.upload.max-bytes:2147483648}") long maxBytes,
+                                @Value("${pdf.segmentation.upload.chunk-bytes:8388608}") int defaultChunkBytes,
+                                @Value("${pdf.segmentation.upload.max-chunk-bytes:67108864}") int maxChunkBytes,
+                                @Value("${pdf.segmentation.upload.max-uploads:16}") int maxUploads,
+                                @Value("${pdf.segmentation.upload.idle-timeout:1h}") Duration idleTimeout) {
+        this.workRoot = Paths.get(workDir);
+        this.maxBytes = maxBytes;
+        this.defaultChunkBytes = defaultChunkBytes;
+        this.maxChunkBytes = maxChunkBytes;
+        this.maxUploads = maxUploads;
+        this.idleTimeout = idleTimeout;
+    }
+
+    // Start an upload of size bytes. Throws RejectedExecutionException when too many uploads are in
+    // progress or the scratch disk cannot hold the file.
+    public ChunkedUpload create(String fileName, long size, Integer chunkSize) throws IOException {
+        // The name becomes a file in the upload's directory, so it must not lead out of it
+        String name = fileName != null ? fileName : "";
+        if (name.isBlank() || name.equals(".") || name.equals("..") || name.contains("/") || name.contains("\\")) {
+            throw new IllegalArgumentException("A file name without path separators is required.");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Upload size must be greater than zero.");
+        }
+        if (size > maxBytes) {
+            throw new IllegalArgumentException("Upload size exceeds the limit of " + maxBytes + " bytes.");
+        }
+        int chunkBytes = chunkSize != null ? chunkSize : defaultChunkBytes;
+        // The header has to be in the first chunk
+        if (chunkBytes < PdfStructure.HEADER_WINDOW || chunkBytes > maxChunkBytes) {
+            throw new IllegalArgumentException("Chunk size must be between " + PdfStructure.HEADER_WINDOW + " and " + maxChunkBytes + " bytes.");
+        }
+
+        evictIdleUploads();
+        if (uploads.size() >= maxUploads) {
+            throw new RejectedExecutionException("Too many uploads in progress");
+        }
+        Files.createDirectories(workRoot);
+        if (workRoot.toFile().getUsableSpace() < size + reservedBytes()) {
+            throw new RejectedExecutionException("Not enough scratch space for the upload");
+        }
+
+        String uploadId = UUID.randomUUID().toString();
+        File workDirectory = Files.createDirectory(workRoot.resolve(uploadId)).toFile();
+        File file = new File(workDirectory, name);
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Size the file up front so every chunk is written in place; Java has no fallocate, so on most
+            // file systems this reserves the length without writing the blocks
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        } catch (IOException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            file.delete();
+            workDirectory.delete();
+            throw e;
+        }
+
+        ChunkedUpload upload = new ChunkedUpload(uploadId, name, size, chunkBytes, workDirectory, channel);
+        uploads.put(uploadId, upload);
+        return upload;
+    }
+
+    public ChunkedUpload get(String uploadId) {
+        return uploads.get(uploadId);
+    }
+
+    // Write chunk index from the request body. Returns null for an unknown upload. A chunk of the wrong
+    // length is refused with IllegalArgumentException and can be sent again; content that cannot be a
+    // PDF also discards the upload.
+    public ChunkedUpload writeChunk(String uploadId, int index, InputStream body) throws IOException {
+        ChunkedUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            return null;
+        }
+        if (index < 0 || index >= upload.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (upload.getChunkCount() - 1) + ".");
+        }
+        // A chunk resent after its acknowledgement got lost
+        if (upload.getStatus() == ChunkedUpload.Status.COMPLETE) {
+            return upload;
+        }
+        upload.touch();
+
+        long offset = upload.chunkOffset(index);
+        int length = upload.chunkLength(index);
+        byte[] buffer = new byte[Math.min(length, COPY_BUFFER_BYTES)];
+        int written = 0;
+        try {
+            while (written < length) {
+                int read = body.readNBytes(buffer, 0, Math.min(buffer.length, length - written));
+                if (read == 0) {
+                    break;
+                }
+                // Checked before the first byte is written, so a non-PDF costs one buffer of I/O
+                if (index == 0 && written == 0) {
+                    checkHeader(upload, buffer, read);
+                }
+                ByteBuffer content = ByteBuffer.wrap(buffer, 0, read);
+                while (content.hasRemaining()) {
+                    upload.channel().write(content, offset + written + content.position());
+                }
+                written += read;
+            }
+            if (written < length) {
+                throw new IllegalArgumentException("Chunk " + index + " is truncated: expected " + length + " bytes, got " + written + ".");
+            }
+            if (body.read() != -1) {
+                throw new IllegalArgumentException("Chunk " + index + " is longer than " + length + " bytes.");
+            }
+
+            synchronized (upload) {
+                if (upload.getStatus() == ChunkedUpload.Status.COMPLETE) {
+                    return upload;
+                }
+                upload.chunkReceived(index);
+                checkTrailer(upload);
+                checkXref(upload);
+                if (upload.isAllReceived()) {
+                    upload.channel().close();
+                    upload.markComplete();
+                    log.info("Upload {} of {} complete, {} bytes in {} chunks", uploadId, upload.getFileName(), upload.getSize(), upload.getChunkCount());
+                }
+            }
+            return upload;
+        } catch (ClosedChannelException e) {
+            // Discarded or completed by another request while this chunk was being written
+            if (upload.isDiscarded()) {
+                throw new IllegalArgumentException("Upload " + uploadId + " was discarded.");
+            }
+            if (upload.getStatus() == ChunkedUpload.Status.COMPLETE) {
+                return upload;
+            }
+            throw e;
+        }
+    }
+
+    // Remove a complete upload from the registry so it is neither evicted nor used twice while it is being
+    // segmented; returns null when the upload is unknown or not complete. Release it with delete(upload).
+    public ChunkedUpload take(String uploadId) {
+        ChunkedUpload upload = uploads.get(uploadId);
+        if (upload == null || upload.getStatus() != ChunkedUpload.Status.COMPLETE || !uploads.remove(uploadId, upload)) {
+            return null;
+        }
+        return upload;
+    }
+
+    // The uploaded file; closing the source leaves it in place
+    public PdfSource source(ChunkedUpload upload) {
+        return PdfSource.of(upload.file());
+    }
+
+    public boolean delete(String uploadId) {
+        ChunkedUpload upload = uploads.remove(uploadId);
+        if (upload == null) {
+            return false;
+        }
+        delete(upload);
+        return true;
+    }
+
+    public void delete(ChunkedUpload upload) {
+        upload.discard();
+        try {
+            upload.channel().close();
+        } catch (IOException e) {
+            log.debug("Closing upload {} failed", upload.getUploadId(), e);
+        }
+        upload.file().delete();
+        upload.workDirectory().delete();
+    }
+
+    private void checkHeader(ChunkedUpload upload, byte[] head, int length) {
+        int headerOffset = PdfStructure.findHeader(head, length);
+        if (headerOffset < 0) {
+            reject(upload, "The upload does not start with a PDF header.");
+        }
+        upload.headerChecked(headerOffset);
+    }
+
+    // Once the last TRAILER_WINDOW bytes are in: the file must end with startxref and %%EOF
+    private void checkTrailer(ChunkedUpload upload) throws IOException {
+        if (upload.isTrailerChecked()) {
+            return;
+        }
+        long from = Math.max(0, upload.getSize() - PdfStructure.TRAILER_WINDOW);
+        if (!upload.isReceived(from, upload.getSize())) {
+            return;
+        }
+        byte[] tail = read(upload, from, (int) (upload.getSize() - from));
+        long xrefOffset = PdfStructure.findStartXref(tail, tail.length);
+        if (xrefOffset < 0) {
+            reject(upload, "The upload does not end with startxref and %%EOF; it is truncated or not a PDF.");
+        }
+        if (xrefOffset >= upload.getSize()) {
+            reject(upload, "startxref points past the end of the upload.");
+        }
+        upload.trailerChecked(xrefOffset);
+    }
+
+    // Once the bytes startxref points to are in: they must start a cross-reference table or stream.
+    // Offsets of files with junk before the header are sometimes counted from the header instead.
+    private void checkXref(ChunkedUpload upload) throws IOException {
+        long xrefOffset = upload.xrefOffset();
+        if (xrefOffset < 0 || !upload.isHeaderChecked() || upload.isXrefChecked()) {
+            return;
+        }
+        long shifted = xrefOffset + upload.headerOffset();
+        long end = Math.min(upload.getSize(), shifted + PdfStructure.XREF_PROBE);
+        if (!upload.isReceived(xrefOffset, end)) {
+            return;
+        }
+        if (!isXrefSection(upload, xrefOffset) && (shifted == xrefOffset || !isXrefSection(upload, shifted))) {
+            reject(upload, "startxref does not point to a cross-reference section.");
+        }
+        upload.xrefChecked();
+    }
+
+    private boolean isXrefSection(ChunkedUpload upload, long offset) throws IOException {
+        if (offset >= upload.getSize()) {
+            return false;
+        }
+        byte[] probe = read(upload, offset, (int) Math.min(PdfStructure.XREF_PROBE, upload.getSize() - offset));
+        return PdfStructure.isXrefSection(probe, probe.length);
+    }
+
+    private static byte[] read(ChunkedUpload upload, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (upload.channel().read(buffer, offset + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    private void reject(ChunkedUpload upload, String reason) {
+        uploads.remove(upload.getUploadId(), upload);
+        delete(upload);
+        log.info("Discarded upload {} of {}: {}", upload.getUploadId(), upload.getFileName(), reason);
+        throw new IllegalArgumentException(reason + " The upload was discarded.");
+    }
+
+    // Bytes still to be written by the uploads in progress
+    private long reservedBytes() {
+        long reserved = 0;
+        for (ChunkedUpload upload : uploads.values()) {
+            if (upload.getStatus() == ChunkedUpload.Status.RECEIVING) {
+                reserved += (long) upload.getMissingChunks().size() * upload.getChunkSize();
+            }
+        }
+        return reserved;
+    }
+
+    // Uploads without a chunk for longer than the idle timeout are abandoned. New uploads evict as well, but
+    // without a sweep the scratch files of the last uploads would stay until the next one.
+    @Scheduled(fixedDelayString = "${pdf.segmentation.upload.sweep-interval:PT1M}")
+    public void evictIdleUploads() {
+        Instant cutoff = Instant.now().minus(idleTimeout);
+        uploads.values().stream()
+                .filter(upload -> upload.getLastActivityAt().isBefore(cutoff))
+                .forEach(upload -> {
+                    if (uploads.remove(upload.getUploadId(), upload)) {
+                        log.info("Upload {} of {} expired", upload.getUploadId(), upload.getFileName());
+                        delete(upload);
+                    }
+                });
+    }
+}
@@ -0,0 +1,42 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Passes segments through to another sink and counts the bytes written, for the job byte metrics
+class CountingSegmentSink implements SegmentSink {
+
+    private final SegmentSink delegate;
+    private long bytesWritten;
+
+    CountingSegmentSink(SegmentSink delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void begin(int segmentCount) throws IOException {
+        delegate.begin(segmentCount);
+    }
+
+    @Override
+    public OutputStream openSegment(int index, String name) throws IOException {
+        return new FilterOutputStream(delegate.openSegment(index, name)) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesWritten++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesWritten += len;
+            }
+        };
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+}
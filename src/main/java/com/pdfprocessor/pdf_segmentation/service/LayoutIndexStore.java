@@ -0,0 +1,103 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.LayoutIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Keeps what is needed to re-segment a processed document without uploading it again:
+// a copy of the source PDF and, once it has been analysed, its LayoutIndex. Only the maxIndexes most recently
+// used indexes stay in memory; a document whose index was dropped is analysed again from its retained source.
+@Component
+public class LayoutIndexStore {
+
+    private final Path sourceDirectory;
+    private final Map<String, LayoutIndex> indexes;
+
+    public LayoutIndexStore(@Value("${pdf.segmentation.source-dir:${java.io.tmpdir}/pdf-segmentation-sources}") String sourceDir,
+                            @Value("${pdf.segmentation.layout-index.max-entries:1000}") int maxIndexes) {
+        this.sourceDirectory = Paths.get(sourceDir);
+        // Access-ordered, so the least recently used index is dropped first
+        this.indexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LayoutIndex> eldest) {
+                return size() > maxIndexes;
+            }
+        };
+    }
+
+    // Retain the source of a document; a hard link is tried first so retaining costs no copy.
+    // A new source invalidates the index built from the previous one.
+    public void retainSource(String pdfId, File pdfFile) throws IOException {
+        retainSource(pdfId, PdfSource.of(pdfFile));
+    }
+
+    // In-memory sources are written out once; file-backed ones are linked like retained files
+    public void retainSource(String pdfId, PdfSource source) throws IOException {
+        removeIndex(pdfId);
+        Files.createDirectories(sourceDirectory);
+        Path target = sourcePath(pdfId);
+        File pdfFile = source.getFile();
+        if (pdfFile != null && Files.exists(target) && Files.isSameFile(target, pdfFile.toPath())) {
+            return;
+        }
+        Files.deleteIfExists(target);
+        if (pdfFile == null) {
+            source.copyTo(target);
+            return;
+        }
+        try {
+            Files.createLink(target, pdfFile.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(pdfFile.toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Retained source of a document, or null when none was kept
+    public File getSource(String pdfId) {
+        File source = sourcePath(pdfId).toFile();
+        return source.isFile() ? source : null;
+    }
+
+    public void putIndex(String pdfId, LayoutIndex index) {
+        synchronized (indexes) {
+            indexes.put(pdfId, index);
+        }
+    }
+
+    public LayoutIndex getIndex(String pdfId) {
+        synchronized (indexes) {
+            return indexes.get(pdfId);
+        }
+    }
+
+    public int getIndexCount() {
+        synchronized (indexes) {
+            return indexes.size();
+        }
+    }
+
+    public void remove(String pdfId) {
+        removeIndex(pdfId);
+        sourcePath(pdfId).toFile().delete();
+    }
+
+    private void removeIndex(String pdfId) {
+        synchronized (indexes) {
+            indexes.remove(pdfId);
+        }
+    }
+
+    private Path sourcePath(String pdfId) {
+        // Ids are file names; never let them escape the source directory
+        return sourceDirectory.resolve(new File(pdfId).getName());
+    }
+}
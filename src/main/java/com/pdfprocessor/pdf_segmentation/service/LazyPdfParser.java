@@ -0,0 +1,162 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// PDFParser that only parses what pages [fromPage, toPage) need. PDFBox 2 resolves the whole object graph
+// up front; this parser reads the page tree itself (the dictionaries of every node and page, so page
+// numbering and iteration stay intact), and then everything the requested pages and the inheritable
+// attributes of their ancestors refer to. Content streams, resources and annotations of the other pages,
+// outlines, forms and the structure tree are never read, and their references resolve to null.
+final class LazyPdfParser extends PDFParser {
+
+    private static final COSName[] INHERITABLE = {COSName.RESOURCES, COSName.MEDIA_BOX, COSName.CROP_BOX, COSName.ROTATE};
+
+    private final int fromPage;
+    private final int toPage;
+
+    private final Set<COSDictionary> treeDictionaries = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<COSDictionary> neededNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<COSDictionary> neededPages = new ArrayList<>();
+    private final Set<COSBase> resolved = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int pagesSeen;
+
+    LazyPdfParser(RandomAccessRead source, ScratchFile scratchFile, int fromPage, int toPage) throws IOException {
+        super(source, scratchFile);
+        this.fromPage = fromPage;
+        this.toPage = toPage;
+    }
+
+    @Override
+    protected void initialParse() throws IOException {
+        COSDictionary trailer = retrieveTrailer();
+        COSBase base = parseTrailerValuesDynamically(trailer);
+        if (!(base instanceof COSDictionary)) {
+            throw new IOException("Expected root dictionary, but got this: " + base);
+        }
+        COSDictionary root = (COSDictionary) base;
+        COSDictionary pages = dictionary(root.getItem(COSName.PAGES));
+        if (pages == null) {
+            throw new IOException("Page tree root must be a dictionary");
+        }
+
+        walk(pages, new ArrayList<>());
+        // A damaged page tree is left to the regular parser, which repairs it
+        if (pagesSeen != pages.getInt(COSName.COUNT)) {
+            throw new IOException("Page tree counts " + pages.getInt(COSName.COUNT) + " pages, found " + pagesSeen);
+        }
+        for (COSDictionary node : neededNodes) {
+            for (COSName key : INHERITABLE) {
+                resolveAll(node.getItem(key));
+            }
+        }
+        for (COSDictionary page : neededPages) {
+            for (COSName key : page.keySet()) {
+                if (!COSName.PARENT.equals(key)) {
+                    resolveAll(page.getItem(key));
+                }
+            }
+        }
+
+        document.setDecrypted();
+        initialParseDone = true;
+    }
+
+    // Parse the dictionary of every node and page; remember requested pages and the nodes above them
+    private void walk(COSDictionary node, List<COSDictionary> ancestors) throws IOException {
+        if (!treeDictionaries.add(node)) {
+            throw new IOException("Page tree contains a cycle");
+        }
+        ancestors.add(node);
+        COSBase kidsBase = node.getItem(COSName.KIDS);
+        COSArray kids = (COSArray) (kidsBase instanceof COSObject ? resolveShallow((COSObject) kidsBase) : kidsBase);
+        if (kids != null) {
+            for (int i = 0; i < kids.size(); i++) {
+                COSDictionary kid = dictionary(kids.get(i));
+                if (kid == null) {
+                    continue;
+                }
+                if (COSName.PAGES.equals(kid.getCOSName(COSName.TYPE)) || kid.containsKey(COSName.KIDS)) {
+                    walk(kid, ancestors);
+                } else {
+                    if (!treeDictionaries.add(kid)) {
+                        throw new IOException("Page tree contains a page twice");
+                    }
+                    if (pagesSeen >= fromPage && pagesSeen < toPage) {
+                        neededPages.add(kid);
+                        neededNodes.addAll(ancestors);
+                    }
+                    pagesSeen++;
+                }
+            }
+        }
+        ancestors.remove(ancestors.size() - 1);
+    }
+
+    // Everything reachable from base, without following Parent links upwards or entering other pages
+    private void resolveAll(COSBase base) throws IOException {
+        Deque<COSBase> pending = new ArrayDeque<>();
+        push(pending, base);
+        while (!pending.isEmpty()) {
+            COSBase next = pending.pop();
+            if (next instanceof COSObject) {
+                next = resolveShallow((COSObject) next);
+            }
+            if (next == null || !resolved.add(next)) {
+                continue;
+            }
+            if (next instanceof COSDictionary) {
+                COSDictionary dictionary = (COSDictionary) next;
+                if (treeDictionaries.contains(dictionary)) {
+                    continue;
+                }
+                for (COSName key : dictionary.keySet()) {
+                    if (!COSName.PARENT.equals(key)) {
+                        push(pending, dictionary.getItem(key));
+                    }
+                }
+            } else if (next instanceof COSArray) {
+                for (COSBase item : (COSArray) next) {
+                    push(pending, item);
+                }
+            }
+        }
+    }
+
+    private static void push(Deque<COSBase> pending, COSBase base) {
+        if (base != null) {
+            pending.push(base);
+        }
+    }
+
+    private COSDictionary dictionary(COSBase base) throws IOException {
+        if (base instanceof COSObject) {
+            base = resolveShallow((COSObject) base);
+        }
+        return base instanceof COSDictionary ? (COSDictionary) base : null;
+    }
+
+    // Parse the object itself; the objects it refers to stay unparsed
+    private COSBase resolveShallow(COSObject object) throws IOException {
+        COSBase base = object.getObject();
+        if (base == null) {
+            base = parseObjectDynamically(object, false);
+        }
+        return base;
+    }
+}
@@ -0,0 +1,64 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+// Pages of a document to segment, numbered from 1 and inclusive like in requests. Without a last page the
+// range runs to the end of the document.
+public final class PageRange {
+
+    private final int firstPage;
+    private final Integer lastPage;
+
+    private PageRange(int firstPage, Integer lastPage) {
+        this.firstPage = firstPage;
+        this.lastPage = lastPage;
+    }
+
+    // null when neither bound is given, i.e. the whole document
+    public static PageRange of(Integer firstPage, Integer lastPage) {
+        if (firstPage == null && lastPage == null) {
+            return null;
+        }
+        int first = firstPage != null ? firstPage : 1;
+        if (first < 1) {
+            throw new IllegalArgumentException("First page must be 1 or greater.");
+        }
+        if (lastPage != null && lastPage < first) {
+            throw new IllegalArgumentException("Last page must not be before the first page.");
+        }
+        return new PageRange(first, lastPage);
+    }
+
+    public int getFirstPage() {
+        return firstPage;
+    }
+
+    // null when the range runs to the end of the document
+    public Integer getLastPage() {
+        return lastPage;
+    }
+
+    // 0-based index of the first page
+    public int fromIndex() {
+        return firstPage - 1;
+    }
+
+    // 0-based index after the last page; a last page beyond the document is clamped to its end
+    public int toIndex(int pageCount) {
+        return lastPage == null ? pageCount : Math.min(lastPage, pageCount);
+    }
+
+    // Before the document is loaded the page count is unknown
+    public int toIndex() {
+        return lastPage == null ? Integer.MAX_VALUE : lastPage;
+    }
+
+    public void checkWithin(int pageCount) {
+        if (firstPage > pageCount) {
+            throw new IllegalArgumentException("First page " + firstPage + " is beyond the last page of the document (" + pageCount + ").");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return firstPage + "-" + (lastPage != null ? lastPage : "");
+    }
+}
@@ -0,0 +1,102 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.DocumentOpener;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.layout.PageLayout;
+import com.pdfprocessor.pdf_segmentation.layout.PageRegion;
+import com.pdfprocessor.pdf_segmentation.layout.ParallelLayoutAnalyzer;
+import com.pdfprocessor.pdf_segmentation.layout.RasterProfileAnalyzer;
+import com.pdfprocessor.pdf_segmentation.layout.StreamingCutPlanner;
+import com.pdfprocessor.pdf_segmentation.metrics.SegmentationMetrics;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// Page-streaming segmentation: the document is analysed a window of pages at a time, cuts are placed by
+// StreamingCutPlanner, and every segment is written to the sink as soon as its last page was analysed.
+// Each window is a document of which only the window's pages are parsed (see LazyPdfParser), and layout
+// data is only held for the current window, so neither grows with the page count.
+// A segment holds one page per page region it covers, cropped to that region by SegmentWriter.
+@Component
+public class PageStreamingSegmenter {
+
+    private final int windowPages;
+    private final SegmentWriter segmentWriter;
+
+    @Autowired
+    private SegmentationMetrics segmentationMetrics;
+
+    // Windows are analysed on the calling thread, so their pages without text are rendered there too
+    @Autowired
+    private RasterProfileAnalyzer rasterProfileAnalyzer = RasterProfileAnalyzer.withDefaults();
+
+    public PageStreamingSegmenter(@Value("${pdf.segmentation.streaming.window-pages:16}") int windowPages,
+                                  @Value("${pdf.segmentation.writer.prune-resources:true}") boolean pruneResources) {
+        this.windowPages = Math.max(1, windowPages);
+        this.segmentWriter = new SegmentWriter(pruneResources);
+    }
+
+    // Returns the number of segments written. At most cuts - 1 cuts are placed, so there are at most cuts segments;
+    // several may end on one page, so unlike without streaming the page count does not bound them.
+    // TEXT extraction has no page-aware form and is read as GEOMETRY.
+    // Only pages [firstPage, endPage) are analysed and written. Every window is opened on its own with
+    // opener.open(fromPage, toPage) and closed once its segments are written.
+    public int segment(DocumentOpener opener, int firstPage, int endPage, int cuts, ExtractionMode mode,
+                       String originalFileName, SegmentSink sink) throws IOException {
+        StreamingCutPlanner planner = new StreamingCutPlanner(firstPage, endPage - firstPage, cuts - 1);
+        // Segments leave before their number is known, so the sink only learns the most there can be
+        sink.begin(cuts);
+        if (mode == ExtractionMode.TEXT) {
+            mode = ExtractionMode.GEOMETRY;
+        }
+
+        int written = 0;
+        for (int fromPage = firstPage; fromPage < endPage; fromPage += windowPages) {
+            int toPage = Math.min(endPage, fromPage + windowPages);
+            try (PDDocument window = opener.open(fromPage, toPage)) {
+                List<List<PageRegion>> segments;
+                try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("analyze")) {
+                    List<PageLayout> layouts = ParallelLayoutAnalyzer.analyzePages(window, fromPage, toPage, mode, rasterProfileAnalyzer);
+                    float[] pageHeights = new float[toPage - fromPage];
+                    for (int page = fromPage; page < toPage; page++) {
+                        pageHeights[page - fromPage] = window.getPage(page).getCropBox().getHeight();
+                    }
+                    segments = planner.addWindow(fromPage, toPage, layouts, pageHeights);
+                }
+                if (toPage == endPage) {
+                    List<PageRegion> last = planner.finish();
+                    if (last != null) {
+                        segments.add(last);
+                    }
+                }
+                try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("split")) {
+                    for (List<PageRegion> regions : segments) {
+                        writeSegment(opener, window, fromPage, regions, written, originalFileName, sink);
+                        written++;
+                    }
+                }
+            }
+        }
+        return written;
+    }
+
+    // A segment that starts in an earlier window, whose document is closed by now, has its pages opened again
+    private void writeSegment(DocumentOpener opener, PDDocument window, int windowStart, List<PageRegion> regions,
+                              int index, String originalFileName, SegmentSink sink) throws IOException {
+        try (OutputStream out = sink.openSegment(index, PdfSegmentationService.segmentName(originalFileName, index))) {
+            int firstPage = regions.isEmpty() ? windowStart : regions.get(0).getPageIndex();
+            if (firstPage >= windowStart) {
+                segmentWriter.write(window, regions, out);
+                return;
+            }
+            try (PDDocument pages = opener.open(firstPage, regions.get(regions.size() - 1).getPageIndex() + 1)) {
+                segmentWriter.write(pages, regions, out);
+            }
+        }
+    }
+}
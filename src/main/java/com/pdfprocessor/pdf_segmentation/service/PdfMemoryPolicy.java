@@ -0,0 +1,70 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.ParallelLayoutAnalyzer;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Per-job memory budget for PDFBox: up to maxMainMemoryBytes of buffers stay on heap, everything beyond that
+// spills into a scratch directory owned by the job. A job whose layout is analysed in parallel chunks holds one
+// document per worker besides its own, so the budget is split between them rather than given to each.
+@Component
+public class PdfMemoryPolicy {
+
+    private final long maxMainMemoryBytes;
+    private final long maxStorageBytes;
+    private final Path scratchRoot;
+
+    // Bounds how many chunk documents of one job are open at a time; without it a job holds only its own document
+    @Autowired
+    private ParallelLayoutAnalyzer parallelLayoutAnalyzer;
+
+    public PdfMemoryPolicy(@Value("${pdf.segmentation.memory.max-main-memory-bytes:67108864}") long maxMainMemoryBytes,
+                           @Value("${pdf.segmentation.memory.max-storage-bytes:-1}") long maxStorageBytes,
+                           @Value("${pdf.segmentation.memory.scratch-dir:${java.io.tmpdir}/pdf-segmentation-scratch}") String scratchDir) {
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.maxStorageBytes = maxStorageBytes;
+        this.scratchRoot = Paths.get(scratchDir);
+    }
+
+    // Open a scratch session for one job; closing it removes everything the job spilled
+    public ScratchSession openSession() throws IOException {
+        Files.createDirectories(scratchRoot);
+        File directory = Files.createTempDirectory(scratchRoot, "job-").toFile();
+        int workers = parallelLayoutAnalyzer != null ? parallelLayoutAnalyzer.getParallelism() : 1;
+        if (workers <= 1) {
+            return new ScratchSession(directory, memoryUsageSetting(directory, 1), memoryUsageSetting(directory, 1));
+        }
+        // The job's own document gets half of the budget, and the chunk documents its workers open share the other half
+        return new ScratchSession(directory, memoryUsageSetting(directory, 2), memoryUsageSetting(directory, 2 * workers));
+    }
+
+    // One of shares equal parts of the budget; unlimited and scratch-only budgets stay as they are
+    MemoryUsageSetting memoryUsageSetting(File directory, int shares) {
+        long storage = maxStorageBytes > 0 ? Math.max(1, maxStorageBytes / shares) : maxStorageBytes;
+        MemoryUsageSetting setting;
+        if (maxMainMemoryBytes < 0) {
+            setting = MemoryUsageSetting.setupMainMemoryOnly(storage);
+        } else if (maxMainMemoryBytes == 0) {
+            setting = MemoryUsageSetting.setupTempFileOnly(storage);
+        } else {
+            setting = MemoryUsageSetting.setupMixed(Math.max(1, maxMainMemoryBytes / shares), storage);
+        }
+        return setting.setTempDir(directory);
+    }
+
+    public long getMaxMainMemoryBytes() {
+        return maxMainMemoryBytes;
+    }
+
+    public long getMaxStorageBytes() {
+        return maxStorageBytes;
+    }
+}
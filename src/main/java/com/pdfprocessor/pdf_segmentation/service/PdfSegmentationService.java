@@ -1,121 +1,484 @@
 package com.pdfprocessor.pdf_segmentation.service;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.pdfprocessor.pdf_segmentation.cache.CachedSegments;
+import com.pdfprocessor.pdf_segmentation.cache.SegmentationResultCache;
+import com.pdfprocessor.pdf_segmentation.layout.DocumentLayout;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.layout.LayoutIndex;
+import com.pdfprocessor.pdf_segmentation.layout.ParallelLayoutAnalyzer;
+import com.pdfprocessor.pdf_segmentation.layout.RasterProfileAnalyzer;
+import com.pdfprocessor.pdf_segmentation.metrics.SegmentationMetrics;
+import com.pdfprocessor.pdf_segmentation.store.MetadataStore;
+import jakarta.annotation.PostConstruct;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.pdfbox.text.TextPosition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class PdfSegmentationService {
 
-    // Simple in-memory metadata storage for the assignment
-    private final Map<String, PdfMetadata> pdfMetadataStorage = new HashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(PdfSegmentationService.class);
 
+    // Metadata shared with the controllers; see MetadataStoreConfig for the implementations
+    @Autowired
+    private MetadataStore metadataStore;
+
+    // GEOMETRY collects glyph positions only; TEXT runs the full text extraction; CONTENT_STREAM reads the
+    // operators without loading fonts; RASTER profiles rendered pages. Requests may choose a mode of their own.
+    @Value("${pdf.segmentation.extraction-mode:geometry}")
+    private ExtractionMode extractionMode = ExtractionMode.GEOMETRY;
+
+    @Autowired
+    private ParallelLayoutAnalyzer parallelLayoutAnalyzer;
+
+    // Profiles pages without text, such as scans, from their rendering
+    @Autowired
+    private RasterProfileAnalyzer rasterProfileAnalyzer;
+
+    @Autowired
+    private PdfMemoryPolicy pdfMemoryPolicy;
+
+    @Autowired
+    private SegmentationResultCache resultCache;
+
+    @Autowired
+    private LayoutIndexStore layoutIndexStore;
+
+    @Autowired
+    private SegmentationMetrics segmentationMetrics;
+
+    @Autowired
+    private SegmentStore segmentStore;
+
+    // Analyse and split the document a window of pages at a time instead of cutting it as a whole
+    @Value("${pdf.segmentation.streaming.enabled:false}")
+    private boolean pageStreaming;
+
+    @Autowired
+    private PageStreamingSegmenter pageStreamingSegmenter;
+
+    // Reduce the resources written with every segment to those its pages use
+    @Value("${pdf.segmentation.writer.prune-resources:true}")
+    private boolean pruneResources = true;
+
+    // Write in-memory sources and their segments to disk so they can be re-segmented and downloaded singly
+    @Value("${pdf.segmentation.pipeline.retain-on-disk:true}")
+    private boolean retainOnDisk = true;
+
+    // Segment the PDF into the segment store and return the stored segment files
     public List<File> segmentPdf(File pdfFile, int cuts) throws IOException {
+        validate(pdfFile, cuts);
+        SegmentStore.Writer writer = segmentStore.open(pdfFile.getName());
+        try {
+            metadataStore.put(segment(PdfSource.of(pdfFile), cuts, extractionMode, null, writer, true, true));
+            writer.commit();
+            return writer.getFiles();
+        } finally {
+            writer.abort();
+        }
+    }
+
+    // Segment the PDF and hand every segment to the sink as soon as it is produced; the segments are
+    // also kept in the segment store for individual download
+    public PdfMetadata segmentPdf(File pdfFile, int cuts, SegmentSink sink) throws IOException {
+        return segmentPdf(pdfFile, cuts, null, sink);
+    }
+
+    // Same with an extraction mode chosen for this request; null uses the configured mode
+    public PdfMetadata segmentPdf(File pdfFile, int cuts, ExtractionMode mode, SegmentSink sink) throws IOException {
+        validate(pdfFile, cuts);
+        return segmentPdf(PdfSource.of(pdfFile), cuts, mode, sink);
+    }
+
+    // Same for a source held in memory or spilled to a file. Unless retain-on-disk is switched off, the
+    // source and the segments are written once for re-segmentation and single-segment download; with it
+    // off, an in-memory source goes from upload to sink without touching disk.
+    public PdfMetadata segmentPdf(PdfSource source, int cuts, SegmentSink sink) throws IOException {
+        return segmentPdf(source, cuts, null, sink);
+    }
+
+    // Same with an extraction mode chosen for this request; null uses the configured mode
+    public PdfMetadata segmentPdf(PdfSource source, int cuts, ExtractionMode mode, SegmentSink sink) throws IOException {
+        return segmentPdf(source, cuts, mode, null, sink);
+    }
+
+    // Same for part of the document; null segments every page. Pages outside the range are not parsed,
+    // analysed or written.
+    public PdfMetadata segmentPdf(PdfSource source, int cuts, ExtractionMode mode, PageRange range, SegmentSink sink) throws IOException {
+        ExtractionMode extraction = mode != null ? mode : extractionMode;
+        if (source == null || (!source.isInMemory() && !source.getFile().isFile())) {
+            throw new IOException("Invalid PDF file.");
+        }
+        validate(cuts);
+
+        if (source.isInMemory() && !retainOnDisk) {
+            // Whatever was kept for an earlier upload under this id no longer matches the document
+            layoutIndexStore.remove(source.getName());
+            segmentStore.remove(source.getName());
+            PdfMetadata metadata = segment(source, cuts, extraction, range, sink, false, true);
+            metadataStore.put(metadata);
+            return metadata;
+        }
+
+        SegmentStore.Writer writer = segmentStore.open(source.getName());
+        try {
+            PdfMetadata metadata = segment(source, cuts, extraction, range, new TeeSegmentSink(sink, writer), true, true);
+            metadataStore.put(metadata);
+            writer.commit();
+            return metadata;
+        } finally {
+            writer.abort();
+        }
+    }
+
+    // Segment the PDF into the sink only. Nothing is retained, stored or recorded under the file's name, so
+    // documents that merely share a name, such as the files of different batches, cannot replace each other.
+    public PdfMetadata segmentDetached(File pdfFile, int cuts, ExtractionMode mode, SegmentSink sink) throws IOException {
+        validate(pdfFile, cuts);
+        return segment(PdfSource.of(pdfFile), cuts, mode != null ? mode : extractionMode, null, sink, false, true);
+    }
+
+    // Like segmentDetached, but the result cache is neither read nor filled. For the warm-up, whose documents
+    // are the same on every start and would otherwise be answered from a persistent cache without being parsed.
+    PdfMetadata segmentUncached(PdfSource source, int cuts, SegmentSink sink) throws IOException {
+        validate(cuts);
+        return segment(source, cuts, extractionMode, null, sink, false, false);
+    }
+
+    private void validate(File pdfFile, int cuts) throws IOException {
         // Validate the PDF file
         if (pdfFile == null || !pdfFile.exists() || !pdfFile.isFile()) {
             throw new IOException("Invalid PDF file.");
         }
+        validate(cuts);
+    }
 
+    private void validate(int cuts) {
         // Validate cuts
         if (cuts <= 0) {
             throw new IllegalArgumentException("Number of cuts must be greater than zero.");
         }
+    }
 
-        try (PDDocument document = PDDocument.load(pdfFile)) {
-            PDFTextStripper stripper = new CustomPDFTextStripper();
-            stripper.setSortByPosition(true);
-            stripper.getText(document);
+    private PdfMetadata segment(PdfSource source, int cuts, ExtractionMode mode, PageRange range, SegmentSink sink,
+                                boolean retain, boolean useCache) throws IOException {
+        String pdfId = source.getName();
+
+        // Keep the source so the document can be re-segmented without another upload
+        if (retain) {
+            layoutIndexStore.retainSource(pdfId, source);
+        }
 
-            List<Float> yPositions = ((CustomPDFTextStripper) stripper).getYPositions();
-            List<Integer> cutPositions = findCutPositions(yPositions, cuts);
+        // Identical uploads with identical parameters are answered from the result cache without parsing
+        String cacheKey = null;
+        CapturingSegmentSink capture = null;
+        if (useCache && resultCache.isEnabled()) {
+            CachedSegments cached;
+            try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("cache")) {
+                try (InputStream content = source.openStream()) {
+                    cacheKey = resultCache.key(content, cacheParameters(cuts, mode, range));
+                }
+                cached = resultCache.get(cacheKey);
+            }
+            if (cached != null) {
+                replayCachedSegments(cached, pdfId, sink);
+                PdfMetadata metadata = new PdfMetadata(pdfId, cached.getSegmentCount(), cuts);
+                metadata.setPageRange(range);
+                metadata.setExtractionMode(mode);
+                return metadata;
+            }
+            capture = new CapturingSegmentSink(sink, resultCache.getMaxEntryBytes());
+            sink = capture;
+        }
+        CountingSegmentSink counter = new CountingSegmentSink(sink);
 
-            List<File> segmentedFiles = splitPdf(document, cutPositions, pdfFile.getName());
+        // Documents are loaded within the configured memory budget; overflow goes to the job's scratch directory
+        try (ScratchSession scratch = pdfMemoryPolicy.openSession();
+             PDDocument document = load(scratch, source, range)) {
+            int fromPage = range != null ? range.fromIndex() : 0;
+            int toPage = range != null ? range.toIndex(document.getNumberOfPages()) : document.getNumberOfPages();
+            int segmentCount;
+            if (pageStreaming) {
+                segmentCount = pageStreamingSegmenter.segment(scratch.rangeOpener(source), fromPage, toPage, cuts, mode, pdfId, counter);
+            } else {
+                LayoutIndex index = timedAnalyzeLayout(document, scratch, source, mode, fromPage, toPage);
+                if (retain) {
+                    layoutIndexStore.putIndex(pdfId, index);
+                }
+                List<Integer> cutPositions = timedFindCutPositions(index, cuts);
+                segmentCount = timedSplitPdf(document, cutPositions, fromPage, toPage, pdfId, counter);
+            }
+            scratch.sample();
+            segmentationMetrics.recordJob(toPage - fromPage, source.length(), counter.getBytesWritten());
 
             // Store metadata
-            String pdfId = pdfFile.getName();
-            PdfMetadata metadata = new PdfMetadata(pdfId, segmentedFiles.size(), cuts);
-            pdfMetadataStorage.put(pdfId, metadata);
+            PdfMetadata metadata = new PdfMetadata(pdfId, segmentCount, cuts);
+            metadata.setPageRange(range);
+            metadata.setExtractionMode(mode);
+            metadata.setSpilledBytes(scratch.getSpilledBytes());
+            log.info("Segmented {} into {} segments, {} bytes spilled to scratch", pdfId, segmentCount, scratch.getSpilledBytes());
 
-            return segmentedFiles;
+            if (capture != null) {
+                CachedSegments segments = capture.toCachedSegments();
+                if (segments != null) {
+                    resultCache.put(cacheKey, segments);
+                }
+            }
+            return metadata;
         }
     }
 
+    // Name of the index-th segment of a document
+    public static String segmentName(String originalFileName, int index) {
+        return originalFileName.replace(".pdf", "_segment_" + (index + 1) + ".pdf");
+    }
+
     // Fetch metadata for a PDF
     public PdfMetadata getPdfMetadata(String pdfId) {
-        return pdfMetadataStorage.get(pdfId);
+        return metadataStore.get(pdfId);
     }
 
     // Update segmentation by changing the number of cuts
-    public void updateSegmentation(String pdfId, int newCuts) {
+    public PdfMetadata updateSegmentation(String pdfId, int newCuts) throws IOException {
         if (newCuts <= 0) {
             throw new IllegalArgumentException("Number of cuts must be greater than zero.");
         }
 
-        PdfMetadata metadata = pdfMetadataStorage.get(pdfId);
+        PdfMetadata metadata = metadataStore.get(pdfId);
         if (metadata == null) {
             throw new IllegalArgumentException("PDF with given ID does not exist.");
         }
-        metadata.setCuts(newCuts);
+        return resegment(metadata, newCuts);
     }
 
     // Modify segmentation partially (e.g., adjust cuts)
-    public void modifySegmentation(String pdfId, int updatedCuts) {
+    public PdfMetadata modifySegmentation(String pdfId, int updatedCuts) throws IOException {
         if (updatedCuts <= 0) {
             throw new IllegalArgumentException("Number of cuts must be greater than zero.");
         }
 
-        PdfMetadata metadata = pdfMetadataStorage.get(pdfId);
+        PdfMetadata metadata = metadataStore.get(pdfId);
         if (metadata == null) {
             throw new IllegalArgumentException("PDF with given ID does not exist.");
         }
-        metadata.setCuts(updatedCuts);
+        return resegment(metadata, updatedCuts);
     }
 
-    // Delete the PDF metadata
-    public void deletePdf(String pdfId) {
-        pdfMetadataStorage.remove(pdfId);
+    // Documents whose metadata expires or is evicted take their stored segments, retained source and
+    // layout index with them, as an explicit delete does. The store runs this before a newer upload of the
+    // same id can record its metadata.
+    @PostConstruct
+    void dropEvictedDocuments() {
+        metadataStore.addEvictionListener(metadata -> {
+            layoutIndexStore.remove(metadata.getPdfId());
+            segmentStore.remove(metadata.getPdfId());
+        });
+    }
+
+    // Delete the PDF metadata, its stored segments and the retained source and layout index;
+    // returns false for unknown ids
+    public boolean deletePdf(String pdfId) {
+        PdfMetadata removed = metadataStore.remove(pdfId);
+        layoutIndexStore.remove(pdfId);
+        segmentStore.remove(pdfId);
+        return removed != null;
     }
 
     // Private helpers
-    private List<Integer> findCutPositions(List<Float> yPositions, int cuts) {
-        List<Float> sortedYPositions = yPositions.stream().distinct().sorted().collect(Collectors.toList());
-        List<Float> gaps = new ArrayList<>();
-        for (int i = 1; i < sortedYPositions.size(); i++) {
-            gaps.add(sortedYPositions.get(i) - sortedYPositions.get(i - 1));
+
+    // Everything besides the document content that changes the produced segments
+    private String cacheParameters(int cuts, ExtractionMode mode, PageRange range) {
+        return "cuts=" + cuts + ",mode=" + mode + ",streaming=" + pageStreaming + ",pages=" + (range != null ? range : "all")
+                + ",prune=" + pruneResources + ",raster=" + rasterProfileAnalyzer.describe();
+    }
+
+    private void replayCachedSegments(CachedSegments cached, String originalFileName, SegmentSink sink) throws IOException {
+        List<byte[]> segments = cached.getSegments();
+        sink.begin(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            try (OutputStream out = sink.openSegment(i, segmentName(originalFileName, i))) {
+                out.write(segments.get(i));
+            }
         }
-        List<Integer> largestGapIndices = new ArrayList<>();
-        for (int i = 0; i < cuts; i++) {
-            float maxGap = Collections.max(gaps);
-            largestGapIndices.add(gaps.indexOf(maxGap));
-            gaps.set(gaps.indexOf(maxGap), 0f); // Mark as processed
+    }
+
+    // Re-cut a processed document from its layout index and retained source; the text is only
+    // extracted again when no index is held for the document
+    private PdfMetadata resegment(PdfMetadata metadata, int cuts) throws IOException {
+        String pdfId = metadata.getPdfId();
+        File source = layoutIndexStore.getSource(pdfId);
+        PageRange range = metadata.getPageRange();
+        // The extraction the document was segmented with, so the new cuts rank the same gaps
+        ExtractionMode mode = metadata.getExtractionMode() != null ? metadata.getExtractionMode() : extractionMode;
+        if (source == null) {
+            // Nothing retained to regenerate the segments from
+            PdfMetadata updated = new PdfMetadata(pdfId, metadata.getSegmentCount(), cuts);
+            updated.setPageRange(range);
+            updated.setExtractionMode(metadata.getExtractionMode());
+            metadataStore.put(updated);
+            return updated;
+        }
+
+        // The same pages as the first segmentation
+        PdfSource retained = PdfSource.of(source);
+        try (ScratchSession scratch = pdfMemoryPolicy.openSession();
+             PDDocument document = load(scratch, retained, range)) {
+            int fromPage = range != null ? range.fromIndex() : 0;
+            int toPage = range != null ? range.toIndex(document.getNumberOfPages()) : document.getNumberOfPages();
+            SegmentStore.Writer writer = segmentStore.open(pdfId);
+            int segmentCount;
+            try {
+                if (pageStreaming) {
+                    // Window cuts depend on the cut count, so there is no index to reuse
+                    segmentCount = pageStreamingSegmenter.segment(scratch.rangeOpener(retained), fromPage, toPage, cuts, mode, pdfId, writer);
+                } else {
+                    LayoutIndex index = layoutIndexStore.getIndex(pdfId);
+                    if (index == null) {
+                        index = timedAnalyzeLayout(document, scratch, retained, mode, fromPage, toPage);
+                        layoutIndexStore.putIndex(pdfId, index);
+                    }
+                    List<Integer> cutPositions = timedFindCutPositions(index, cuts);
+                    segmentCount = timedSplitPdf(document, cutPositions, fromPage, toPage, pdfId, writer);
+                }
+                writer.commit();
+            } finally {
+                writer.abort();
+            }
+            scratch.sample();
+
+            PdfMetadata updated = new PdfMetadata(pdfId, segmentCount, cuts);
+            updated.setPageRange(range);
+            updated.setExtractionMode(mode);
+            updated.setSpilledBytes(scratch.getSpilledBytes());
+            metadataStore.put(updated);
+            return updated;
+        }
+    }
+
+    // Pipeline stages, each recorded under its own pdf.segmentation.stage timer
+
+    // With a page range only the requested pages are parsed. Page streaming opens every window on its own,
+    // so it only needs the page tree here.
+    private PDDocument load(ScratchSession scratch, PdfSource source, PageRange range) throws IOException {
+        PDDocument document;
+        try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("load")) {
+            if (pageStreaming) {
+                document = scratch.load(source, 0, 0);
+            } else {
+                document = range != null ? scratch.load(source, range.fromIndex(), range.toIndex()) : scratch.load(source);
+            }
+        }
+        if (range != null) {
+            try {
+                range.checkWithin(document.getNumberOfPages());
+            } catch (IllegalArgumentException e) {
+                document.close();
+                throw e;
+            }
+        }
+        return document;
+    }
+
+    private LayoutIndex timedAnalyzeLayout(PDDocument document, ScratchSession scratch, PdfSource source, ExtractionMode mode,
+                                           int fromPage, int toPage) throws IOException {
+        try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("analyze")) {
+            return analyzeLayout(document, scratch, source, mode, fromPage, toPage);
+        }
+    }
+
+    private List<Integer> timedFindCutPositions(LayoutIndex index, int cuts) {
+        try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("cut")) {
+            return findCutPositions(index, cuts);
+        }
+    }
+
+    private int timedSplitPdf(PDDocument document, List<Integer> cutPositions, int fromPage, int toPage,
+                              String originalFileName, SegmentSink sink) throws IOException {
+        try (SegmentationMetrics.Stage stage = segmentationMetrics.stage("split")) {
+            return splitPdf(document, cutPositions, fromPage, toPage, originalFileName, sink);
         }
-        return largestGapIndices.stream().map(index -> Math.round(sortedYPositions.get(index))).sorted().collect(Collectors.toList());
     }
 
-    private List<File> splitPdf(PDDocument document, List<Integer> cutPositions, String originalFileName) throws IOException {
-        List<File> segmentedFiles = new ArrayList<>();
-        for (int i = 0; i < cutPositions.size(); i++) {
-            PDDocument newDocument = new PDDocument();
-            newDocument.addPage(document.getPage(i));
-            String newFileName = originalFileName.replace(".pdf", "_segment_" + (i + 1) + ".pdf");
-            File segmentedFile = new File(newFileName);
-            newDocument.save(segmentedFile);
-            segmentedFiles.add(segmentedFile);
-            newDocument.close();
+    // Pages [fromPage, toPage) only
+    private LayoutIndex analyzeLayout(PDDocument document, ScratchSession scratch, PdfSource source, ExtractionMode mode,
+                                      int fromPage, int toPage) throws IOException {
+        if (mode == ExtractionMode.TEXT) {
+            CustomPDFTextStripper stripper = new CustomPDFTextStripper();
+            stripper.setSortByPosition(true);
+            stripper.setStartPage(fromPage + 1);
+            stripper.setEndPage(toPage);
+            stripper.getText(document);
+
+            List<Float> positions = stripper.getYPositions();
+            int[] textless = rasterProfileAnalyzer.isAutomatic()
+                    ? RasterProfileAnalyzer.textlessPages(document, fromPage, toPage, stripper.getPagesWithText())
+                    : new int[0];
+            float[] profiled = textless.length == 0 ? new float[0] : new DocumentLayout(document.getNumberOfPages(),
+                    parallelLayoutAnalyzer.profilePages(document, scratch.opener(source), textless)).allYPositions();
+            float[] yPositions = Arrays.copyOf(profiled, positions.size() + profiled.length);
+            for (int i = 0; i < positions.size(); i++) {
+                yPositions[profiled.length + i] = positions.get(i);
+            }
+            return LayoutIndex.build(yPositions, null);
         }
-        return segmentedFiles;
+
+        // Large documents are analysed in page chunks on the layout pool, each chunk with its own document
+        int pageCount = document.getNumberOfPages();
+        DocumentLayout layout;
+        if (parallelLayoutAnalyzer.shouldParallelize(toPage - fromPage, mode)) {
+            layout = parallelLayoutAnalyzer.analyze(scratch.opener(source), fromPage, toPage, pageCount, mode);
+        } else {
+            layout = new DocumentLayout(pageCount, parallelLayoutAnalyzer.analyzeInline(document, scratch.opener(source),
+                    fromPage, toPage, mode));
+        }
+        return LayoutIndex.build(layout.allYPositions(), layout);
+    }
+
+    List<Integer> findCutPositions(LayoutIndex index, int cuts) {
+        int[] positions = index.cutPositions(cuts);
+        List<Integer> cutPositions = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            cutPositions.add(position);
+        }
+        return cutPositions;
+    }
+
+    int splitPdf(PDDocument document, List<Integer> cutPositions, String originalFileName, SegmentSink sink) throws IOException {
+        return splitPdf(document, cutPositions, 0, document.getNumberOfPages(), originalFileName, sink);
+    }
+
+    // Segments come from pages [fromPage, toPage) only; there are never more segments than pages
+    int splitPdf(PDDocument document, List<Integer> cutPositions, int fromPage, int toPage,
+                 String originalFileName, SegmentSink sink) throws IOException {
+        SegmentWriter writer = new SegmentWriter(pruneResources);
+        int segmentCount = Math.min(cutPositions.size(), toPage - fromPage);
+        sink.begin(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            String newFileName = segmentName(originalFileName, i);
+            try (OutputStream out = sink.openSegment(i, newFileName)) {
+                writer.writePage(document, fromPage + i, out);
+            }
+        }
+        return segmentCount;
     }
 
     // Custom PDFTextStripper to extract Y positions
-    private static class CustomPDFTextStripper extends PDFTextStripper {
+    static class CustomPDFTextStripper extends PDFTextStripper {
         private final List<Float> yPositions = new ArrayList<>();
+        // 0-based indices of the pages any text was written for
+        private final BitSet pagesWithText = new BitSet();
 
         public CustomPDFTextStripper() throws IOException {
             super();
@@ -126,19 +489,30 @@ public class PdfSegmentationService {
             for (TextPosition position : textPositions) {
                 yPositions.add(position.getYDirAdj());
             }
+            if (!textPositions.isEmpty()) {
+                pagesWithText.set(getCurrentPageNo() - 1);
+            }
             super.writeString(text, textPositions);
         }
 
         public List<Float> getYPositions() {
             return yPositions;
         }
+
+        public BitSet getPagesWithText() {
+            return pagesWithText;
+        }
     }
 
     // Metadata class for assignment purposes
+    // Instances are shared through the MetadataStore; updates replace the stored instance
     public static class PdfMetadata {
-        private String pdfId;
-        private int segmentCount;
-        private int cuts;
+        private final String pdfId;
+        private final int segmentCount;
+        private volatile int cuts;
+        private volatile long spilledBytes;
+        private volatile PageRange pageRange;
+        private volatile ExtractionMode extractionMode;
 
         public PdfMetadata(String pdfId, int segmentCount, int cuts) {
             this.pdfId = pdfId;
@@ -161,5 +535,41 @@ public class PdfSegmentationService {
         public void setCuts(int cuts) {
             this.cuts = cuts;
         }
+
+        // Pages the document was segmented from, numbered from 1; null for the whole document
+        public Integer getFirstPage() {
+            return pageRange != null ? pageRange.getFirstPage() : null;
+        }
+
+        public Integer getLastPage() {
+            return pageRange != null ? pageRange.getLastPage() : null;
+        }
+
+        @JsonIgnore
+        public PageRange getPageRange() {
+            return pageRange;
+        }
+
+        public void setPageRange(PageRange pageRange) {
+            this.pageRange = pageRange;
+        }
+
+        // Extraction the document was segmented with, reused when it is re-segmented; null when unknown
+        public ExtractionMode getExtractionMode() {
+            return extractionMode;
+        }
+
+        public void setExtractionMode(ExtractionMode extractionMode) {
+            this.extractionMode = extractionMode;
+        }
+
+        // Peak bytes the job spilled to scratch files while processing the document
+        public long getSpilledBytes() {
+            return spilledBytes;
+        }
+
+        public void setSpilledBytes(long spilledBytes) {
+            this.spilledBytes = spilledBytes;
+        }
     }
 }
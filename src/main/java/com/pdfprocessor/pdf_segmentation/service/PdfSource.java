@@ -0,0 +1,152 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Content of a PDF to segment, either held on heap or in a file. Uploads are spooled into memory and
+// only spill to a file once they exceed the configured threshold, so small requests never touch disk.
+public final class PdfSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfSource.class);
+
+    private final String name;
+    private final byte[] bytes;
+    private final File file;
+    private final boolean ownsFile;
+
+    private PdfSource(String name, byte[] bytes, File file, boolean ownsFile) {
+        this.name = name;
+        this.bytes = bytes;
+        this.file = file;
+        this.ownsFile = ownsFile;
+    }
+
+    // An existing file; closing the source leaves it in place
+    public static PdfSource of(File file) {
+        return new PdfSource(file.getName(), null, file, false);
+    }
+
+    public static PdfSource of(String name, byte[] bytes) {
+        return new PdfSource(name, bytes, null, false);
+    }
+
+    public static PdfSource of(String name, ByteBuffer buffer) {
+        ByteBuffer content = buffer.duplicate();
+        if (content.hasArray() && content.arrayOffset() == 0 && content.position() == 0
+                && content.remaining() == content.array().length) {
+            return of(name, content.array());
+        }
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return of(name, bytes);
+    }
+
+    // Read the stream into memory; once more than spillThreshold bytes arrived, the content continues
+    // into a file in spillDirectory that is deleted when the source is closed
+    public static PdfSource spool(String name, InputStream in, long spillThreshold, Path spillDirectory) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+            if (buffer.size() > spillThreshold) {
+                return spill(name, buffer, in, spillDirectory);
+            }
+        }
+        return of(name, buffer.toByteArray());
+    }
+
+    private static PdfSource spill(String name, ByteArrayOutputStream head, InputStream rest, Path spillDirectory) throws IOException {
+        Files.createDirectories(spillDirectory);
+        File file = Files.createTempFile(spillDirectory, "upload-", ".pdf").toFile();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            head.writeTo(out);
+            rest.transferTo(out);
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        return new PdfSource(name, null, file, true);
+    }
+
+    // Name the document is stored under
+    public String getName() {
+        return name;
+    }
+
+    public long length() {
+        return bytes != null ? bytes.length : file.length();
+    }
+
+    public boolean isInMemory() {
+        return bytes != null;
+    }
+
+    // Backing file, or null when the content is held in memory
+    public File getFile() {
+        return file;
+    }
+
+    public InputStream openStream() throws IOException {
+        return bytes != null ? new ByteArrayInputStream(bytes) : Files.newInputStream(file.toPath());
+    }
+
+    // Write the content to a file, e.g. to retain it; a file-backed source only needs a copy
+    public void copyTo(Path target) throws IOException {
+        if (bytes != null) {
+            Files.write(target, bytes);
+        } else {
+            Files.copy(file.toPath(), target);
+        }
+    }
+
+    public PDDocument load(MemoryUsageSetting memoryUsageSetting) throws IOException {
+        if (bytes != null) {
+            return PDDocument.load(bytes, "", null, null, memoryUsageSetting);
+        }
+        return PDDocument.load(file, memoryUsageSetting);
+    }
+
+    // Parse only what pages [fromPage, toPage) need, so the cost follows the pages used rather than the
+    // document size; see LazyPdfParser. Falls back to a full load when the page tree has to be repaired.
+    public PDDocument load(MemoryUsageSetting memoryUsageSetting, int fromPage, int toPage) throws IOException {
+        RandomAccessRead content = bytes != null ? new RandomAccessBuffer(bytes) : new RandomAccessBufferedFileInputStream(file);
+        ScratchFile scratchFile = null;
+        try {
+            scratchFile = new ScratchFile(memoryUsageSetting);
+            LazyPdfParser parser = new LazyPdfParser(content, scratchFile, fromPage, toPage);
+            parser.parse();
+            return parser.getPDDocument();
+        } catch (IOException e) {
+            IOUtils.closeQuietly(scratchFile);
+            IOUtils.closeQuietly(content);
+            log.debug("Partial load of {} failed, loading the whole document: {}", name, e.getMessage());
+            return load(memoryUsageSetting);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsFile) {
+            file.delete();
+        }
+    }
+}
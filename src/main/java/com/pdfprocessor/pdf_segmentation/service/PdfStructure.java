@@ -0,0 +1,117 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import java.nio.charset.StandardCharsets;
+
+// Structural checks on the raw bytes of a PDF that need neither a parser nor the whole file: the header
+// near the start, and the startxref pointer and %%EOF marker near the end. They let uploads be rejected
+// while they are still arriving.
+public final class PdfStructure {
+
+    // The header may be preceded by junk, but has to start within the first 1024 bytes
+    public static final int HEADER_WINDOW = 1024;
+    // startxref and %%EOF are looked for in the last 2048 bytes, as PDFBox does
+    public static final int TRAILER_WINDOW = 2048;
+    // Bytes at the startxref offset that are enough to recognise a cross-reference table or stream
+    public static final int XREF_PROBE = 32;
+
+    private static final byte[] HEADER = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STARTXREF = "startxref".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EOF = "%%EOF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] XREF = "xref".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OBJ = "obj".getBytes(StandardCharsets.US_ASCII);
+
+    private PdfStructure() {
+    }
+
+    // Offset of a "%PDF-x.y" header within the first length bytes, or -1 when there is none
+    public static int findHeader(byte[] bytes, int length) {
+        int limit = Math.min(length, HEADER_WINDOW);
+        for (int i = 0; i + HEADER.length + 3 <= limit; i++) {
+            if (startsWith(bytes, i, limit, HEADER)
+                    && isDigit(bytes[i + HEADER.length])
+                    && bytes[i + HEADER.length + 1] == '.'
+                    && isDigit(bytes[i + HEADER.length + 2])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Value of the last "startxref" in the tail of a file, or -1 when it is missing, unreadable or not
+    // followed by %%EOF, i.e. the file was truncated
+    public static long findStartXref(byte[] tail, int length) {
+        int keyword = lastIndexOf(tail, length, STARTXREF);
+        if (keyword < 0) {
+            return -1;
+        }
+        int digits = skipWhitespace(tail, keyword + STARTXREF.length, length);
+        int i = digits;
+        long offset = 0;
+        while (i < length && isDigit(tail[i]) && i - digits < 18) {
+            offset = offset * 10 + (tail[i] - '0');
+            i++;
+        }
+        if (i == digits || lastIndexOf(tail, length, EOF) < i) {
+            return -1;
+        }
+        return offset;
+    }
+
+    // Whether the bytes at a startxref offset begin a cross-reference table ("xref") or a
+    // cross-reference stream ("n g obj")
+    public static boolean isXrefSection(byte[] bytes, int length) {
+        int i = skipWhitespace(bytes, 0, length);
+        if (startsWith(bytes, i, length, XREF)) {
+            return true;
+        }
+        for (int number = 0; number < 2; number++) {
+            int digits = i;
+            while (i < length && isDigit(bytes[i])) {
+                i++;
+            }
+            if (i == digits) {
+                return false;
+            }
+            int next = skipWhitespace(bytes, i, length);
+            if (next == i) {
+                return false;
+            }
+            i = next;
+        }
+        return startsWith(bytes, i, length, OBJ);
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int length, byte[] prefix) {
+        if (offset + prefix.length > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lastIndexOf(byte[] bytes, int length, byte[] pattern) {
+        for (int i = length - pattern.length; i >= 0; i--) {
+            if (startsWith(bytes, i, length, pattern)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] bytes, int offset, int length) {
+        int i = offset;
+        while (i < length && (bytes[i] == ' ' || bytes[i] == '\r' || bytes[i] == '\n' || bytes[i] == '\t'
+                || bytes[i] == '\f' || bytes[i] == 0)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
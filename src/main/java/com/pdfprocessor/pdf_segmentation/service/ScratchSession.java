@@ -0,0 +1,111 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.DocumentOpener;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Scratch directory and memory settings of a single segmentation job: one for the job's own document and a
+// smaller one for each document opened by a parallel worker, so that together they stay within the job's budget.
+// PDFBox scratch files only grow while a document is open, so sampling before a document
+// is closed gives the amount the job spilled to disk.
+public class ScratchSession implements Closeable {
+
+    private final File directory;
+    private final MemoryUsageSetting memoryUsageSetting;
+    private final MemoryUsageSetting workerMemoryUsageSetting;
+    private final AtomicLong spilledBytes = new AtomicLong();
+
+    ScratchSession(File directory, MemoryUsageSetting memoryUsageSetting, MemoryUsageSetting workerMemoryUsageSetting) {
+        this.directory = directory;
+        this.memoryUsageSetting = memoryUsageSetting;
+        this.workerMemoryUsageSetting = workerMemoryUsageSetting;
+    }
+
+    public PDDocument load(File pdfFile) throws IOException {
+        return load(PdfSource.of(pdfFile));
+    }
+
+    public PDDocument load(PdfSource source) throws IOException {
+        PDDocument document = source.load(memoryUsageSetting);
+        sample();
+        return document;
+    }
+
+    // Only pages [fromPage, toPage) are parsed
+    public PDDocument load(PdfSource source, int fromPage, int toPage) throws IOException {
+        PDDocument document = source.load(memoryUsageSetting, fromPage, toPage);
+        sample();
+        return document;
+    }
+
+    // Opener for workers that need their own copy of the document within the same budget; a worker
+    // that reads a page range only parses those pages
+    public DocumentOpener opener(PdfSource source) {
+        return opener(source, workerMemoryUsageSetting);
+    }
+
+    // Opener for the job's own documents when the job opens its pages a range at a time instead of loading
+    // the document once; it takes the job's share of the budget
+    public DocumentOpener rangeOpener(PdfSource source) {
+        return opener(source, memoryUsageSetting);
+    }
+
+    private DocumentOpener opener(PdfSource source, MemoryUsageSetting setting) {
+        return new DocumentOpener() {
+            @Override
+            public PDDocument open() throws IOException {
+                PDDocument document = source.load(setting);
+                sample();
+                return document;
+            }
+
+            @Override
+            public PDDocument open(int fromPage, int toPage) throws IOException {
+                PDDocument document = source.load(setting, fromPage, toPage);
+                sample();
+                return document;
+            }
+        };
+    }
+
+    // Record the current size of the scratch directory if it is the largest seen so far
+    public void sample() {
+        long current = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                current += file.length();
+            }
+        }
+        spilledBytes.accumulateAndGet(current, Math::max);
+    }
+
+    // Peak number of bytes this job held in scratch files
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    public MemoryUsageSetting getMemoryUsageSetting() {
+        return memoryUsageSetting;
+    }
+
+    public MemoryUsageSetting getWorkerMemoryUsageSetting() {
+        return workerMemoryUsageSetting;
+    }
+
+    @Override
+    public void close() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
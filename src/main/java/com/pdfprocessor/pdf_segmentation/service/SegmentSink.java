@@ -0,0 +1,16 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Destination for the segments produced by PdfSegmentationService.
+// Each segment is written to the stream returned by openSegment; closing that stream completes the segment.
+public interface SegmentSink {
+
+    // Called before the first segment is opened with the number of segments. With page streaming, segments
+    // are written before the count is known, so it is only the most there can be; fewer may follow.
+    default void begin(int segmentCount) throws IOException {
+    }
+
+    OutputStream openSegment(int index, String name) throws IOException;
+}
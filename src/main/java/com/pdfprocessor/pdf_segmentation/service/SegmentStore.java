@@ -0,0 +1,249 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Managed storage for the segments of processed documents, addressed by pdfId and segment index.
+// Every segmentation writes a new generation directory <segment-dir>/<pdfId>/<generation>/ and
+// publishes it by writing its manifest last, so readers only ever see complete sets. The previous
+// generation is kept until the next one is published so downloads that already started can finish.
+@Component
+public class SegmentStore {
+
+    private static final String MANIFEST = "segments.txt";
+
+    private final Path root;
+    private final AtomicLong lastGeneration = new AtomicLong();
+    private final Map<String, Generation> current = new ConcurrentHashMap<>();
+
+    public SegmentStore(@Value("${pdf.segmentation.segment-dir:${java.io.tmpdir}/pdf-segmentation-segments}") String segmentDir) {
+        this.root = Paths.get(segmentDir);
+    }
+
+    // Start writing a new generation of segments for the document; nothing is visible until commit
+    public Writer open(String pdfId) throws IOException {
+        Path directory = documentDirectory(pdfId).resolve(String.valueOf(nextGeneration()));
+        Files.createDirectories(directory);
+        return new Writer(pdfId, directory);
+    }
+
+    // Segment file at a 0-based index, or null when the document or index is unknown
+    public Segment getSegment(String pdfId, int index) {
+        Generation generation = currentGeneration(pdfId);
+        if (generation == null || index < 0 || index >= generation.names.size()) {
+            return null;
+        }
+        File file = generation.directory.resolve(generation.names.get(index)).toFile();
+        return file.isFile() ? new Segment(generation.id, index, generation.names.get(index), file) : null;
+    }
+
+    // Segment files in production order; empty when the document is unknown
+    public List<File> getSegments(String pdfId) {
+        Generation generation = currentGeneration(pdfId);
+        if (generation == null) {
+            return List.of();
+        }
+        List<File> files = new ArrayList<>(generation.names.size());
+        for (String name : generation.names) {
+            files.add(generation.directory.resolve(name).toFile());
+        }
+        return files;
+    }
+
+    public int getSegmentCount(String pdfId) {
+        Generation generation = currentGeneration(pdfId);
+        return generation == null ? 0 : generation.names.size();
+    }
+
+    // Delete every generation of the document; returns false when nothing was stored
+    public boolean remove(String pdfId) {
+        current.remove(pdfId);
+        Path directory = documentDirectory(pdfId);
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        deleteRecursively(directory);
+        return true;
+    }
+
+    private Generation currentGeneration(String pdfId) {
+        Generation generation = current.get(pdfId);
+        if (generation != null) {
+            return generation;
+        }
+        // Not published by this process, e.g. after a restart: pick the newest committed generation on disk
+        generation = newestCommitted(documentDirectory(pdfId));
+        if (generation == null) {
+            return null;
+        }
+        return current.merge(pdfId, generation, (existing, candidate) -> existing.id >= candidate.id ? existing : candidate);
+    }
+
+    private void publish(String pdfId, Generation generation) {
+        Generation published = current.merge(pdfId, generation,
+                (existing, candidate) -> existing.id >= candidate.id ? existing : candidate);
+        // Keep the published generation and the one before it; older committed generations are deleted
+        Path documentDirectory = documentDirectory(pdfId);
+        try (Stream<Path> generations = Files.list(documentDirectory)) {
+            generations.filter(path -> Files.isRegularFile(path.resolve(MANIFEST)))
+                    .map(SegmentStore::parseGeneration)
+                    .filter(id -> id >= 0 && id < published.id)
+                    .sorted(Collections.reverseOrder())
+                    .skip(1)
+                    .forEach(id -> deleteRecursively(documentDirectory.resolve(String.valueOf(id))));
+        } catch (IOException e) {
+            // Old generations are removed on the next publish or remove
+        }
+    }
+
+    private Generation newestCommitted(Path documentDirectory) {
+        if (!Files.isDirectory(documentDirectory)) {
+            return null;
+        }
+        try (Stream<Path> generations = Files.list(documentDirectory)) {
+            Path newest = generations.filter(path -> parseGeneration(path) >= 0 && Files.isRegularFile(path.resolve(MANIFEST)))
+                    .max((a, b) -> Long.compare(parseGeneration(a), parseGeneration(b)))
+                    .orElse(null);
+            if (newest == null) {
+                return null;
+            }
+            lastGeneration.accumulateAndGet(parseGeneration(newest), Math::max);
+            return new Generation(parseGeneration(newest), newest, Files.readAllLines(newest.resolve(MANIFEST), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Monotonic across restarts as long as the clock does not jump backwards
+    private long nextGeneration() {
+        return lastGeneration.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+
+    private Path documentDirectory(String pdfId) {
+        // Ids are file names; encode them so they can never escape the segment directory
+        return root.resolve(URLEncoder.encode(new File(pdfId).getName(), StandardCharsets.UTF_8));
+    }
+
+    private static long parseGeneration(Path path) {
+        try {
+            return Long.parseLong(path.getFileName().toString());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Collections.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    private static final class Generation {
+        final long id;
+        final Path directory;
+        final List<String> names;
+
+        Generation(long id, Path directory, List<String> names) {
+            this.id = id;
+            this.directory = directory;
+            this.names = names;
+        }
+    }
+
+    // A stored segment; the version changes whenever the document is segmented again
+    public static final class Segment {
+        private final long generation;
+        private final int index;
+        private final String name;
+        private final File file;
+
+        Segment(long generation, int index, String name, File file) {
+            this.generation = generation;
+            this.index = index;
+            this.name = name;
+            this.file = file;
+        }
+
+        public String getVersion() {
+            return generation + "-" + index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public File getFile() {
+            return file;
+        }
+    }
+
+    // Sink that writes one generation; commit publishes it, abort discards it
+    public class Writer implements SegmentSink {
+        private final String pdfId;
+        private final Path directory;
+        private final List<String> names = new ArrayList<>();
+        private boolean finished;
+
+        private Writer(String pdfId, Path directory) {
+            this.pdfId = pdfId;
+            this.directory = directory;
+        }
+
+        @Override
+        public OutputStream openSegment(int index, String name) throws IOException {
+            // Segment names repeat when the id has no .pdf extension; keep the files apart
+            String fileName = new File(name).getName();
+            if (names.contains(fileName)) {
+                fileName = (index + 1) + "_" + fileName;
+            }
+            names.add(fileName);
+            return new BufferedOutputStream(new FileOutputStream(directory.resolve(fileName).toFile()));
+        }
+
+        public void commit() throws IOException {
+            Path manifest = directory.resolve(MANIFEST);
+            Path temporary = directory.resolve(MANIFEST + ".tmp");
+            Files.write(temporary, names, StandardCharsets.UTF_8);
+            Files.move(temporary, manifest, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            finished = true;
+            publish(pdfId, new Generation(parseGeneration(directory), directory, List.copyOf(names)));
+        }
+
+        public void abort() {
+            if (!finished) {
+                finished = true;
+                deleteRecursively(directory);
+            }
+        }
+
+        public List<File> getFiles() {
+            List<File> files = new ArrayList<>(names.size());
+            for (String name : names) {
+                files.add(directory.resolve(name).toFile());
+            }
+            return files;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.PageRegion;
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Writes segment documents from pages of an open source document. Every page is a shallow copy of the
+// source page dictionary: content streams, fonts and images are shared with the source and written in
+// their encoded form, and the source pages are never modified. Per segment, only what the segment
+// references is written:
+//   - resource dictionaries shared by many pages are reduced to the entries the page's content uses;
+//   - annotations point at the copied page, and links, popups and replies that lead to pages or
+//     annotations outside the segment are dropped, as they would pull the source page tree along;
+//   - article beads and structure tree references, which also lead back into the source, are removed.
+final class SegmentWriter {
+
+    // Resource categories that content streams select by name
+    private static final Set<COSName> NAMED_RESOURCES = new HashSet<>(Arrays.asList(
+            COSName.FONT, COSName.XOBJECT, COSName.EXT_G_STATE, COSName.COLORSPACE,
+            COSName.PATTERN, COSName.SHADING, COSName.PROPERTIES));
+    // Applied without being named by the content
+    private static final Set<COSName> DEFAULT_COLOR_SPACES = new HashSet<>(Arrays.asList(
+            COSName.DEFAULT_GRAY, COSName.DEFAULT_RGB, COSName.DEFAULT_CMYK));
+    private static final COSName POPUP = COSName.getPDFName("Popup");
+    private static final COSName IRT = COSName.getPDFName("IRT");
+    // Forms may draw forms; pages nested deeper than this keep their resources unpruned
+    private static final int MAX_FORM_DEPTH = 8;
+
+    private final boolean pruneResources;
+
+    SegmentWriter(boolean pruneResources) {
+        this.pruneResources = pruneResources;
+    }
+
+    // A segment holding the whole page
+    void writePage(PDDocument document, int pageIndex, OutputStream out) throws IOException {
+        write(document, new int[]{pageIndex}, null, out);
+    }
+
+    // A segment holding one page per region, each cropped to its region
+    void write(PDDocument document, List<PageRegion> regions, OutputStream out) throws IOException {
+        int[] pageIndices = new int[regions.size()];
+        for (int i = 0; i < pageIndices.length; i++) {
+            pageIndices[i] = regions.get(i).getPageIndex();
+        }
+        write(document, pageIndices, regions, out);
+    }
+
+    private void write(PDDocument document, int[] pageIndices, List<PageRegion> regions, OutputStream out) throws IOException {
+        Map<COSDictionary, COSDictionary> copiedPages = new IdentityHashMap<>();
+        try (PDDocument segment = new PDDocument()) {
+            PDPage[] sources = new PDPage[pageIndices.length];
+            PDPage[] pages = new PDPage[pageIndices.length];
+            for (int i = 0; i < pageIndices.length; i++) {
+                sources[i] = document.getPage(pageIndices[i]);
+                pages[i] = copyPage(sources[i], regions != null ? regions.get(i) : null);
+                // A page split across two regions of one segment is linked to its first copy
+                copiedPages.putIfAbsent(sources[i].getCOSObject(), pages[i].getCOSObject());
+            }
+            for (int i = 0; i < pages.length; i++) {
+                copyAnnotations(sources[i], pages[i], copiedPages);
+                segment.addPage(pages[i]);
+            }
+            segment.save(out);
+        }
+    }
+
+    // Copy of the page dictionary, cropped to the region unless it is null. Attributes the page inherits from its
+    // page tree are resolved before the copy is moved to the segment's tree.
+    PDPage copyPage(PDPage source, PageRegion region) throws IOException {
+        COSDictionary dictionary = new COSDictionary(source.getCOSObject());
+        dictionary.removeItem(COSName.PARENT);
+        dictionary.removeItem(COSName.B);
+        dictionary.removeItem(COSName.STRUCT_PARENTS);
+        dictionary.removeItem(COSName.ANNOTS);
+        PDPage page = new PDPage(dictionary);
+        page.setMediaBox(source.getMediaBox());
+        page.setRotation(source.getRotation());
+        PDResources resources = source.getResources();
+        page.setResources(pruneResources && resources != null ? prune(source, resources) : resources);
+
+        if (region != null) {
+            PDRectangle cropBox = source.getCropBox();
+            float upperY = cropBox.getUpperRightY();
+            page.setCropBox(new PDRectangle(cropBox.getLowerLeftX(), upperY - region.getBottom(),
+                    cropBox.getWidth(), region.getBottom() - region.getTop()));
+        }
+        return page;
+    }
+
+    // The page's resources reduced to the named entries its content uses. Forms and Type 3 fonts without
+    // resources of their own draw with the page's, so their names count as used as well.
+    private static PDResources prune(PDPage page, PDResources resources) throws IOException {
+        Set<COSName> used = new HashSet<>();
+        if (!collectNames(page, used)) {
+            return resources;
+        }
+        COSDictionary source = resources.getCOSObject();
+        boolean complete = false;
+        for (int depth = 0; depth < MAX_FORM_DEPTH && !complete; depth++) {
+            int added = collectInheritingContent(source, used);
+            if (added < 0) {
+                return resources;
+            }
+            complete = added == 0;
+        }
+        if (!complete) {
+            // The last level still added names, so deeper levels may use entries that were not collected
+            return resources;
+        }
+
+        COSDictionary pruned = new COSDictionary();
+        for (Map.Entry<COSName, COSBase> category : source.entrySet()) {
+            COSBase value = resolve(category.getValue());
+            if (!NAMED_RESOURCES.contains(category.getKey()) || !(value instanceof COSDictionary)) {
+                pruned.setItem(category.getKey(), category.getValue());
+                continue;
+            }
+            COSDictionary kept = new COSDictionary();
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) value).entrySet()) {
+                if (used.contains(entry.getKey()) || DEFAULT_COLOR_SPACES.contains(entry.getKey())) {
+                    // Keep indirect references, so objects shared by several pages are written once
+                    kept.setItem(entry.getKey(), entry.getValue());
+                }
+            }
+            if (kept.size() > 0) {
+                pruned.setItem(category.getKey(), kept);
+            }
+        }
+        return new PDResources(pruned);
+    }
+
+    // Add the names of used forms and Type 3 fonts that have no resources of their own. Returns the number
+    // of names added, or -1 when some content could not be scanned reliably.
+    private static int collectInheritingContent(COSDictionary resources, Set<COSName> used) throws IOException {
+        int before = used.size();
+        for (COSName category : new COSName[]{COSName.XOBJECT, COSName.FONT}) {
+            COSBase named = resolve(resources.getItem(category));
+            if (!(named instanceof COSDictionary)) {
+                continue;
+            }
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) named).entrySet()) {
+                COSBase value = resolve(entry.getValue());
+                if (!used.contains(entry.getKey()) || !(value instanceof COSDictionary)
+                        || ((COSDictionary) value).containsKey(COSName.RESOURCES)) {
+                    continue;
+                }
+                boolean scanned = true;
+                if (value instanceof COSStream && COSName.FORM.equals(((COSStream) value).getCOSName(COSName.SUBTYPE))) {
+                    scanned = collectNames(new PDFormXObject(new PDStream((COSStream) value)), used);
+                } else if (COSName.TYPE3.equals(((COSDictionary) value).getCOSName(COSName.SUBTYPE))) {
+                    COSBase charProcs = resolve(((COSDictionary) value).getItem(COSName.CHAR_PROCS));
+                    if (charProcs instanceof COSDictionary) {
+                        for (COSBase glyph : ((COSDictionary) charProcs).getValues()) {
+                            if (resolve(glyph) instanceof COSStream) {
+                                scanned &= collectNames(new PDFormXObject(new PDStream((COSStream) resolve(glyph))), used);
+                            }
+                        }
+                    }
+                }
+                if (!scanned) {
+                    return -1;
+                }
+            }
+        }
+        return used.size() - before;
+    }
+
+    // Every name token in the content, a superset of the resource names it selects. The decoded bytes are
+    // scanned for names directly instead of being tokenized, as splitting must not cost a second parse.
+    // Returns false for names outside ASCII, whose decoding may not match the parsed resource keys.
+    private static boolean collectNames(PDContentStream content, Set<COSName> names) throws IOException {
+        byte[] bytes;
+        try (InputStream in = content.getContents()) {
+            bytes = in.readAllBytes();
+        }
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '/') {
+                continue;
+            }
+            name.setLength(0);
+            int end = i + 1;
+            while (end < bytes.length && isRegular(bytes[end])) {
+                // #xx escapes a byte of the name
+                if (bytes[end] == '#' && end + 2 < bytes.length
+                        && Character.digit(bytes[end + 1], 16) >= 0 && Character.digit(bytes[end + 2], 16) >= 0) {
+                    name.append((char) (Character.digit(bytes[end + 1], 16) * 16 + Character.digit(bytes[end + 2], 16)));
+                    end += 3;
+                } else {
+                    name.append((char) (bytes[end++] & 0xFF));
+                }
+                if (name.charAt(name.length() - 1) > 0x7F) {
+                    return false;
+                }
+            }
+            if (name.length() > 0) {
+                names.add(COSName.getPDFName(name.toString()));
+            }
+            i = end - 1;
+        }
+        return true;
+    }
+
+    private static boolean isRegular(byte b) {
+        switch (b) {
+            case 0: case '\t': case '\n': case '\f': case '\r': case ' ':
+            case '(': case ')': case '<': case '>': case '[': case ']': case '{': case '}': case '/': case '%':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    // Annotations are copied with the page; references to pages and annotations outside the segment are removed
+    private static void copyAnnotations(PDPage source, PDPage page, Map<COSDictionary, COSDictionary> copiedPages) {
+        COSBase annotations = resolve(source.getCOSObject().getItem(COSName.ANNOTS));
+        if (!(annotations instanceof COSArray)) {
+            return;
+        }
+        Map<COSDictionary, COSDictionary> copies = new IdentityHashMap<>();
+        COSArray copied = new COSArray();
+        for (COSBase item : (COSArray) annotations) {
+            COSBase annotation = resolve(item);
+            if (annotation instanceof COSDictionary && !copies.containsKey(annotation)) {
+                COSDictionary copy = new COSDictionary((COSDictionary) annotation);
+                copies.put((COSDictionary) annotation, copy);
+                copied.add(copy);
+            }
+        }
+
+        for (COSBase item : copied) {
+            COSDictionary copy = (COSDictionary) item;
+            copy.setItem(COSName.P, page.getCOSObject());
+            copy.removeItem(COSName.STRUCT_PARENT);
+            copy.removeItem(COSName.NEXT);
+            // Widgets lose their field, whose other widgets live on other pages; the appearance stays
+            if (COSName.WIDGET.equals(copy.getCOSName(COSName.SUBTYPE))) {
+                copy.removeItem(COSName.PARENT);
+            } else {
+                relink(copy, COSName.PARENT, copies);
+            }
+            relink(copy, POPUP, copies);
+            relink(copy, IRT, copies);
+            retarget(copy, COSName.DEST, copiedPages);
+            COSBase action = resolve(copy.getItem(COSName.A));
+            if (action instanceof COSDictionary) {
+                COSDictionary actionCopy = new COSDictionary((COSDictionary) action);
+                actionCopy.removeItem(COSName.NEXT);
+                copy.setItem(COSName.A, actionCopy);
+                if (!retarget(actionCopy, COSName.D, copiedPages)) {
+                    copy.removeItem(COSName.A);
+                }
+            }
+        }
+        page.getCOSObject().setItem(COSName.ANNOTS, copied);
+    }
+
+    // Point a reference to another annotation of the page at its copy, or drop it
+    private static void relink(COSDictionary copy, COSName key, Map<COSDictionary, COSDictionary> copies) {
+        COSBase target = resolve(copy.getItem(key));
+        if (target == null) {
+            return;
+        }
+        COSDictionary relinked = target instanceof COSDictionary ? copies.get(target) : null;
+        if (relinked != null) {
+            copy.setItem(key, relinked);
+        } else {
+            copy.removeItem(key);
+        }
+    }
+
+    // Point an explicit destination at the copied page, or drop it when the page is not in the segment.
+    // Named destinations are left alone. Returns false when the destination was dropped.
+    private static boolean retarget(COSDictionary dictionary, COSName key, Map<COSDictionary, COSDictionary> copiedPages) {
+        COSBase destination = resolve(dictionary.getItem(key));
+        if (!(destination instanceof COSArray) || ((COSArray) destination).size() == 0) {
+            return true;
+        }
+        COSBase target = resolve(((COSArray) destination).get(0));
+        if (!(target instanceof COSDictionary)) {
+            // Remote destinations name the page by number
+            return true;
+        }
+        COSDictionary copiedPage = copiedPages.get(target);
+        if (copiedPage == null) {
+            dictionary.removeItem(key);
+            return false;
+        }
+        COSArray retargeted = new COSArray();
+        retargeted.addAll((COSArray) destination);
+        retargeted.set(0, copiedPage);
+        dictionary.setItem(key, retargeted);
+        return true;
+    }
+
+    private static COSBase resolve(COSBase value) {
+        return value instanceof COSObject ? ((COSObject) value).getObject() : value;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The files of one batch request, spooled into a private directory until the batch has been written.
+// Files that failed validation stay in the batch as errors so they are reported in the manifest.
+public class SegmentationBatch implements Closeable {
+
+    private final Path directory;
+    private final List<Item> items = new ArrayList<>();
+
+    SegmentationBatch(Path directory) {
+        this.directory = directory;
+    }
+
+    // Each file gets its own subdirectory so duplicate names within a batch do not collide
+    public void addFile(String name, int cuts, InputStream content) throws IOException {
+        String fileName = new File(name).getName();
+        Path itemDirectory = Files.createDirectory(directory.resolve(String.valueOf(items.size())));
+        Path source = itemDirectory.resolve(fileName);
+        Files.copy(content, source);
+        items.add(new Item(fileName, cuts, source.toFile(), null));
+    }
+
+    public void addError(String name, int cuts, String error) {
+        items.add(new Item(new File(name).getName(), cuts, null, error));
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    List<Item> items() {
+        return Collections.unmodifiableList(items);
+    }
+
+    @Override
+    public void close() {
+        try (var paths = Files.walk(directory)) {
+            paths.sorted(Collections.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            // Best effort; the batch root is under the temp directory
+        }
+    }
+
+    static final class Item {
+        final String name;
+        final int cuts;
+        final File source;
+        final String error;
+
+        Item(String name, int cuts, File source, String error) {
+            this.name = name;
+            this.cuts = cuts;
+            this.source = source;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+
+import java.io.File;
+import java.time.Instant;
+
+// State of an asynchronous segmentation job as reported to polling clients
+public class SegmentationJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String jobId;
+    private final String fileName;
+    private final int cuts;
+    private final ExtractionMode extractionMode;
+    private final Instant submittedAt;
+    private final File workDirectory;
+
+    private volatile Status status = Status.QUEUED;
+    private volatile int segmentCount = -1;
+    private volatile int segmentsWritten;
+    private volatile String error;
+    private volatile Instant finishedAt;
+
+    SegmentationJob(String jobId, String fileName, int cuts, ExtractionMode extractionMode, File workDirectory) {
+        this.jobId = jobId;
+        this.fileName = fileName;
+        this.cuts = cuts;
+        this.extractionMode = extractionMode;
+        this.workDirectory = workDirectory;
+        this.submittedAt = Instant.now();
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getCuts() {
+        return cuts;
+    }
+
+    // Null uses the configured mode
+    public ExtractionMode getExtractionMode() {
+        return extractionMode;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // Number of segments the job produces, or -1 while it is not known yet. With page streaming it is the most
+    // there can be until the job completes.
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public int getSegmentsWritten() {
+        return segmentsWritten;
+    }
+
+    // Fraction of the segments written so far, between 0 and 1
+    public double getProgress() {
+        if (status == Status.COMPLETED) {
+            return 1.0;
+        }
+        int total = segmentCount;
+        return total <= 0 ? 0.0 : (double) segmentsWritten / total;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    File workDirectory() {
+        return workDirectory;
+    }
+
+    File sourceFile() {
+        return new File(workDirectory, fileName);
+    }
+
+    File resultFile() {
+        return new File(workDirectory, "segmented_pdfs.zip");
+    }
+
+    void markRunning() {
+        status = Status.RUNNING;
+    }
+
+    void planSegments(int segmentCount) {
+        this.segmentCount = segmentCount;
+    }
+
+    void segmentWritten() {
+        segmentsWritten++;
+    }
+
+    void markCompleted() {
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+    }
+
+    void markFailed(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+    }
+}
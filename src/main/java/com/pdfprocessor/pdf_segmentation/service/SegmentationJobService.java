@@ -0,0 +1,242 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.archive.SegmentArchiver;
+import com.pdfprocessor.pdf_segmentation.archive.ZipArchive;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.scheduler.PdfWorkScheduler;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs segmentations off the servlet threads on a bounded executor. When all workers are busy and the
+// queue is full, new submissions are rejected instead of piling up.
+@Service
+public class SegmentationJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentationJobService.class);
+
+    @Autowired
+    private PdfSegmentationService pdfSegmentationService;
+
+    @Autowired
+    private SegmentArchiver segmentArchiver;
+
+    @Autowired
+    private PdfWorkScheduler pdfWorkScheduler;
+
+    private final ThreadPoolExecutor executor;
+    private final Path workRoot;
+    private final int maxRetainedJobs;
+    private final Map<String, SegmentationJob> jobs = new ConcurrentHashMap<>();
+
+    // Finished jobs and their archives are dropped this long after they finished, even if never downloaded
+    @Value("${pdf.segmentation.jobs.retention:1h}")
+    private Duration retention = Duration.ofHours(1);
+
+    public SegmentationJobService(@Value("${pdf.segmentation.jobs.threads:2}") int threads,
+                                  @Value("${pdf.segmentation.jobs.queue-capacity:16}") int queueCapacity,
+                                  @Value("${pdf.segmentation.jobs.max-retained:100}") int maxRetainedJobs,
+                                  @Value("${pdf.segmentation.jobs.work-dir:${java.io.tmpdir}/pdf-segmentation-jobs}") String workDir) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "segmentation-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxRetainedJobs = maxRetainedJobs;
+        this.workRoot = Paths.get(workDir);
+    }
+
+    // Spool the upload and queue the job. Throws RejectedExecutionException when the queue is full.
+    public SegmentationJob submit(InputStream upload, String fileName, int cuts) throws IOException {
+        return submit(upload, fileName, cuts, null);
+    }
+
+    // Same with an extraction mode chosen for this job; null uses the configured mode
+    public SegmentationJob submit(InputStream upload, String fileName, int cuts, ExtractionMode mode) throws IOException {
+        if (cuts <= 0) {
+            throw new IllegalArgumentException("Number of cuts must be greater than zero.");
+        }
+        if (isSaturated()) {
+            throw new RejectedExecutionException("Segmentation queue is full");
+        }
+
+        String jobId = UUID.randomUUID().toString();
+        Files.createDirectories(workRoot);
+        File workDirectory = Files.createDirectory(workRoot.resolve(jobId)).toFile();
+        SegmentationJob job = new SegmentationJob(jobId, new File(fileName).getName(), cuts, mode, workDirectory);
+        Files.copy(upload, job.sourceFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        jobs.put(jobId, job);
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            deleteFiles(job);
+            throw e;
+        }
+        evictFinishedJobs();
+        return job;
+    }
+
+    public SegmentationJob getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    // ZIP archive of a completed job, or null when the job is unknown or not completed
+    public File getResult(String jobId) {
+        SegmentationJob job = jobs.get(jobId);
+        if (job == null || job.getStatus() != SegmentationJob.Status.COMPLETED) {
+            return null;
+        }
+        return job.resultFile();
+    }
+
+    public boolean deleteJob(String jobId) {
+        SegmentationJob job = jobs.remove(jobId);
+        if (job == null) {
+            return false;
+        }
+        if (job.isFinished()) {
+            deleteFiles(job);
+        }
+        return true;
+    }
+
+    public boolean isSaturated() {
+        return executor.getActiveCount() >= executor.getMaximumPoolSize() && executor.getQueue().remainingCapacity() == 0;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    // Job threads only bound how many jobs run at once; the work itself runs on the shared CPU pool
+    private void run(SegmentationJob job) {
+        job.markRunning();
+        try {
+            pdfWorkScheduler.submitCpu(() -> {
+                segment(job);
+                return null;
+            }).get();
+            job.markCompleted();
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            log.warn("Segmentation job {} failed", job.getJobId(), cause);
+            job.markFailed(cause.getMessage());
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            job.sourceFile().delete();
+            if (!jobs.containsKey(job.getJobId())) {
+                // Deleted while running
+                deleteFiles(job);
+            }
+        }
+    }
+
+    private void segment(SegmentationJob job) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(job.resultFile()))) {
+            ZipArchive zipSink = segmentArchiver.open(out);
+            PdfSegmentationService.PdfMetadata metadata = pdfSegmentationService.segmentPdf(job.sourceFile(), job.getCuts(),
+                    job.getExtractionMode(), new SegmentSink() {
+                @Override
+                public void begin(int segmentCount) throws IOException {
+                    job.planSegments(segmentCount);
+                    zipSink.begin(segmentCount);
+                }
+
+                @Override
+                public OutputStream openSegment(int index, String name) throws IOException {
+                    // The previous segment is complete once the next one is opened
+                    if (index > 0) {
+                        job.segmentWritten();
+                    }
+                    return zipSink.openSegment(index, name);
+                }
+            });
+            zipSink.finish();
+            // With page streaming the planned count was only an upper bound
+            job.planSegments(metadata.getSegmentCount());
+            if (job.getSegmentCount() > 0) {
+                job.segmentWritten();
+            }
+        }
+    }
+
+    // Submissions evict as well, but without a sweep the results of the last jobs would stay until the next one
+    @Scheduled(fixedDelayString = "${pdf.segmentation.jobs.sweep-interval:PT1M}")
+    public void sweepFinishedJobs() {
+        Instant expiry = Instant.now().minus(retention);
+        jobs.values().stream()
+                .filter(job -> job.isFinished() && job.getFinishedAt().isBefore(expiry))
+                .forEach(this::evict);
+        evictFinishedJobs();
+    }
+
+    // Keep at most maxRetainedJobs finished jobs, dropping the oldest results first
+    private void evictFinishedJobs() {
+        long finished = jobs.values().stream().filter(SegmentationJob::isFinished).count();
+        if (finished <= maxRetainedJobs) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(SegmentationJob::isFinished)
+                .sorted(Comparator.comparing(SegmentationJob::getFinishedAt))
+                .limit(finished - maxRetainedJobs)
+                .forEach(this::evict);
+    }
+
+    // Only the caller that removes the job deletes its files, so a concurrent delete or sweep does not race it
+    private void evict(SegmentationJob job) {
+        if (jobs.remove(job.getJobId(), job)) {
+            deleteFiles(job);
+        }
+    }
+
+    private void deleteFiles(SegmentationJob job) {
+        File[] files = job.workDirectory().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        job.workDirectory().delete();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
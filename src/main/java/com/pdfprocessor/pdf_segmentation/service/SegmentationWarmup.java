@@ -0,0 +1,120 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.archive.SegmentArchiver;
+import com.pdfprocessor.pdf_segmentation.archive.ZipArchive;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Startup warm-up: loads (or builds and persists) the PDFBox font cache and runs a few small synthetic
+// documents through the whole pipeline, so the first real request does not pay for the font scan, class
+// loading and cold code. Spring Boot only reports the application ready once every ApplicationRunner
+// returned, so /actuator/health/readiness stays DOWN until the warm-up is done.
+// The font cache lives where the pdfbox.fontcache system property points, which is read once by PDFBox and
+// therefore set on the JVM command line rather than here. Warm-up documents bypass the result cache and are
+// not retained or recorded; they do show up in the job metrics.
+@Component
+public class SegmentationWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentationWarmup.class);
+
+    private final boolean enabled;
+    private final int iterations;
+    private final boolean exitAfterWarmup;
+
+    @Autowired
+    private PdfSegmentationService pdfSegmentationService;
+
+    @Autowired
+    private SegmentArchiver segmentArchiver;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    public SegmentationWarmup(@Value("${pdf.segmentation.warmup.enabled:true}") boolean enabled,
+                              @Value("${pdf.segmentation.warmup.iterations:3}") int iterations,
+                              @Value("${pdf.segmentation.warmup.exit:false}") boolean exitAfterWarmup) {
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.exitAfterWarmup = exitAfterWarmup;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            try {
+                warmUp();
+            } catch (Exception e) {
+                // A cold first request is better than an instance that never starts
+                log.warn("Warm-up failed, continuing without it", e);
+            }
+        }
+        if (exitAfterWarmup) {
+            // Training run of the class data sharing archive: the JVM writes the archive on exit
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    // Returns the number of documents segmented
+    public int warmUp() throws IOException {
+        long started = System.nanoTime();
+        FontMappers.instance().getFontBoxFont("Helvetica", null);
+        long fontsReady = System.nanoTime();
+
+        for (int i = 0; i < iterations; i++) {
+            // The documents are the same on every start, so a persistent result cache would answer them unparsed
+            try (PdfSource source = PdfSource.of("warmup-" + i + ".pdf", syntheticDocument(i));
+                 OutputStream out = OutputStream.nullOutputStream()) {
+                ZipArchive archive = segmentArchiver.open(out);
+                pdfSegmentationService.segmentUncached(source, 2, archive);
+                archive.finish();
+            }
+        }
+        log.info("Warm-up done in {} ms (font cache {} ms, {} documents)", (System.nanoTime() - started) / 1_000_000,
+                (fontsReady - started) / 1_000_000, iterations);
+        return iterations;
+    }
+
+    // Three pages of text blocks separated by whitespace, using a standard font like most uploads
+    static byte[] syntheticDocument(int variant) throws IOException {
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int p = 0; p < 3; p++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    float y = page.getMediaBox().getHeight() - 60;
+                    for (int block = 0; block < 4; block++) {
+                        for (int line = 0; line < 3; line++) {
+                            content.beginText();
+                            content.newLineAtOffset(50, y);
+                            content.showText("Warm-up " + variant + " page " + (p + 1) + " block " + (block + 1) + " line " + (line + 1));
+                            content.endText();
+                            y -= 12;
+                        }
+                        y -= 20 + 10 * block;
+                    }
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
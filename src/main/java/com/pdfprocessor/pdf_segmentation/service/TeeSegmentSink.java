@@ -0,0 +1,56 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Writes every segment to two sinks, e.g. the response and the segment store
+class TeeSegmentSink implements SegmentSink {
+
+    private final SegmentSink first;
+    private final SegmentSink second;
+
+    TeeSegmentSink(SegmentSink first, SegmentSink second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    @Override
+    public void begin(int segmentCount) throws IOException {
+        first.begin(segmentCount);
+        second.begin(segmentCount);
+    }
+
+    @Override
+    public OutputStream openSegment(int index, String name) throws IOException {
+        OutputStream firstOut = first.openSegment(index, name);
+        OutputStream secondOut = second.openSegment(index, name);
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                firstOut.write(b);
+                secondOut.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                firstOut.write(b, off, len);
+                secondOut.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                firstOut.flush();
+                secondOut.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    firstOut.close();
+                } finally {
+                    secondOut.close();
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,187 @@
+package com.pdfprocessor.pdf_segmentation.store;
+
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.service.PageRange;
+import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService.PdfMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Durable metadata store: every change is appended to a log file and all reads are served by an
+// InMemoryMetadataStore. On startup the log is replayed sequentially, and it is compacted into a
+// snapshot of the live entries once it holds mostly superseded records.
+//
+// Record format, one per line: P <id> <writtenAt> <segmentCount> <cuts> <spilledBytes> <firstPage> <lastPage> <mode>
+// | D <id>, where a mode of "-" stands for the configured one
+public class FileMetadataStore implements MetadataStore, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(FileMetadataStore.class);
+
+    private final Path logFile;
+    private final InMemoryMetadataStore memory;
+    private BufferedWriter writer;
+    private long records;
+
+    public FileMetadataStore(Path logFile, Duration ttl, int maxEntries) throws IOException {
+        this.logFile = logFile;
+        // Expiries found by a read are removed and logged under this store's monitor, like every other change
+        this.memory = new InMemoryMetadataStore(ttl, maxEntries, this);
+        if (logFile.getParent() != null) {
+            Files.createDirectories(logFile.getParent());
+        }
+        replay();
+        compact();
+        // Evictions are logged so that they are not resurrected by the next replay
+        memory.addEvictionListener(metadata -> append("D\t" + encode(metadata.getPdfId())));
+    }
+
+    @Override
+    public PdfMetadata get(String pdfId) {
+        return memory.get(pdfId);
+    }
+
+    // A change and its record are made under one monitor, so the log replays them in the order they were applied
+    @Override
+    public synchronized void put(PdfMetadata metadata) {
+        long writtenAt = System.currentTimeMillis();
+        memory.put(metadata, writtenAt);
+        append(putRecord(metadata, writtenAt));
+    }
+
+    @Override
+    public synchronized PdfMetadata remove(String pdfId) {
+        PdfMetadata removed = memory.remove(pdfId);
+        if (removed != null) {
+            append("D\t" + encode(pdfId));
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return memory.size();
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<PdfMetadata> listener) {
+        memory.addEvictionListener(listener);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private synchronized void append(String record) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(record);
+            writer.newLine();
+            writer.flush();
+            records++;
+            if (records > 2L * memory.size() + 1024) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to metadata log " + logFile, e);
+        }
+    }
+
+    private void replay() throws IOException {
+        if (!Files.exists(logFile)) {
+            return;
+        }
+        int corrupt = 0;
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                try {
+                    // Records written before page ranges existed have six fields, before modes were kept eight
+                    if ((fields.length == 6 || fields.length == 8 || fields.length == 9) && "P".equals(fields[0])) {
+                        PdfMetadata metadata = new PdfMetadata(decode(fields[1]), Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+                        metadata.setSpilledBytes(Long.parseLong(fields[5]));
+                        if (fields.length >= 8) {
+                            metadata.setPageRange(PageRange.of(page(fields[6]), page(fields[7])));
+                        }
+                        if (fields.length == 9 && !"-".equals(fields[8])) {
+                            metadata.setExtractionMode(ExtractionMode.valueOf(fields[8]));
+                        }
+                        memory.put(metadata, Long.parseLong(fields[2]));
+                    } else if (fields.length == 2 && "D".equals(fields[0])) {
+                        memory.remove(decode(fields[1]));
+                    } else {
+                        corrupt++;
+                    }
+                } catch (IllegalArgumentException e) {
+                    corrupt++;
+                }
+            }
+        }
+        if (corrupt > 0) {
+            // Typically a torn last line after a crash
+            log.warn("Skipped {} unreadable records in metadata log {}", corrupt, logFile);
+        }
+    }
+
+    // Rewrite the log as a snapshot of the live entries
+    private synchronized void compact() throws IOException {
+        close();
+        Path snapshot = logFile.resolveSibling(logFile.getFileName() + ".compact");
+        Map<String, PdfMetadata> live = memory.snapshot();
+        try (BufferedWriter out = Files.newBufferedWriter(snapshot, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, PdfMetadata> entry : live.entrySet()) {
+                out.write(putRecord(entry.getValue(), memory.writtenAt(entry.getKey())));
+                out.newLine();
+            }
+        }
+        Files.move(snapshot, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        records = live.size();
+    }
+
+    private static String putRecord(PdfMetadata metadata, long writtenAt) {
+        return "P\t" + encode(metadata.getPdfId()) + "\t" + writtenAt + "\t" + metadata.getSegmentCount()
+                + "\t" + metadata.getCuts() + "\t" + metadata.getSpilledBytes()
+                + "\t" + page(metadata.getFirstPage()) + "\t" + page(metadata.getLastPage())
+                + "\t" + (metadata.getExtractionMode() != null ? metadata.getExtractionMode().name() : "-");
+    }
+
+    // 0 stands for an open bound
+    private static String page(Integer page) {
+        return page != null ? page.toString() : "0";
+    }
+
+    private static Integer page(String field) {
+        int page = Integer.parseInt(field);
+        return page > 0 ? page : null;
+    }
+
+    private static String encode(String pdfId) {
+        return URLEncoder.encode(pdfId, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
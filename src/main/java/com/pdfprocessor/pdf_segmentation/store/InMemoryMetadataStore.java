@@ -0,0 +1,170 @@
+package com.pdfprocessor.pdf_segmentation.store;
+
+import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService.PdfMetadata;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Metadata store backed by a ConcurrentHashMap. Reads of live entries are a single lock-free map lookup.
+// Entries expire ttl after they were written and the oldest writes are evicted beyond maxEntries;
+// both are enforced on the write path by walking a queue kept in write order.
+// Writes, the removal of expired entries and the eviction listeners run under one monitor, so a put for the
+// same id cannot land between an entry being dropped and its listeners running.
+public class InMemoryMetadataStore implements MetadataStore {
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> writeOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final List<Consumer<PdfMetadata>> evictionListeners = new CopyOnWriteArrayList<>();
+    private final Object lock;
+
+    public InMemoryMetadataStore(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, null);
+    }
+
+    // Changes are made under the given monitor, so a store built on this one can log them in the same step
+    InMemoryMetadataStore(Duration ttl, int maxEntries, Object lock) {
+        this.ttlMillis = ttl == null || ttl.isZero() || ttl.isNegative() ? 0 : ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.lock = lock != null ? lock : this;
+    }
+
+    @Override
+    public void addEvictionListener(Consumer<PdfMetadata> listener) {
+        evictionListeners.add(listener);
+    }
+
+    @Override
+    public PdfMetadata get(String pdfId) {
+        Entry entry = entries.get(pdfId);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            synchronized (lock) {
+                if (entries.remove(pdfId, entry)) {
+                    evicted(entry);
+                }
+            }
+            return null;
+        }
+        return entry.metadata;
+    }
+
+    @Override
+    public void put(PdfMetadata metadata) {
+        put(metadata, System.currentTimeMillis());
+    }
+
+    // Insert with an explicit write time, used when entries are restored from durable storage
+    void put(PdfMetadata metadata, long writtenAtMillis) {
+        Entry entry = new Entry(metadata.getPdfId(), metadata, writtenAtMillis);
+        synchronized (lock) {
+            entries.put(entry.pdfId, entry);
+            writeOrder.add(entry);
+            queued.incrementAndGet();
+            evict();
+        }
+    }
+
+    @Override
+    public PdfMetadata remove(String pdfId) {
+        Entry entry;
+        synchronized (lock) {
+            entry = entries.remove(pdfId);
+        }
+        return entry == null || isExpired(entry, System.currentTimeMillis()) ? null : entry.metadata;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    // Write time of a live entry, or -1
+    long writtenAt(String pdfId) {
+        Entry entry = entries.get(pdfId);
+        return entry == null ? -1 : entry.writtenAtMillis;
+    }
+
+    Map<String, PdfMetadata> snapshot() {
+        Map<String, PdfMetadata> snapshot = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        for (Entry entry : writeOrder) {
+            if (entries.get(entry.pdfId) == entry && !isExpired(entry, now)) {
+                snapshot.put(entry.pdfId, entry.metadata);
+            }
+        }
+        return snapshot;
+    }
+
+    private void evict() {
+        // One writer at a time walks the queue; others skip, the next write catches up
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Entry head;
+            while ((head = writeOrder.peek()) != null) {
+                boolean live = entries.get(head.pdfId) == head;
+                if (live && !isExpired(head, now) && (maxEntries <= 0 || entries.size() <= maxEntries)) {
+                    break;
+                }
+                writeOrder.poll();
+                queued.decrementAndGet();
+                if (live && entries.remove(head.pdfId, head)) {
+                    evicted(head);
+                }
+            }
+
+            // Overwritten entries stay queued until they reach the head; drop them once they dominate the queue
+            if (queued.get() > 2 * entries.size() + 64) {
+                writeOrder.removeIf(entry -> {
+                    boolean stale = entries.get(entry.pdfId) != entry;
+                    if (stale) {
+                        queued.decrementAndGet();
+                    }
+                    return stale;
+                });
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    // Called under the monitor right after the entry was removed, so no newer entry for its id exists
+    private void evicted(Entry entry) {
+        for (Consumer<PdfMetadata> listener : evictionListeners) {
+            listener.accept(entry.metadata);
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return ttlMillis > 0 && now - entry.writtenAtMillis >= ttlMillis;
+    }
+
+    private static final class Entry {
+        final String pdfId;
+        final PdfMetadata metadata;
+        final long writtenAtMillis;
+
+        Entry(String pdfId, PdfMetadata metadata, long writtenAtMillis) {
+            this.pdfId = pdfId;
+            this.metadata = metadata;
+            this.writtenAtMillis = writtenAtMillis;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.pdfprocessor.pdf_segmentation.store;
+
+import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService.PdfMetadata;
+
+import java.util.function.Consumer;
+
+// Shared storage for the metadata of processed PDFs. Implementations must be safe for concurrent use.
+public interface MetadataStore {
+
+    // Metadata of the document, or null when unknown or expired
+    PdfMetadata get(String pdfId);
+
+    void put(PdfMetadata metadata);
+
+    // Removes the document and returns its metadata, or null when it was unknown
+    PdfMetadata remove(String pdfId);
+
+    int size();
+
+    // Notified with the metadata of every entry the store drops by itself, e.g. by TTL or size eviction,
+    // so that whatever else is kept for the document can be dropped with it. Listeners run before any newer
+    // entry for the same id can be written, so they never drop what belongs to a later upload.
+    void addEvictionListener(Consumer<PdfMetadata> listener);
+}
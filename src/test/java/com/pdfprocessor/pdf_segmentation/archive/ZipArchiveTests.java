@@ -0,0 +1,193 @@
+package com.pdfprocessor.pdf_segmentation.archive;
+
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZipArchiveTests {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testEveryModeWritesAReadableArchive() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        for (ArchiveCompression compression : ArchiveCompression.values()) {
+            // Act
+            byte[] zip = write(compression, null, entries);
+
+            // Assert
+            assertEquals(entries.keySet(), readAll(zip).keySet(), compression.name());
+            readAll(zip).forEach((name, content) -> assertArrayEquals(entries.get(name), content, compression + " " + name));
+        }
+    }
+
+    @Test
+    public void testAdaptiveStoresIncompressibleEntries() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        byte[] random = new byte[200_000];
+        new Random(7).nextBytes(random);
+        entries.put("random.bin", random);
+        entries.put("text.txt", "segment ".repeat(20_000).getBytes());
+
+        byte[] zip = write(ArchiveCompression.ADAPTIVE, null, entries);
+
+        File file = new File(tempDir, "adaptive.zip");
+        Files.write(file.toPath(), zip);
+        try (ZipFile zipFile = new ZipFile(file)) {
+            assertEquals(ZipEntry.STORED, zipFile.getEntry("random.bin").getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("text.txt").getMethod());
+            assertArrayEquals(random, zipFile.getInputStream(zipFile.getEntry("random.bin")).readAllBytes());
+        }
+    }
+
+    @Test
+    public void testLargeEntriesAreDeflatedWhileWritten() throws IOException {
+        byte[] random = new byte[100_000];
+        new Random(11).nextBytes(random);
+        byte[] text = "segment ".repeat(20_000).getBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZipArchive archive = new ZipArchive(out, ArchiveCompression.ADAPTIVE, 6, 4096, 0.1, null, 2, 1 << 20);
+
+        try (OutputStream segment = archive.openSegment(0, "text.txt")) {
+            for (int i = 0; i < text.length; i += 1000) {
+                segment.write(text, i, Math.min(1000, text.length - i));
+            }
+            // Deflated output reaches the archive before the entry is complete
+            assertTrue(out.size() > 0);
+        }
+        try (OutputStream segment = archive.openSegment(1, "random.bin")) {
+            segment.write(random);
+        }
+        archive.addEntry("manifest.json", "{}".getBytes());
+        archive.finish();
+
+        Map<String, byte[]> streamed = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                streamed.put(entry.getName(), zis.readAllBytes());
+            }
+        }
+        Map<String, byte[]> read = readAll(out.toByteArray());
+        for (Map<String, byte[]> contents : List.of(streamed, read)) {
+            assertArrayEquals(text, contents.get("text.txt"));
+            assertArrayEquals(random, contents.get("random.bin"));
+            assertArrayEquals("{}".getBytes(), contents.get("manifest.json"));
+        }
+        // The random data and the two-byte manifest do not shrink
+        assertEquals(2, archive.getStoredEntries());
+    }
+
+    @Test
+    public void testParallelModeKeepsEntryOrder() throws IOException {
+        Map<String, byte[]> entries = sampleEntries();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            byte[] zip = write(ArchiveCompression.DEFLATE, executor, entries);
+
+            List<String> names = new ArrayList<>();
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+                for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                    names.add(entry.getName());
+                    assertArrayEquals(entries.get(entry.getName()), zis.readAllBytes());
+                }
+            }
+            assertEquals(new ArrayList<>(entries.keySet()), names);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParallelModeStreamsEntriesBeyondThePendingBytes() throws IOException {
+        byte[] small = "small segment ".repeat(100).getBytes();
+        byte[] large = "large segment ".repeat(10_000).getBytes();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ZipArchive archive = new ZipArchive(out, ArchiveCompression.DEFLATE, 6, 4096, 0.1, executor, 8, 16384);
+
+            for (int i = 0; i < 2; i++) {
+                try (OutputStream segment = archive.openSegment(i, "small-" + i + ".txt")) {
+                    segment.write(small);
+                }
+            }
+            try (OutputStream segment = archive.openSegment(2, "large.txt")) {
+                for (int i = 0; i < large.length; i += 1000) {
+                    segment.write(large, i, Math.min(1000, large.length - i));
+                }
+                // The pending entries and the start of the large one reach the archive before it is complete
+                assertTrue(out.size() > 0);
+            }
+            archive.finish();
+
+            List<String> names = new ArrayList<>();
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+                for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                    names.add(entry.getName());
+                    assertArrayEquals(entry.getName().equals("large.txt") ? large : small, zis.readAllBytes());
+                }
+            }
+            assertEquals(List.of("small-0.txt", "small-1.txt", "large.txt"), names);
+            assertArrayEquals(large, readAll(out.toByteArray()).get("large.txt"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, byte[]> sampleEntries() throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 12; i++) {
+            entries.put("doc/doc_segment_" + (i + 1) + ".pdf", TestPdfs.textPdf(1, 2 + i % 3, 3));
+        }
+        entries.put("empty.txt", new byte[0]);
+        entries.put("näme.json", "{}".getBytes());
+        return entries;
+    }
+
+    private static byte[] write(ArchiveCompression compression, ExecutorService executor, Map<String, byte[]> entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // A small pending window so the writer has to wait for workers while entries are still being added
+        ZipArchive archive = new ZipArchive(out, compression, 6, 4096, 0.1, executor, 2, 1 << 20);
+        int index = 0;
+        for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+            try (OutputStream segment = archive.openSegment(index++, entry.getKey())) {
+                segment.write(entry.getValue());
+            }
+        }
+        archive.finish();
+        return out.toByteArray();
+    }
+
+    private Map<String, byte[]> readAll(byte[] zip) throws IOException {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        File file = new File(tempDir, "read-" + System.nanoTime() + ".zip");
+        Files.write(file.toPath(), zip);
+        try (ZipFile zipFile = new ZipFile(file)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                contents.put(entry.getName(), zipFile.getInputStream(entry).readAllBytes());
+            }
+        }
+        return contents;
+    }
+}
@@ -0,0 +1,104 @@
+package com.pdfprocessor.pdf_segmentation.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentationResultCacheTests {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testKeyDependsOnContentAndParameters() {
+        SegmentationResultCache cache = new SegmentationResultCache(true, 1024, 1024, "", 0);
+
+        String key = cache.key(new byte[]{1, 2, 3}, "cuts=2");
+
+        assertEquals(key, cache.key(new byte[]{1, 2, 3}, "cuts=2"));
+        assertNotEquals(key, cache.key(new byte[]{1, 2, 4}, "cuts=2"));
+        assertNotEquals(key, cache.key(new byte[]{1, 2, 3}, "cuts=3"));
+    }
+
+    @Test
+    public void testMemoryTierEvictsLeastRecentlyUsed() {
+        // Arrange: room for two 40 byte entries
+        SegmentationResultCache cache = new SegmentationResultCache(true, 100, 100, "", 0);
+        cache.put("a", entry(40));
+        cache.put("b", entry(40));
+        assertNotNull(cache.get("a"));
+
+        // Act
+        cache.put("c", entry(40));
+
+        // Assert
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(3L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+    }
+
+    @Test
+    public void testEvictedEntriesAreServedFromDisk() {
+        // Arrange
+        SegmentationResultCache cache = new SegmentationResultCache(true, 50, 100, tempDir.getPath(), 1000);
+        cache.put("a", entry(40));
+        cache.put("b", entry(40));
+
+        // Act
+        CachedSegments fromDisk = cache.get("a");
+
+        // Assert
+        assertNotNull(fromDisk);
+        assertEquals(2, fromDisk.getSegmentCount());
+        assertEquals(40, fromDisk.getSizeBytes());
+        assertEquals(1L, cache.getStats().get("diskHits"));
+
+        // A new cache over the same directory finds the demoted entries again
+        SegmentationResultCache reloaded = new SegmentationResultCache(true, 50, 100, tempDir.getPath(), 1000);
+        assertNotNull(reloaded.get("b"));
+    }
+
+    @Test
+    public void testIncompleteDiskEntriesAreMisses() throws IOException {
+        // Arrange: demote a and b to disk, then remove a segment of a and the manifest of b
+        SegmentationResultCache cache = new SegmentationResultCache(true, 50, 100, tempDir.getPath(), 1000);
+        cache.put("a", entry(40));
+        cache.put("b", entry(40));
+        cache.put("c", entry(40));
+        File[] entries = tempDir.listFiles(File::isDirectory);
+        assertEquals(2, entries.length);
+        for (File entry : entries) {
+            String key = Files.readString(entry.toPath().resolve("key"));
+            Files.delete(entry.toPath().resolve(key.equals("a") ? "1.pdf" : "manifest"));
+        }
+
+        // Act and Assert: neither is served with fewer segments
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(0, cache.getStats().get("diskEntries"));
+        assertEquals(0, new SegmentationResultCache(true, 50, 100, tempDir.getPath(), 1000).getStats().get("diskEntries"));
+    }
+
+    @Test
+    public void testOversizedEntriesAndDisabledCache() {
+        SegmentationResultCache cache = new SegmentationResultCache(true, 1000, 10, "", 0);
+        cache.put("big", entry(40));
+        assertNull(cache.get("big"));
+
+        SegmentationResultCache disabled = new SegmentationResultCache(false, 1000, 1000, "", 0);
+        disabled.put("a", entry(4));
+        assertNull(disabled.get("a"));
+    }
+
+    private static CachedSegments entry(int size) {
+        return new CachedSegments(List.of(new byte[size / 2], new byte[size - size / 2]));
+    }
+}
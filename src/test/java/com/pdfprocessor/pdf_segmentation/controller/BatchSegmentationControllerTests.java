@@ -0,0 +1,129 @@
+package com.pdfprocessor.pdf_segmentation.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfprocessor.pdf_segmentation.service.BatchSegmentationService;
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class BatchSegmentationControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void testSegmentBatch_FilesWithPerFileCuts() throws Exception {
+        // Arrange
+        String prefix = "batch-" + System.nanoTime();
+        MockMultipartFile first = new MockMultipartFile("files", prefix + "-a.pdf", MediaType.APPLICATION_PDF_VALUE, TestPdfs.textPdf(3, 4, 3));
+        MockMultipartFile second = new MockMultipartFile("files", prefix + "-b.pdf", MediaType.APPLICATION_PDF_VALUE, TestPdfs.textPdf(3, 4, 3));
+        MockMultipartFile text = new MockMultipartFile("files", prefix + "-c.txt", MediaType.TEXT_PLAIN_VALUE, "not a pdf".getBytes());
+
+        // Act
+        Map<String, byte[]> entries = unzip(performBatch(MockMvcRequestBuilders.multipart("/api/pdf/segment-batch")
+                .file(first).file(second).file(text)
+                .param("cuts", "2")
+                .param("fileCuts", prefix + "-b.pdf:3")));
+
+        // Assert
+        assertTrue(entries.containsKey(prefix + "-a/" + prefix + "-a_segment_2.pdf"));
+        assertTrue(entries.containsKey(prefix + "-b/" + prefix + "-b_segment_3.pdf"));
+        JsonNode manifest = objectMapper.readTree(entries.get(BatchSegmentationService.MANIFEST_ENTRY));
+        assertEquals(3, manifest.size());
+        assertEquals("COMPLETED", manifest.get(0).get("status").asText());
+        assertEquals(2, manifest.get(0).get("segmentCount").asInt());
+        assertEquals(3, manifest.get(1).get("segmentCount").asInt());
+        assertEquals("FAILED", manifest.get(2).get("status").asText());
+        assertEquals("Invalid file type. Only PDF files are accepted.", manifest.get(2).get("error").asText());
+        assertEquals(6, entries.size());
+        // Batch files are only delivered in the ZIP, never recorded under their names
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/pdf-metadata/" + prefix + "-a.pdf"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void testSegmentBatch_ArchiveIsolatesBrokenFiles() throws Exception {
+        // Arrange
+        String prefix = "archive-" + System.nanoTime();
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(archive)) {
+            zos.putNextEntry(new ZipEntry("docs/" + prefix + "-good.pdf"));
+            zos.write(TestPdfs.textPdf(2, 3, 2));
+            zos.putNextEntry(new ZipEntry(prefix + "-broken.pdf"));
+            zos.write("%PDF-1.4 truncated".getBytes());
+            zos.putNextEntry(new ZipEntry(prefix + "-other.pdf"));
+            zos.write(TestPdfs.textPdf(2, 3, 2));
+        }
+        MockMultipartFile upload = new MockMultipartFile("archive", "batch.zip", "application/zip", archive.toByteArray());
+
+        // Act
+        Map<String, byte[]> entries = unzip(performBatch(MockMvcRequestBuilders.multipart("/api/pdf/segment-batch")
+                .file(upload)
+                .param("cuts", "1")));
+
+        // Assert
+        JsonNode manifest = objectMapper.readTree(entries.get(BatchSegmentationService.MANIFEST_ENTRY));
+        assertEquals("COMPLETED", manifest.get(0).get("status").asText());
+        assertEquals("FAILED", manifest.get(1).get("status").asText());
+        assertFalse(manifest.get(1).get("error").asText().isEmpty());
+        assertEquals("COMPLETED", manifest.get(2).get("status").asText());
+        assertTrue(entries.containsKey(prefix + "-good/" + prefix + "-good_segment_1.pdf"));
+        assertTrue(entries.containsKey(prefix + "-other/" + prefix + "-other_segment_1.pdf"));
+    }
+
+    @Test
+    public void testSegmentBatch_RequiresFiles() throws Exception {
+        MvcResult rejected = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/segment-batch").param("cuts", "2"))
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(rejected))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private byte[] performBatch(RequestBuilder request) throws Exception {
+        MvcResult asyncResult = mockMvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        // Spooling and admission complete first, then the body is streamed
+        MvcResult admitted = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(admitted))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private static Map<String, byte[]> unzip(byte[] zip) throws Exception {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                entries.put(entry.getName(), zis.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
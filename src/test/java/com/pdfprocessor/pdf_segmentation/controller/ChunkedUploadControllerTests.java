@@ -0,0 +1,125 @@
+package com.pdfprocessor.pdf_segmentation.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService;
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ChunkedUploadControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PdfSegmentationService pdfSegmentationService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testUploadChunksAndSegment() throws Exception {
+        // Arrange
+        byte[] pdf = TestPdfs.textPdf(3, 4, 3);
+        String name = "chunked-" + System.nanoTime() + ".pdf";
+        int chunkSize = 1024;
+
+        try {
+            // Act
+            String created = mockMvc.perform(MockMvcRequestBuilders.post("/api/pdf/uploads")
+                            .param("fileName", name)
+                            .param("size", String.valueOf(pdf.length))
+                            .param("chunkSize", String.valueOf(chunkSize)))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andExpect(MockMvcResultMatchers.header().exists("Location"))
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode upload = objectMapper.readTree(created);
+            String uploadId = upload.get("uploadId").asText();
+            int chunkCount = upload.get("chunkCount").asInt();
+            assertTrue(chunkCount > 1);
+
+            // The last chunk first; segmenting before every chunk is in is refused
+            for (int i = chunkCount - 1; i >= 1; i--) {
+                putChunk(uploadId, i, Arrays.copyOfRange(pdf, i * chunkSize, Math.min(pdf.length, (i + 1) * chunkSize)));
+            }
+            JsonNode status = objectMapper.readTree(mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/uploads/" + uploadId))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            assertEquals("RECEIVING", status.get("status").asText());
+            assertEquals(0, status.get("missingChunks").get(0).asInt());
+            mockMvc.perform(MockMvcRequestBuilders.post("/api/pdf/uploads/" + uploadId + "/segment").param("cuts", "2"))
+                    .andExpect(MockMvcResultMatchers.status().isConflict());
+
+            putChunk(uploadId, 0, Arrays.copyOf(pdf, chunkSize));
+            MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.post("/api/pdf/uploads/" + uploadId + "/segment").param("cuts", "2"))
+                    .andReturn();
+            byte[] zip = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andReturn().getResponse().getContentAsByteArray();
+
+            // Assert
+            int entries = 0;
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+                while (zis.getNextEntry() != null) {
+                    entries++;
+                }
+            }
+            assertEquals(2, entries);
+            // The upload is used up by segmenting it
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/uploads/" + uploadId))
+                    .andExpect(MockMvcResultMatchers.status().isNotFound());
+        } finally {
+            pdfSegmentationService.deletePdf(name);
+        }
+    }
+
+    @Test
+    public void testNonPdfContentIsRejected() throws Exception {
+        String created = mockMvc.perform(MockMvcRequestBuilders.post("/api/pdf/uploads")
+                        .param("fileName", "fake.pdf")
+                        .param("size", "4096")
+                        .param("chunkSize", "1024"))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String uploadId = objectMapper.readTree(created).get("uploadId").asText();
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/pdf/uploads/" + uploadId + "/chunks/0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[1024]))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/uploads/" + uploadId))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        // The multipart endpoints look at the content too, not only at the declared type
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "fake.pdf", MediaType.APPLICATION_PDF_VALUE, "not a pdf".getBytes());
+        MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/segment-pdf")
+                        .file(multipartFile)
+                        .param("cuts", "1"))
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private void putChunk(String uploadId, int index, byte[] chunk) throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/pdf/uploads/" + uploadId + "/chunks/" + index)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(chunk))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+}
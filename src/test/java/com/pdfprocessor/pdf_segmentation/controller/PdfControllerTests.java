@@ -1,5 +1,7 @@
 package com.pdfprocessor.pdf_segmentation.controller;
+import com.pdfprocessor.pdf_segmentation.scheduler.MemoryAdmission;
 import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService;
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,14 +10,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 
-@SpringBootTest
+@SpringBootTest(properties = "pdf.segmentation.metrics.server-timing=true")
 @AutoConfigureMockMvc
 public class PdfControllerTests {
 
@@ -25,6 +33,9 @@ public class PdfControllerTests {
     @Autowired
     private PdfSegmentationService pdfSegmentationService;
 
+    @Autowired
+    private MemoryAdmission memoryAdmission;
+
     @Test
     public void testSegmentPdf() throws Exception {
         // Arrange
@@ -39,6 +50,217 @@ public class PdfControllerTests {
                 .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_OCTET_STREAM_VALUE));
     }
 
+    @Test
+    public void testSegmentPdf_Streaming() throws Exception {
+        // Arrange
+        String name = "stream-test-" + System.nanoTime() + ".pdf";
+        MockMultipartFile multipartFile = new MockMultipartFile("file", name, MediaType.APPLICATION_PDF_VALUE, TestPdfs.textPdf(3, 4, 3));
+
+        try {
+            // Act
+            MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/segment-pdf")
+                            .file(multipartFile)
+                            .param("cuts", "2")
+                            .param("stream", "true"))
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                    .andReturn();
+            // Admission and spooling complete first, then the body is streamed
+            MvcResult admitted = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                    .andReturn();
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(admitted))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andReturn();
+
+            // Assert
+            int entries = 0;
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+                for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                    assertTrue(entry.getName().endsWith(".pdf"));
+                    entries++;
+                }
+            }
+            assertEquals(2, entries);
+        } finally {
+            new File(name).delete();
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_ReportsStageTimings() throws Exception {
+        // Arrange
+        String name = "timing-test-" + System.nanoTime() + ".pdf";
+        MockMultipartFile multipartFile = new MockMultipartFile("file", name, MediaType.APPLICATION_PDF_VALUE, TestPdfs.textPdf(3, 4, 3));
+
+        try {
+            // Act
+            MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/segment-pdf")
+                            .file(multipartFile)
+                            .param("cuts", "2"))
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                    .andReturn();
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andReturn();
+
+            // Assert
+            String serverTiming = result.getResponse().getHeader("Server-Timing");
+            assertNotNull(serverTiming);
+            for (String stage : new String[]{"upload", "load", "analyze", "cut", "split", "zip", "total"}) {
+                assertTrue(serverTiming.contains(stage + ";dur="), serverTiming);
+            }
+            mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/pdf.segmentation.stage").param("tag", "stage:split"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.measurements[0].statistic").value("COUNT"));
+            mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics/pdf.segmentation.stage.percentile")
+                            .param("tag", "stage:split").param("tag", "phi:0.99"))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+        } finally {
+            new File(name).delete();
+            for (int i = 0; i < 2; i++) {
+                new File(PdfSegmentationService.segmentName(name, i)).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_ContentStreamMode() throws Exception {
+        // Arrange
+        String name = "mode-test-" + System.nanoTime() + ".pdf";
+        MockMultipartFile multipartFile = new MockMultipartFile("file", name, MediaType.APPLICATION_PDF_VALUE, TestPdfs.textPdf(3, 4, 3));
+
+        try {
+            // Act
+            MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/segment-pdf")
+                            .file(multipartFile)
+                            .param("cuts", "2")
+                            .param("mode", "content-stream"))
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                    .andReturn();
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andReturn();
+
+            // Assert
+            int entries = 0;
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+                for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                    entries++;
+                }
+            }
+            assertEquals(2, entries);
+            MvcResult rejected = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/segment-pdf")
+                            .file(multipartFile)
+                            .param("cuts", "2")
+                            .param("mode", "unknown"))
+                    .andReturn();
+            mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(rejected))
+                    .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        } finally {
+            pdfSegmentationService.deletePdf(name);
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_UploadWithoutFileName() throws Exception {
+        // Arrange
+        MockMultipartFile multipartFile = new MockMultipartFile("file", null, MediaType.APPLICATION_PDF_VALUE, TestPdfs.textPdf(2, 2, 2));
+
+        try {
+            // Act
+            MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/segment-pdf")
+                            .file(multipartFile)
+                            .param("cuts", "1"))
+                    .andReturn();
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andReturn();
+
+            // Assert
+            try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+                assertEquals("document_segment_1.pdf", zis.getNextEntry().getName());
+            }
+        } finally {
+            pdfSegmentationService.deletePdf("document.pdf");
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_ShedsLoadWhenMemoryBudgetIsTaken() throws Exception {
+        // Arrange
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "shed-test.pdf", MediaType.APPLICATION_PDF_VALUE, TestPdfs.textPdf(2, 2, 2));
+
+        try (MemoryAdmission.Permit held = memoryAdmission.tryAdmitBytes(memoryAdmission.getBudgetBytes())) {
+            assertNotNull(held);
+
+            // Act
+            MvcResult asyncResult = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/segment-pdf")
+                            .file(multipartFile)
+                            .param("cuts", "1"))
+                    .andReturn();
+
+            // Assert
+            mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                    .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                    .andExpect(MockMvcResultMatchers.header().exists("Retry-After"));
+        }
+    }
+
+    @Test
+    public void testDownloadSegment_RangeAndConditionalRequests() throws Exception {
+        // Arrange
+        File pdfFile = TestPdfs.textPdfFile(Files.createTempDirectory("download-test").toFile(),
+                "download-test-" + System.nanoTime() + ".pdf", 3, 4, 3);
+        String pdfId = pdfFile.getName();
+        try {
+            List<File> segments = pdfSegmentationService.segmentPdf(pdfFile, 2);
+            byte[] expected = Files.readAllBytes(segments.get(1).toPath());
+
+            // Act / Assert: full download
+            MvcResult full = mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/segments/" + pdfId + "/2"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_PDF_VALUE))
+                    .andExpect(MockMvcResultMatchers.header().string("Accept-Ranges", "bytes"))
+                    .andReturn();
+            assertArrayEquals(expected, full.getResponse().getContentAsByteArray());
+            String etag = full.getResponse().getHeader("ETag");
+            assertNotNull(etag);
+
+            // Byte range
+            MvcResult partial = mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/segments/" + pdfId + "/2")
+                            .header("Range", "bytes=10-19"))
+                    .andExpect(MockMvcResultMatchers.status().isPartialContent())
+                    .andExpect(MockMvcResultMatchers.header().string("Content-Range", "bytes 10-19/" + expected.length))
+                    .andReturn();
+            assertArrayEquals(Arrays.copyOfRange(expected, 10, 20), partial.getResponse().getContentAsByteArray());
+
+            // A stale If-Range gets the whole segment
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/segments/" + pdfId + "/2")
+                            .header("Range", "bytes=10-19").header("If-Range", "\"stale\""))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/segments/" + pdfId + "/2")
+                            .header("Range", "bytes=" + expected.length + "-"))
+                    .andExpect(MockMvcResultMatchers.status().isRequestedRangeNotSatisfiable())
+                    .andExpect(MockMvcResultMatchers.header().string("Content-Range", "bytes */" + expected.length));
+
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/segments/" + pdfId + "/2")
+                            .header("If-None-Match", etag))
+                    .andExpect(MockMvcResultMatchers.status().isNotModified());
+
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/segments/" + pdfId + "/3"))
+                    .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+            // Deleting the PDF deletes its segments
+            mockMvc.perform(MockMvcRequestBuilders.delete("/api/pdf/delete-pdf/" + pdfId))
+                    .andExpect(MockMvcResultMatchers.status().isNoContent());
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/segments/" + pdfId + "/1"))
+                    .andExpect(MockMvcResultMatchers.status().isNotFound());
+        } finally {
+            pdfSegmentationService.deletePdf(pdfId);
+            pdfFile.delete();
+        }
+    }
 
 //    @Test
 //    public void testGetPdfMetadata() throws Exception {
@@ -0,0 +1,84 @@
+package com.pdfprocessor.pdf_segmentation.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class SegmentationJobControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testSubmitPollAndDownload() throws Exception {
+        // Arrange
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "job-test.pdf", MediaType.APPLICATION_PDF_VALUE, TestPdfs.textPdf(3, 3, 3));
+
+        // Act
+        MvcResult submitted = mockMvc.perform(MockMvcRequestBuilders.multipart("/api/pdf/jobs")
+                        .file(multipartFile)
+                        .param("cuts", "2"))
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andExpect(MockMvcResultMatchers.header().exists("Location"))
+                .andReturn();
+        String jobId = objectMapper.readTree(submitted.getResponse().getContentAsString()).get("jobId").asText();
+
+        JsonNode status = null;
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String body = mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/jobs/" + jobId))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            status = objectMapper.readTree(body);
+            if ("COMPLETED".equals(status.get("status").asText()) || "FAILED".equals(status.get("status").asText())) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+
+        // Assert
+        assertEquals("COMPLETED", status.get("status").asText());
+        assertEquals(2, status.get("segmentCount").asInt());
+        assertEquals(1.0, status.get("progress").asDouble());
+
+        byte[] zip = mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/jobs/" + jobId + "/result"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        int entries = 0;
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            while (zis.getNextEntry() != null) {
+                entries++;
+            }
+        }
+        assertEquals(2, entries);
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/pdf/jobs/" + jobId))
+                .andExpect(MockMvcResultMatchers.status().isNoContent());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/jobs/" + jobId))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void testUnknownJob() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/pdf/jobs/unknown/result"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+}
@@ -0,0 +1,130 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.apache.pdfbox.util.Matrix;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContentStreamScannerTests {
+
+    @Test
+    public void testScannerMatchesTextExtraction() throws IOException {
+        try (PDDocument document = PDDocument.load(TestPdfs.textPdf(3, 4, 3))) {
+            assertSameYPositions(strippedYPositions(document), scannedYPositions(document));
+        }
+    }
+
+    @Test
+    public void testTextOperatorsAndTransformations() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            // Arrange: Tm, TL/T*, TD, Ts, cm and q/Q in one page
+            PDPage page = new PDPage(PDRectangle.LETTER);
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.beginText();
+                content.setFont(PDType1Font.HELVETICA, 12);
+                content.setTextMatrix(Matrix.getTranslateInstance(72, 700));
+                content.showText("Positioned with Tm");
+                content.setLeading(15);
+                content.newLine();
+                content.showText("Next line with T*");
+                content.setTextRise(3);
+                content.showText("raised");
+                content.setTextRise(0);
+                content.endText();
+
+                content.saveGraphicsState();
+                content.transform(Matrix.getTranslateInstance(0, -200));
+                content.beginText();
+                content.setFont(PDType1Font.TIMES_ROMAN, 10);
+                content.newLineAtOffset(100, 600);
+                content.showText("Moved by cm");
+                content.endText();
+                content.restoreGraphicsState();
+
+                content.beginText();
+                content.setFont(PDType1Font.COURIER, 9);
+                content.newLineAtOffset(72, 300);
+                content.showText("After restore");
+                content.endText();
+            }
+
+            // Act / Assert
+            assertSameYPositions(strippedYPositions(document), scannedYPositions(document));
+        }
+    }
+
+    @Test
+    public void testImagesOccupyTheirVerticalExtent() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(PDRectangle.A4);
+            document.addPage(page);
+            PDImageXObject image = LosslessFactory.createFromImage(document, new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB));
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.drawImage(image, 100, 400, 200, 100);
+            }
+
+            List<PageLayout> pages = ContentStreamScanner.scanPages(document, 0, 1);
+
+            float top = page.getCropBox().getHeight() - 500;
+            float bottom = page.getCropBox().getHeight() - 400;
+            float[] yPositions = pages.get(0).getYPositions();
+            assertEquals(top, yPositions[0], 0.01f);
+            assertEquals(bottom, yPositions[yPositions.length - 1], 0.01f);
+            // No gap inside the image is wider than the sampling step
+            for (int i = 1; i < yPositions.length; i++) {
+                assertTrue(yPositions[i] - yPositions[i - 1] <= 4.01f);
+            }
+        }
+    }
+
+    private static TreeSet<Float> strippedYPositions(PDDocument document) throws IOException {
+        TreeSet<Float> yPositions = new TreeSet<>();
+        PDFTextStripper stripper = new PDFTextStripper() {
+            @Override
+            protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+                for (TextPosition position : textPositions) {
+                    yPositions.add(position.getYDirAdj());
+                }
+                super.writeString(text, textPositions);
+            }
+        };
+        stripper.setSortByPosition(true);
+        stripper.getText(document);
+        return yPositions;
+    }
+
+    private static TreeSet<Float> scannedYPositions(PDDocument document) throws IOException {
+        TreeSet<Float> yPositions = new TreeSet<>();
+        for (PageLayout page : ContentStreamScanner.scanPages(document, 0, document.getNumberOfPages())) {
+            for (float y : page.getYPositions()) {
+                yPositions.add(y);
+            }
+        }
+        return yPositions;
+    }
+
+    private static void assertSameYPositions(TreeSet<Float> expected, TreeSet<Float> actual) {
+        assertEquals(expected.size(), actual.size(), expected + " vs " + actual);
+        Float[] e = expected.toArray(new Float[0]);
+        Float[] a = actual.toArray(new Float[0]);
+        for (int i = 0; i < e.length; i++) {
+            assertEquals(e[i], a[i], 0.01f);
+        }
+    }
+}
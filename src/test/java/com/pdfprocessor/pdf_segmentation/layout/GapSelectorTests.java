@@ -0,0 +1,74 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GapSelectorTests {
+
+    @Test
+    public void testSortDistinct() {
+        float[] values = {5f, 1f, 3f, 1f, 5f, 2f};
+
+        int distinct = GapSelector.sortDistinct(values, values.length);
+
+        assertEquals(4, distinct);
+        assertArrayEquals(new float[]{1f, 2f, 3f, 5f}, Arrays.copyOf(values, distinct));
+    }
+
+    @Test
+    public void testSelectLargestGapsMatchesFullSort() {
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            int length = 1 + random.nextInt(300);
+            float[] sorted = new float[length];
+            for (int i = 1; i < length; i++) {
+                // Coarse gaps so that ties are common
+                sorted[i] = sorted[i - 1] + 1 + random.nextInt(6);
+            }
+            int k = random.nextInt(length + 3);
+
+            int[] actual = GapSelector.selectLargestGaps(sorted, length, k);
+
+            assertArrayEquals(bruteForce(sorted, length, k), actual);
+        }
+    }
+
+    @Test
+    public void testTiesPreferEarlierGap() {
+        float[] sorted = {0f, 10f, 20f, 30f, 35f};
+
+        assertArrayEquals(new int[]{0, 1}, GapSelector.selectLargestGaps(sorted, sorted.length, 2));
+    }
+
+    @Test
+    public void testNotEnoughGaps() {
+        assertEquals(0, GapSelector.selectLargestGaps(new float[0], 0, 3).length);
+        assertEquals(0, GapSelector.selectLargestGaps(new float[]{4f}, 1, 3).length);
+        assertArrayEquals(new int[]{0}, GapSelector.selectLargestGaps(new float[]{4f, 9f}, 2, 3));
+    }
+
+    @Test
+    public void testCutPositions() {
+        float[] yPositions = {100f, 40f, 52f, 100f, 200.4f, 64f};
+
+        assertArrayEquals(new int[]{64, 100}, GapSelector.cutPositions(yPositions, yPositions.length, 2));
+    }
+
+    private static int[] bruteForce(float[] sorted, int length, int k) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i + 1 < length; i++) {
+            indices.add(i);
+        }
+        indices.sort((a, b) -> {
+            int byGap = Float.compare(sorted[b + 1] - sorted[b], sorted[a + 1] - sorted[a]);
+            return byGap != 0 ? byGap : Integer.compare(a, b);
+        });
+        return indices.stream().limit(k).mapToInt(Integer::intValue).sorted().toArray();
+    }
+}
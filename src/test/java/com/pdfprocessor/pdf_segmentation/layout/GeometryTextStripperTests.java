@@ -0,0 +1,64 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.pdfbox.text.TextPosition;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeometryTextStripperTests {
+
+    @Test
+    public void testGeometryMatchesTextExtraction() throws IOException {
+        try (PDDocument document = PDDocument.load(TestPdfs.textPdf(2, 4, 3))) {
+            // Arrange: Y positions as reported by the full text extraction
+            TreeSet<Float> expected = new TreeSet<>();
+            PDFTextStripper textStripper = new PDFTextStripper() {
+                @Override
+                protected void writeString(String text, List<TextPosition> textPositions) throws IOException {
+                    for (TextPosition position : textPositions) {
+                        expected.add(position.getYDirAdj());
+                    }
+                    super.writeString(text, textPositions);
+                }
+            };
+            textStripper.setSortByPosition(true);
+            textStripper.getText(document);
+
+            // Act
+            GeometryTextStripper stripper = new GeometryTextStripper();
+            stripper.extract(document);
+
+            // Assert
+            TreeSet<Float> actual = new TreeSet<>();
+            float[] yPositions = stripper.getYPositions().toArray();
+            for (float y : yPositions) {
+                actual.add(y);
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testLinesArePageAware() throws IOException {
+        try (PDDocument document = PDDocument.load(TestPdfs.textPdf(3, 2, 3))) {
+            GeometryTextStripper stripper = new GeometryTextStripper();
+            stripper.extract(document);
+
+            assertEquals(3, stripper.getPageCount());
+            for (int page = 0; page < 3; page++) {
+                assertEquals(page, stripper.getPageIndex(page));
+                assertEquals(6, stripper.getPageLineOffset(page + 1) - stripper.getPageLineOffset(page));
+            }
+            for (int line = 0; line < stripper.getLineTops().size(); line++) {
+                assertTrue(stripper.getLineTops().get(line) < stripper.getLineBottoms().get(line));
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LayoutIndexTests {
+
+    @Test
+    public void testCutPositionsMatchGapSelector() {
+        Random random = new Random(7);
+        for (int run = 0; run < 100; run++) {
+            float[] yPositions = new float[1 + random.nextInt(400)];
+            for (int i = 0; i < yPositions.length; i++) {
+                yPositions[i] = random.nextInt(800) + (random.nextBoolean() ? 0.5f : 0f);
+            }
+            LayoutIndex index = LayoutIndex.build(Arrays.copyOf(yPositions, yPositions.length), null);
+
+            for (int cuts = 1; cuts < 20; cuts += 3) {
+                float[] copy = Arrays.copyOf(yPositions, yPositions.length);
+                assertArrayEquals(GapSelector.cutPositions(copy, copy.length, cuts), index.cutPositions(cuts));
+            }
+        }
+    }
+
+    @Test
+    public void testRankGaps() {
+        float[] sorted = {0f, 5f, 25f, 30f, 50f, 51f};
+
+        assertArrayEquals(new int[]{1, 3, 0, 2, 4}, GapSelector.rankGaps(sorted, sorted.length));
+    }
+
+    @Test
+    public void testPageBoundaries() {
+        DocumentLayout layout = new DocumentLayout(4, Arrays.asList(
+                new PageLayout(2, new float[]{10f, 30f}, new float[]{2f, 22f}, new float[]{10f, 30f}),
+                new PageLayout(0, new float[]{40f}, new float[]{32f}, new float[]{40f})));
+
+        LayoutIndex index = LayoutIndex.build(layout.allYPositions(), layout);
+
+        assertEquals(4, index.getPageCount());
+        assertArrayEquals(new int[]{0, 2}, index.getPageIndices());
+        assertArrayEquals(new int[]{0, 1, 3}, index.getPageLineOffsets());
+        assertEquals(2, index.getGapCount());
+    }
+}
@@ -0,0 +1,78 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelLayoutAnalyzerTests {
+
+    @Test
+    public void testParallelLayoutMatchesSequential() throws IOException {
+        byte[] pdf = TestPdfs.textPdf(13, 3, 4);
+        ParallelLayoutAnalyzer analyzer = new ParallelLayoutAnalyzer(4, 2, 1);
+        try (PDDocument document = PDDocument.load(pdf)) {
+            // Arrange
+            List<PageLayout> sequential = ParallelLayoutAnalyzer.analyzePages(document, 0, 13);
+
+            // Act
+            DocumentLayout parallel = analyzer.analyze(() -> PDDocument.load(pdf), 13);
+
+            // Assert
+            assertEquals(13, parallel.getPageCount());
+            assertEquals(sequential.size(), parallel.getPages().size());
+            for (int i = 0; i < sequential.size(); i++) {
+                PageLayout expected = sequential.get(i);
+                PageLayout actual = parallel.getPages().get(i);
+                assertEquals(expected.getPageIndex(), actual.getPageIndex());
+                assertArrayEquals(expected.getYPositions(), actual.getYPositions());
+                assertArrayEquals(expected.getLineTops(), actual.getLineTops());
+            }
+            assertArrayEquals(new DocumentLayout(13, sequential).allYPositions(), parallel.allYPositions());
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+
+    @Test
+    public void testScannedPagesAreRenderedInParallel() throws IOException {
+        byte[] pdf = TestPdfs.scannedPdf(5, 3, 3);
+        ParallelLayoutAnalyzer analyzer = new ParallelLayoutAnalyzer(4, 0, 8);
+        try (PDDocument document = PDDocument.load(pdf)) {
+            List<PageLayout> sequential = ParallelLayoutAnalyzer.analyzePages(document, 0, 5, ExtractionMode.RASTER);
+
+            // Too small to split for GEOMETRY, but the five pages without text are rendered on the pool
+            List<PageLayout> fallback = analyzer.analyzeInline(document, () -> PDDocument.load(pdf), 0, 5, ExtractionMode.GEOMETRY);
+            DocumentLayout raster = analyzer.analyze(() -> PDDocument.load(pdf), 5, ExtractionMode.RASTER);
+
+            assertTrue(analyzer.shouldParallelize(5, ExtractionMode.RASTER));
+            assertFalse(analyzer.shouldParallelize(5, ExtractionMode.GEOMETRY));
+            assertEquals(5, fallback.size());
+            assertEquals(5, raster.getPages().size());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(i, fallback.get(i).getPageIndex());
+                assertArrayEquals(sequential.get(i).getYPositions(), fallback.get(i).getYPositions());
+                assertArrayEquals(sequential.get(i).getYPositions(), raster.getPages().get(i).getYPositions());
+            }
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+
+    @Test
+    public void testOpenFailureIsReported() {
+        ParallelLayoutAnalyzer analyzer = new ParallelLayoutAnalyzer(2, 1, 1);
+        try {
+            IOException exception = assertThrows(IOException.class, () -> analyzer.analyze(() -> {
+                throw new IOException("broken");
+            }, 4));
+            assertEquals("broken", exception.getMessage());
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RasterProfileAnalyzerTests {
+
+    @Test
+    public void testScannedPageGapsMatchTheTextBlocks() throws IOException {
+        // Arrange
+        List<PageLayout> text;
+        try (PDDocument document = PDDocument.load(TestPdfs.textPdf(1, 4, 3))) {
+            text = ParallelLayoutAnalyzer.analyzePages(document, 0, 1);
+        }
+        float[] baselines = text.get(0).getLineBottoms();
+        float[] tops = text.get(0).getLineTops();
+
+        // Act
+        PageLayout raster;
+        try (PDDocument document = PDDocument.load(TestPdfs.scannedPdf(1, 4, 3))) {
+            raster = RasterProfileAnalyzer.withDefaults().profilePages(document, new int[]{0}).get(0);
+        }
+
+        // Assert
+        assertFalse(raster.hasText());
+        assertTrue(raster.getLineCount() >= 4);
+        assertEquals(tops[0], raster.getLineTops()[0], 3f);
+        assertEquals(baselines[baselines.length - 1], raster.getLineBottoms()[raster.getLineCount() - 1], 4f);
+        // The whitespace between two blocks of the text is whitespace in the rendering too
+        for (int block = 1; block < 4; block++) {
+            float whitespace = (baselines[block * 3 - 1] + tops[block * 3]) / 2;
+            for (int band = 0; band < raster.getLineCount(); band++) {
+                assertFalse(raster.getLineTops()[band] <= whitespace && whitespace <= raster.getLineBottoms()[band]);
+            }
+        }
+        // Gaps grow down the page, so the largest one follows the third block
+        float[] yPositions = raster.getYPositions().clone();
+        Arrays.sort(yPositions);
+        int largest = 0;
+        for (int i = 1; i + 1 < yPositions.length; i++) {
+            if (yPositions[i + 1] - yPositions[i] > yPositions[largest + 1] - yPositions[largest]) {
+                largest = i;
+            }
+        }
+        assertTrue(yPositions[largest] >= baselines[8] - 1f && yPositions[largest + 1] <= baselines[9] + 1f);
+    }
+
+    @Test
+    public void testTiledRenderingGivesTheSameProfile() throws IOException {
+        byte[] pdf = TestPdfs.scannedPdf(2, 3, 3);
+        RasterProfileAnalyzer whole = new RasterProfileAnalyzer(true, 50, 192, 0.005f, 1 << 20);
+        // About ten rows per tile
+        RasterProfileAnalyzer tiled = new RasterProfileAnalyzer(true, 50, 192, 0.005f, 4096);
+
+        try (PDDocument document = PDDocument.load(pdf)) {
+            List<PageLayout> expected = whole.profilePages(document, new int[]{0, 1});
+            List<PageLayout> actual = tiled.profilePages(document, new int[]{0, 1});
+
+            for (int i = 0; i < 2; i++) {
+                assertEquals(i, actual.get(i).getPageIndex());
+                assertArrayEquals(expected.get(i).getYPositions(), actual.get(i).getYPositions());
+                assertArrayEquals(expected.get(i).getLineTops(), actual.get(i).getLineTops());
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyPagesWithoutTextFallBackToRaster() throws IOException {
+        try (PDDocument scanned = PDDocument.load(TestPdfs.scannedPdf(2, 3, 3));
+             PDDocument document = PDDocument.load(TestPdfs.textPdf(1, 3, 3))) {
+            // A text page followed by two scanned pages
+            document.importPage(scanned.getPage(0));
+            document.importPage(scanned.getPage(1));
+
+            List<PageLayout> extracted = ParallelLayoutAnalyzer.analyzePages(document, 0, 3, ExtractionMode.CONTENT_STREAM);
+            List<PageLayout> pages = ParallelLayoutAnalyzer.analyzePages(document, 0, 3, ExtractionMode.CONTENT_STREAM,
+                    RasterProfileAnalyzer.withDefaults());
+
+            assertArrayEquals(new int[]{1, 2}, RasterProfileAnalyzer.textlessPages(document, 0, 3, extracted));
+            assertEquals(3, pages.size());
+            assertTrue(pages.get(0).hasText());
+            assertArrayEquals(extracted.get(0).getYPositions(), pages.get(0).getYPositions());
+            assertFalse(pages.get(1).hasText());
+            assertTrue(pages.get(1).getLineCount() >= 3);
+            assertEquals(2, pages.get(2).getPageIndex());
+        }
+    }
+}
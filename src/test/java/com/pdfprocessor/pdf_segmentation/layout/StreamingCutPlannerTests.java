@@ -0,0 +1,90 @@
+package com.pdfprocessor.pdf_segmentation.layout;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamingCutPlannerTests {
+
+    private static final float[] ONE_PAGE = {100f};
+
+    @Test
+    public void testGapsAreMeasuredPerPage() {
+        // Arrange: both pages use the same coordinates; the page break leaves the largest gap
+        StreamingCutPlanner planner = new StreamingCutPlanner(2, 1);
+        List<PageLayout> layouts = List.of(
+                page(0, 10f, 20f, 30f, 40f),
+                page(1, 10f, 20f, 60f, 70f));
+
+        // Act
+        List<List<PageRegion>> segments = planner.addWindow(0, 2, layouts, new float[]{100f, 100f});
+        List<PageRegion> last = planner.finish();
+
+        // Assert
+        assertEquals(1, segments.size());
+        assertRegions(segments.get(0), 0, 0f, 100f);
+        assertRegions(last, 1, 0f, 100f);
+    }
+
+    @Test
+    public void testWindowWithoutGapsPassesItsCutsOn() {
+        // Arrange: three cuts over three one-page windows; the first page has a single block
+        StreamingCutPlanner planner = new StreamingCutPlanner(3, 3);
+
+        // Act
+        List<List<PageRegion>> first = planner.addWindow(0, 1, List.of(page(0, 10f, 20f)), ONE_PAGE);
+        List<List<PageRegion>> second = planner.addWindow(1, 2, List.of(page(1, 10f, 20f, 50f, 60f)), ONE_PAGE);
+        List<List<PageRegion>> third = planner.addWindow(2, 3, List.of(page(2, 10f, 20f, 30f, 40f, 80f, 90f)), ONE_PAGE);
+        List<PageRegion> last = planner.finish();
+
+        // Assert
+        assertEquals(0, first.size());
+        assertEquals(2, second.size());
+        assertRegions(second.get(0), 0, 0f, 100f);
+        assertRegions(second.get(1), 1, 0f, 35f);
+        assertEquals(1, third.size());
+        assertRegions(third.get(0), 1, 35f, 100f);
+        assertRegions(last, 2, 0f, 100f);
+        assertEquals(3, planner.getCutsMade());
+    }
+
+    @Test
+    public void testPagesWithoutTextStayInTheOpenSegment() {
+        // Arrange
+        StreamingCutPlanner planner = new StreamingCutPlanner(3, 1);
+
+        // Act: the middle page has no layout at all
+        List<List<PageRegion>> segments = planner.addWindow(0, 3,
+                List.of(page(0, 10f, 20f), page(2, 10f, 20f, 25f, 30f)), new float[]{100f, 100f, 100f});
+        List<PageRegion> last = planner.finish();
+
+        // Assert: the break before page 2 spans the empty page and wins
+        assertEquals(1, segments.size());
+        assertEquals(2, segments.get(0).size());
+        assertEquals(1, segments.get(0).get(1).getPageIndex());
+        assertRegions(last, 2, 0f, 100f);
+        assertTrue(planner.addWindow(3, 3, Collections.emptyList(), new float[0]).isEmpty());
+    }
+
+    // A page whose lines are given as top, bottom pairs
+    private static PageLayout page(int pageIndex, float... lines) {
+        float[] tops = new float[lines.length / 2];
+        float[] bottoms = new float[lines.length / 2];
+        for (int i = 0; i < tops.length; i++) {
+            tops[i] = lines[2 * i];
+            bottoms[i] = lines[2 * i + 1];
+        }
+        return new PageLayout(pageIndex, bottoms, tops, bottoms);
+    }
+
+    private static void assertRegions(List<PageRegion> regions, int pageIndex, float top, float bottom) {
+        assertNotNull(regions);
+        PageRegion region = regions.get(regions.size() - 1);
+        assertEquals(pageIndex, region.getPageIndex());
+        assertEquals(top, region.getTop());
+        assertEquals(bottom, region.getBottom());
+    }
+}
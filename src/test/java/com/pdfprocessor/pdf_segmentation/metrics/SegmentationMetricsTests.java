@@ -0,0 +1,79 @@
+package com.pdfprocessor.pdf_segmentation.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentationMetricsTests {
+
+    @Test
+    public void testStagesAreRecordedPerStageTag() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SegmentationMetrics metrics = new SegmentationMetrics(registry);
+
+        try (SegmentationMetrics.Stage stage = metrics.stage("load")) {
+            busyWait(2);
+        }
+        try (SegmentationMetrics.Stage stage = metrics.stage("split")) {
+            busyWait(1);
+        }
+        try (SegmentationMetrics.Stage stage = metrics.stage("split")) {
+            busyWait(1);
+        }
+
+        Timer load = registry.get(SegmentationMetrics.STAGE_TIMER).tag("stage", "load").timer();
+        Timer split = registry.get(SegmentationMetrics.STAGE_TIMER).tag("stage", "split").timer();
+        assertEquals(1, load.count());
+        assertEquals(2, split.count());
+        assertTrue(load.totalTime(TimeUnit.MILLISECONDS) >= 2);
+    }
+
+    @Test
+    public void testRequestTimingsOnlyCollectBetweenBeginAndEnd() {
+        SegmentationMetrics metrics = new SegmentationMetrics(new SimpleMeterRegistry());
+
+        StageTimings timings = metrics.beginRequest();
+        try (SegmentationMetrics.Stage stage = metrics.stage("load")) {
+            busyWait(1);
+        }
+        try (SegmentationMetrics.Stage stage = metrics.stage("zip")) {
+            busyWait(1);
+        }
+        metrics.endRequest();
+        try (SegmentationMetrics.Stage stage = metrics.stage("analyze")) {
+            busyWait(1);
+        }
+
+        assertEquals(2, timings.getNanos().size());
+        assertTrue(Pattern.matches("load;dur=\\d+\\.\\d, zip;dur=\\d+\\.\\d, total;dur=\\d+\\.\\d", timings.toServerTiming()),
+                timings.toServerTiming());
+    }
+
+    @Test
+    public void testJobCountersSplitBytesByDirection() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SegmentationMetrics metrics = new SegmentationMetrics(registry);
+
+        metrics.recordJob(10, 5000, 7000);
+        metrics.recordJob(30, 1000, 2000);
+
+        DistributionSummary pages = registry.get(SegmentationMetrics.JOB_PAGES).summary();
+        assertEquals(2, pages.count());
+        assertEquals(40, pages.totalAmount());
+        assertEquals(6000, registry.get(SegmentationMetrics.JOB_BYTES).tag("direction", "in").summary().totalAmount());
+        assertEquals(9000, registry.get(SegmentationMetrics.JOB_BYTES).tag("direction", "out").summary().totalAmount());
+    }
+
+    private static void busyWait(long millis) {
+        long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.pdfprocessor.pdf_segmentation.scheduler;
+
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryAdmissionTests {
+
+    @Test
+    public void testRequestsBeyondBudgetAreRefusedUntilReleased() {
+        MemoryAdmission admission = new MemoryAdmission(1000, 1, 100, 100);
+
+        MemoryAdmission.Permit first = admission.tryAdmit(300, 2);
+        assertNotNull(first);
+        assertEquals(500, admission.getReservedBytes());
+        assertNotNull(admission.tryAdmit(200, 3));
+
+        assertNull(admission.tryAdmit(1, 0));
+        assertEquals(1, admission.getRejected());
+
+        first.close();
+        first.close();
+        assertEquals(500, admission.getReservedBytes());
+        assertNotNull(admission.tryAdmit(100, 4));
+    }
+
+    @Test
+    public void testOversizedRequestIsAdmittedWhenIdle() {
+        MemoryAdmission admission = new MemoryAdmission(1000, 1, 0, 100);
+
+        try (MemoryAdmission.Permit permit = admission.tryAdmit(5000, 0)) {
+            assertNotNull(permit);
+            assertNull(admission.tryAdmit(1, 0));
+        }
+        assertEquals(0, admission.getReservedBytes());
+    }
+
+    @Test
+    public void testPageCountIsEstimatedFromSizeWhenUnknown() {
+        MemoryAdmission admission = new MemoryAdmission(1000, 2, 10, 100);
+
+        assertEquals(2 * 1000 + 10 * 10, admission.estimate(1000, -1));
+        assertEquals(2 * 1000 + 10 * 3, admission.estimate(1000, 3));
+    }
+
+    @Test
+    public void testScanPageCountReadsPageTree() throws Exception {
+        assertEquals(7, MemoryAdmission.scanPageCount(new ByteArrayInputStream(TestPdfs.textPdf(7, 2, 2))));
+        assertEquals(-1, MemoryAdmission.scanPageCount(new ByteArrayInputStream("no page tree here".getBytes())));
+        assertEquals(12, MemoryAdmission.scanPageCount(new ByteArrayInputStream("<< /Count -3 >> << /Type /Pages /Count\n12 >>".getBytes())));
+    }
+
+    @Test
+    public void testScanPageCountOnlyReadsThePageTreeRoot() throws Exception {
+        String pdf = "1 0 obj << /Type /Outlines /Count 40 /First 4 0 R >> endobj\n"
+                + "2 0 obj << /Type/Pages/Kids [3 0 R] /Count 3 /Resources << /Count 90 >> >> endobj\n"
+                + "3 0 obj << /Type /Pages /Parent 2 0 R /Count 2 /Kids [] >> endobj\n"
+                + "5 0 obj << /Length 20 >> stream\n<< /Type /Pages /Count 77 >>\nendstream endobj\n"
+                + "6 0 obj << /Title (a \\) << /Count 50 >>) /Count 60 >> endobj\n";
+
+        assertEquals(3, MemoryAdmission.scanPageCount(new ByteArrayInputStream(pdf.getBytes())));
+    }
+}
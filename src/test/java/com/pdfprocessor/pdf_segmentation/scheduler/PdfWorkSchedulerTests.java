@@ -0,0 +1,92 @@
+package com.pdfprocessor.pdf_segmentation.scheduler;
+
+import com.pdfprocessor.pdf_segmentation.metrics.SegmentationMetrics;
+import com.pdfprocessor.pdf_segmentation.metrics.StageTimings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PdfWorkSchedulerTests {
+
+    @Test
+    public void testStagesOnPoolThreadsJoinTheRequest() throws Exception {
+        SegmentationMetrics metrics = new SegmentationMetrics(new SimpleMeterRegistry());
+        PdfWorkScheduler scheduler = newScheduler(metrics, 1, 1);
+        try {
+            StageTimings timings = metrics.beginRequest();
+            String thread = scheduler.submitIo(() -> {
+                        try (SegmentationMetrics.Stage stage = metrics.stage("upload")) {
+                            return Thread.currentThread().getName();
+                        }
+                    })
+                    .thenCompose(ioThread -> scheduler.submitCpu(() -> {
+                        try (SegmentationMetrics.Stage stage = metrics.stage("split")) {
+                            return Thread.currentThread().getName();
+                        }
+                    }))
+                    .get(5, TimeUnit.SECONDS);
+            metrics.endRequest();
+
+            assertTrue(thread.startsWith("pdf-cpu-"), thread);
+            assertEquals(2, timings.getNanos().size());
+            assertTrue(timings.getNanos().containsKey("upload"));
+            assertTrue(timings.getNanos().containsKey("split"));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailuresCompleteExceptionally() {
+        PdfWorkScheduler scheduler = newScheduler(new SegmentationMetrics(new SimpleMeterRegistry()), 1, 1);
+        try {
+            ExecutionException failure = assertThrows(ExecutionException.class,
+                    () -> scheduler.submitCpu(() -> {
+                        throw new IOException("broken");
+                    }).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, failure.getCause());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testSaturatedOnceQueueIsFull() throws Exception {
+        PdfWorkScheduler scheduler = newScheduler(new SegmentationMetrics(new SimpleMeterRegistry()), 1, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 3; i++) {
+                scheduler.submitCpu(() -> release.await(5, TimeUnit.SECONDS));
+            }
+            // One task runs, two wait
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (scheduler.getCpuQueueDepth() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertTrue(scheduler.isSaturated());
+
+            release.countDown();
+            deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (scheduler.isSaturated() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertFalse(scheduler.isSaturated());
+        } finally {
+            release.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    private static PdfWorkScheduler newScheduler(SegmentationMetrics metrics, int cpuThreads, int maxQueued) {
+        PdfWorkScheduler scheduler = new PdfWorkScheduler(cpuThreads, 1, maxQueued);
+        ReflectionTestUtils.setField(scheduler, "segmentationMetrics", metrics);
+        return scheduler;
+    }
+}
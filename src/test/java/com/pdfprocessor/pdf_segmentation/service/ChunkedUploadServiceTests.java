@@ -0,0 +1,140 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChunkedUploadServiceTests {
+
+    @TempDir
+    File tempDir;
+
+    private ChunkedUploadService newService() {
+        return new ChunkedUploadService(tempDir.getPath(), 1 << 30, 1024, 1 << 20, 4, Duration.ofHours(1));
+    }
+
+    @Test
+    public void testChunksInParallelAndOutOfOrderAssembleTheFile() throws Exception {
+        // Arrange
+        byte[] pdf = TestPdfs.textPdf(4, 3, 3);
+        ChunkedUploadService service = newService();
+        ChunkedUpload upload = service.create("parallel.pdf", pdf.length, 1024);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            // Act
+            List<Future<ChunkedUpload>> writes = new ArrayList<>();
+            for (int i = upload.getChunkCount() - 1; i >= 0; i--) {
+                int index = i;
+                writes.add(executor.submit(() -> service.writeChunk(upload.getUploadId(), index, new ByteArrayInputStream(chunk(pdf, index)))));
+            }
+            for (Future<ChunkedUpload> write : writes) {
+                write.get();
+            }
+
+            // Assert
+            assertEquals(ChunkedUpload.Status.COMPLETE, upload.getStatus());
+            assertTrue(upload.getMissingChunks().isEmpty());
+            ChunkedUpload taken = service.take(upload.getUploadId());
+            assertNotNull(taken);
+            try (PdfSource source = service.source(taken)) {
+                assertArrayEquals(pdf, Files.readAllBytes(source.getFile().toPath()));
+            }
+            service.delete(taken);
+            assertNull(service.get(upload.getUploadId()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testNonPdfIsRejectedWithTheFirstChunk() throws Exception {
+        ChunkedUploadService service = newService();
+        ChunkedUpload upload = service.create("fake.pdf", 4096, 1024);
+        byte[] chunk = new byte[1024];
+        Arrays.fill(chunk, (byte) 'x');
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> service.writeChunk(upload.getUploadId(), 0, new ByteArrayInputStream(chunk)));
+
+        assertTrue(e.getMessage().contains("PDF header"));
+        assertNull(service.get(upload.getUploadId()));
+        assertEquals(0, tempDir.listFiles().length);
+    }
+
+    @Test
+    public void testTruncatedFileIsRejectedOnceItsTailArrives() throws Exception {
+        // The declared size is right, but the content stops early and the rest is padding
+        byte[] pdf = TestPdfs.textPdf(12, 4, 4);
+        byte[] truncated = Arrays.copyOf(Arrays.copyOf(pdf, pdf.length / 2), pdf.length);
+        ChunkedUploadService service = newService();
+        ChunkedUpload upload = service.create("truncated.pdf", truncated.length, 1024);
+        int last = upload.getChunkCount() - 1;
+        int firstOfTail = (truncated.length - PdfStructure.TRAILER_WINDOW) / 1024;
+
+        for (int i = last; i > firstOfTail; i--) {
+            service.writeChunk(upload.getUploadId(), i, new ByteArrayInputStream(chunk(truncated, i)));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> service.writeChunk(upload.getUploadId(), firstOfTail, new ByteArrayInputStream(chunk(truncated, firstOfTail))));
+
+        // Only the tail was needed; the other chunks were never sent
+        assertTrue(firstOfTail > 0);
+        assertNull(service.get(upload.getUploadId()));
+    }
+
+    @Test
+    public void testWrongChunkLengthCanBeResent() throws Exception {
+        byte[] pdf = TestPdfs.textPdf(3, 3, 3);
+        ChunkedUploadService service = newService();
+        ChunkedUpload upload = service.create("resend.pdf", pdf.length, 1024);
+
+        assertThrows(IllegalArgumentException.class, () -> service.writeChunk(upload.getUploadId(), 0,
+                new ByteArrayInputStream(Arrays.copyOf(pdf, 512))));
+        service.writeChunk(upload.getUploadId(), 0, new ByteArrayInputStream(Arrays.copyOf(pdf, 1024)));
+
+        assertEquals(1, upload.getReceivedChunks());
+        assertEquals(ChunkedUpload.Status.RECEIVING, upload.getStatus());
+        assertFalse(upload.getMissingChunks().contains(0));
+        assertTrue(service.delete(upload.getUploadId()));
+    }
+
+    @Test
+    public void testFileNamesWithPathsAreRejected() {
+        ChunkedUploadService service = newService();
+
+        for (String name : new String[]{"", ".", "..", "../escape.pdf", "dir/a.pdf", "dir\\a.pdf"}) {
+            assertThrows(IllegalArgumentException.class, () -> service.create(name, 1024, 1024), name);
+        }
+        assertEquals(0, tempDir.listFiles().length);
+    }
+
+    @Test
+    public void testSweepDropsIdleUploadsWithoutNewOnes() throws Exception {
+        ChunkedUploadService service = new ChunkedUploadService(tempDir.getPath(), 1 << 30, 1024, 1 << 20, 4, Duration.ZERO);
+        ChunkedUpload upload = service.create("idle.pdf", 4096, 1024);
+        Thread.sleep(5);
+
+        service.evictIdleUploads();
+
+        assertNull(service.get(upload.getUploadId()));
+        assertFalse(upload.workDirectory().exists());
+    }
+
+    private static byte[] chunk(byte[] content, int index) {
+        return Arrays.copyOfRange(content, index * 1024, Math.min(content.length, (index + 1) * 1024));
+    }
+}
@@ -0,0 +1,123 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.DocumentOpener;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.metrics.SegmentationMetrics;
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageStreamingSegmenterTests {
+
+    @Test
+    public void testSegmentsCoverTheDocumentInOrder() throws IOException {
+        // Arrange: windows of two pages over a five page document
+        PageStreamingSegmenter segmenter = new PageStreamingSegmenter(2, true);
+        ReflectionTestUtils.setField(segmenter, "segmentationMetrics", new SegmentationMetrics(new SimpleMeterRegistry()));
+        List<String> names = new ArrayList<>();
+        List<byte[]> segments = new ArrayList<>();
+        SegmentSink sink = (index, name) -> {
+            assertEquals(names.size(), index);
+            names.add(name);
+            return new ByteArrayOutputStream() {
+                private boolean closed;
+
+                @Override
+                public void close() {
+                    if (!closed) {
+                        closed = true;
+                        segments.add(toByteArray());
+                    }
+                }
+            };
+        };
+
+        byte[] pdf = TestPdfs.textPdf(5, 3, 3);
+        RecordingOpener opener = new RecordingOpener(PdfSource.of("report.pdf", pdf));
+
+        // Act
+        int written = segmenter.segment(opener, 0, 5, 5, ExtractionMode.GEOMETRY, "report.pdf", sink);
+
+        // Assert: every window was opened on its own and closed again
+        assertEquals(5, written);
+        assertTrue(opener.ranges.containsAll(List.of("0-2", "2-4", "4-5")));
+        for (PDDocument document : opener.documents) {
+            assertTrue(document.getDocument().isClosed());
+        }
+        assertEquals("report_segment_1.pdf", names.get(0));
+        float coveredHeight = 0;
+        for (byte[] segment : segments) {
+            try (PDDocument loaded = PDDocument.load(segment)) {
+                for (PDPage page : loaded.getPages()) {
+                    coveredHeight += page.getCropBox().getHeight();
+                }
+            }
+        }
+        assertEquals(5 * PDRectangle.A4.getHeight(), coveredHeight, 0.01f);
+    }
+
+    @Test
+    public void testSegmentBoundHoldsWithMoreCutsThanPages() throws IOException {
+        // Arrange: four blocks on a single page, cut four ways
+        PageStreamingSegmenter segmenter = new PageStreamingSegmenter(2, true);
+        ReflectionTestUtils.setField(segmenter, "segmentationMetrics", new SegmentationMetrics(new SimpleMeterRegistry()));
+        int[] announced = new int[1];
+        SegmentSink sink = new SegmentSink() {
+            @Override
+            public void begin(int segmentCount) {
+                announced[0] = segmentCount;
+            }
+
+            @Override
+            public OutputStream openSegment(int index, String name) {
+                return new ByteArrayOutputStream();
+            }
+        };
+        RecordingOpener opener = new RecordingOpener(PdfSource.of("page.pdf", TestPdfs.textPdf(1, 4, 3)));
+
+        // Act
+        int written = segmenter.segment(opener, 0, 1, 4, ExtractionMode.GEOMETRY, "page.pdf", sink);
+
+        // Assert: the page yields more segments than there are pages, yet no more than announced
+        assertEquals(4, written);
+        assertTrue(written <= announced[0]);
+    }
+
+    // Opens the requested pages lazily and remembers which ranges and documents were opened
+    private static final class RecordingOpener implements DocumentOpener {
+
+        private final PdfSource source;
+        private final List<String> ranges = new ArrayList<>();
+        private final List<PDDocument> documents = new ArrayList<>();
+
+        RecordingOpener(PdfSource source) {
+            this.source = source;
+        }
+
+        @Override
+        public PDDocument open() {
+            throw new AssertionError("The whole document was opened");
+        }
+
+        @Override
+        public PDDocument open(int fromPage, int toPage) throws IOException {
+            ranges.add(fromPage + "-" + toPage);
+            PDDocument document = source.load(MemoryUsageSetting.setupMainMemoryOnly(), fromPage, toPage);
+            documents.add(document);
+            return document;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.ParallelLayoutAnalyzer;
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PdfMemoryPolicyTests {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testScratchOnlyPolicySpillsAndCleansUp() throws IOException {
+        // Arrange
+        File pdfFile = TestPdfs.textPdfFile(tempDir, "scratch.pdf", 4, 3, 3);
+        File scratchRoot = new File(tempDir, "scratch");
+        PdfMemoryPolicy policy = new PdfMemoryPolicy(0, -1, scratchRoot.getPath());
+
+        // Act
+        ScratchSession session = policy.openSession();
+        try (PDDocument document = session.load(pdfFile)) {
+            assertEquals(4, document.getNumberOfPages());
+            session.sample();
+        } finally {
+            session.close();
+        }
+
+        // Assert
+        assertTrue(session.getSpilledBytes() > 0);
+        assertEquals(0, scratchRoot.listFiles().length);
+    }
+
+    @Test
+    public void testMainMemoryPolicyDoesNotSpill() throws IOException {
+        File pdfFile = TestPdfs.textPdfFile(tempDir, "memory.pdf", 2, 2, 2);
+        PdfMemoryPolicy policy = new PdfMemoryPolicy(-1, -1, new File(tempDir, "scratch").getPath());
+
+        try (ScratchSession session = policy.openSession();
+             PDDocument document = session.load(pdfFile)) {
+            session.sample();
+            assertEquals(0, session.getSpilledBytes());
+            assertTrue(session.getMemoryUsageSetting().useMainMemory());
+            assertFalse(session.getMemoryUsageSetting().useTempFile());
+        }
+    }
+
+    @Test
+    public void testBudgetIsSplitBetweenTheJobAndItsWorkers() throws IOException {
+        PdfMemoryPolicy policy = new PdfMemoryPolicy(64 << 20, 128 << 20, new File(tempDir, "scratch").getPath());
+        ParallelLayoutAnalyzer analyzer = new ParallelLayoutAnalyzer(4, 0, 8);
+        ReflectionTestUtils.setField(policy, "parallelLayoutAnalyzer", analyzer);
+
+        try (ScratchSession session = policy.openSession()) {
+            // Half for the job's document, the other half shared by four workers
+            assertEquals(32 << 20, session.getMemoryUsageSetting().getMaxMainMemoryBytes());
+            assertEquals(8 << 20, session.getWorkerMemoryUsageSetting().getMaxMainMemoryBytes());
+            assertEquals(16 << 20, session.getWorkerMemoryUsageSetting().getMaxStorageBytes());
+        } finally {
+            analyzer.shutdown();
+        }
+    }
+}
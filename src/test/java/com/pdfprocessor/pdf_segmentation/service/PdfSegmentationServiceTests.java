@@ -1,14 +1,25 @@
 package com.pdfprocessor.pdf_segmentation.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 @RunWith(SpringRunner.class)
@@ -103,5 +114,186 @@ public class PdfSegmentationServiceTests {
         assertThrows(IllegalArgumentException.class, () -> pdfSegmentationService.updateSegmentation(nonexistentPdfId, 3));
     }
 
+    @Test
+    public void testUpdateSegmentation_RecutsFromLayoutIndex(@TempDir File tempDir) throws IOException {
+        // Arrange
+        File pdfFile = TestPdfs.textPdfFile(tempDir, "recut-" + System.nanoTime() + ".pdf", 5, 3, 3);
+        String pdfId = pdfFile.getName();
+        List<File> segmentedFiles = pdfSegmentationService.segmentPdf(pdfFile, 2);
+
+        try {
+            // Act: the upload is gone, only the retained source and layout index remain
+            assertTrue(pdfFile.delete());
+            PdfSegmentationService.PdfMetadata updated = pdfSegmentationService.updateSegmentation(pdfId, 4);
+            PdfSegmentationService.PdfMetadata modified = pdfSegmentationService.modifySegmentation(pdfId, 3);
+
+            // Assert
+            assertEquals(2, segmentedFiles.size());
+            assertEquals(4, updated.getSegmentCount());
+            assertEquals(3, modified.getSegmentCount());
+            assertEquals(3, pdfSegmentationService.getPdfMetadata(pdfId).getCuts());
+        } finally {
+            pdfSegmentationService.deletePdf(pdfId);
+            for (int i = 0; i < 4; i++) {
+                new File(PdfSegmentationService.segmentName(pdfId, i)).delete();
+            }
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_PageRange() throws IOException {
+        // Arrange
+        byte[] pdf = TestPdfs.textPdf(6, 3, 2);
+        String pdfId = "range-" + System.nanoTime() + ".pdf";
+        List<ByteArrayOutputStream> segments = new ArrayList<>();
+        SegmentSink sink = (index, name) -> {
+            ByteArrayOutputStream segment = new ByteArrayOutputStream();
+            segments.add(segment);
+            return segment;
+        };
+
+        try {
+            // Act
+            PdfSegmentationService.PdfMetadata metadata;
+            try (PdfSource source = PdfSource.of(pdfId, pdf)) {
+                metadata = pdfSegmentationService.segmentPdf(source, 2, null, PageRange.of(3, 4), sink);
+            }
+
+            // Assert
+            assertEquals(3, metadata.getFirstPage());
+            assertEquals(4, metadata.getLastPage());
+            assertEquals(2, segments.size());
+            StringBuilder text = new StringBuilder();
+            for (ByteArrayOutputStream segment : segments) {
+                try (PDDocument document = PDDocument.load(segment.toByteArray())) {
+                    text.append(new PDFTextStripper().getText(document));
+                }
+            }
+            assertTrue(text.toString().contains("Page 3"));
+            assertTrue(text.toString().contains("Page 4"));
+            assertFalse(text.toString().contains("Page 2"));
+            assertFalse(text.toString().contains("Page 5"));
+        } finally {
+            pdfSegmentationService.deletePdf(pdfId);
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_PageStreamingOpensTheRangeWindowByWindow() throws IOException {
+        // Arrange: windows of one page, so the second segment reaches back into the closed first window
+        byte[] pdf = TestPdfs.textPdf(6, 3, 2);
+        String pdfId = "streaming-" + System.nanoTime() + ".pdf";
+        List<ByteArrayOutputStream> segments = new ArrayList<>();
+        SegmentSink sink = (index, name) -> {
+            ByteArrayOutputStream segment = new ByteArrayOutputStream();
+            segments.add(segment);
+            return segment;
+        };
+        Object segmenter = ReflectionTestUtils.getField(pdfSegmentationService, "pageStreamingSegmenter");
+        Object windowPages = ReflectionTestUtils.getField(segmenter, "windowPages");
+        ReflectionTestUtils.setField(pdfSegmentationService, "pageStreaming", true);
+        ReflectionTestUtils.setField(segmenter, "windowPages", 1);
+
+        try {
+            // Act
+            PdfSegmentationService.PdfMetadata metadata;
+            try (PdfSource source = PdfSource.of(pdfId, pdf)) {
+                metadata = pdfSegmentationService.segmentPdf(source, 2, null, PageRange.of(3, 4), sink);
+            }
+
+            // Assert
+            assertEquals(2, metadata.getSegmentCount());
+            assertEquals(2, segments.size());
+            StringBuilder text = new StringBuilder();
+            for (ByteArrayOutputStream segment : segments) {
+                try (PDDocument document = PDDocument.load(segment.toByteArray())) {
+                    text.append(new PDFTextStripper().getText(document));
+                }
+            }
+            assertTrue(text.toString().contains("Page 3"));
+            assertTrue(text.toString().contains("Page 4"));
+            assertFalse(text.toString().contains("Page 2"));
+            assertFalse(text.toString().contains("Page 5"));
+        } finally {
+            ReflectionTestUtils.setField(pdfSegmentationService, "pageStreaming", false);
+            ReflectionTestUtils.setField(segmenter, "windowPages", windowPages);
+            pdfSegmentationService.deletePdf(pdfId);
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_PageRangeBeyondDocument() throws IOException {
+        byte[] pdf = TestPdfs.textPdf(2, 1, 1);
+
+        try (PdfSource source = PdfSource.of("beyond-" + System.nanoTime() + ".pdf", pdf)) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> pdfSegmentationService.segmentPdf(source, 1, null, PageRange.of(3, null), (index, name) -> new ByteArrayOutputStream()));
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_ScannedPdfIsCutFromItsRendering() throws IOException {
+        // Arrange
+        byte[] pdf = TestPdfs.scannedPdf(3, 3, 3);
+        List<String> names = new ArrayList<>();
+        SegmentSink sink = (index, name) -> {
+            names.add(name);
+            return new ByteArrayOutputStream();
+        };
+
+        // Act
+        PdfSegmentationService.PdfMetadata geometry;
+        try (PdfSource source = PdfSource.of("scanned-" + System.nanoTime() + ".pdf", pdf)) {
+            geometry = pdfSegmentationService.segmentPdf(source, 2, null, null, sink);
+        }
+        PdfSegmentationService.PdfMetadata text;
+        try (PdfSource source = PdfSource.of("scanned-" + System.nanoTime() + ".pdf", pdf)) {
+            text = pdfSegmentationService.segmentPdf(source, 2, ExtractionMode.TEXT, null, sink);
+        }
+
+        // Assert: the pages hold no text, yet their gaps are found
+        try {
+            assertEquals(2, geometry.getSegmentCount());
+            assertEquals(2, text.getSegmentCount());
+            assertEquals(4, names.size());
+        } finally {
+            pdfSegmentationService.deletePdf(geometry.getPdfId());
+            pdfSegmentationService.deletePdf(text.getPdfId());
+        }
+    }
+
+    @Test
+    public void testSegmentPdf_BlankPdfYieldsNoSegments() throws IOException {
+        // Arrange: pages without content give neither text nor a rendering to cut, so the layout index is empty
+        byte[] pdf;
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int i = 0; i < 3; i++) {
+                document.addPage(new PDPage(PDRectangle.A4));
+            }
+            document.save(out);
+            pdf = out.toByteArray();
+        }
+        List<String> names = new ArrayList<>();
+        SegmentSink sink = (index, name) -> {
+            names.add(name);
+            return new ByteArrayOutputStream();
+        };
+
+        // Act
+        PdfSegmentationService.PdfMetadata metadata;
+        try (PdfSource source = PdfSource.of("blank-" + System.nanoTime() + ".pdf", pdf)) {
+            metadata = pdfSegmentationService.segmentPdf(source, 2, null, null, sink);
+        }
+
+        // Assert
+        try {
+            assertEquals(0, metadata.getSegmentCount());
+            assertTrue(names.isEmpty());
+        } finally {
+            pdfSegmentationService.deletePdf(metadata.getPdfId());
+        }
+    }
+
     // Add more tests for modifySegmentation and deletePdf methods
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PdfSourceTests {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testSmallUploadStaysInMemory() throws IOException {
+        // Arrange
+        byte[] pdf = TestPdfs.textPdf(2, 2, 2);
+        File spillDir = new File(tempDir, "spill");
+
+        // Act
+        try (PdfSource source = PdfSource.spool("small.pdf", new ByteArrayInputStream(pdf), pdf.length, spillDir.toPath());
+             PDDocument document = source.load(MemoryUsageSetting.setupMainMemoryOnly())) {
+
+            // Assert
+            assertTrue(source.isInMemory());
+            assertNull(source.getFile());
+            assertEquals(pdf.length, source.length());
+            assertEquals(2, document.getNumberOfPages());
+        }
+        assertFalse(spillDir.exists());
+    }
+
+    @Test
+    public void testLargeUploadSpillsAndIsDeletedOnClose() throws IOException {
+        byte[] pdf = TestPdfs.textPdf(3, 2, 2);
+        File spillDir = new File(tempDir, "spill");
+
+        PdfSource source = PdfSource.spool("large.pdf", new ByteArrayInputStream(pdf), 1024, spillDir.toPath());
+        try {
+            assertFalse(source.isInMemory());
+            assertEquals("large.pdf", source.getName());
+            assertArrayEquals(pdf, Files.readAllBytes(source.getFile().toPath()));
+            try (PDDocument document = source.load(MemoryUsageSetting.setupMainMemoryOnly())) {
+                assertEquals(3, document.getNumberOfPages());
+            }
+        } finally {
+            source.close();
+        }
+        assertEquals(0, spillDir.listFiles().length);
+    }
+
+    @Test
+    public void testByteBufferAndFileSourcesReadTheSameContent() throws IOException {
+        byte[] pdf = TestPdfs.textPdf(1, 1, 1);
+        File file = new File(tempDir, "file.pdf");
+        Files.write(file.toPath(), pdf);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(pdf.length).put(pdf).flip();
+
+        try (PdfSource fromBuffer = PdfSource.of("buffer.pdf", buffer);
+             PdfSource fromFile = PdfSource.of(file);
+             InputStream a = fromBuffer.openStream();
+             InputStream b = fromFile.openStream()) {
+            assertArrayEquals(a.readAllBytes(), b.readAllBytes());
+        }
+        // Closing a source opened on an existing file leaves the file alone
+        assertTrue(file.isFile());
+    }
+
+    @Test
+    public void testPageRangeLoadsOnlyRequestedPages() throws IOException {
+        // Arrange
+        byte[] pdf = TestPdfs.textPdf(5, 2, 2);
+
+        // Act
+        try (PdfSource source = PdfSource.of("range.pdf", ByteBuffer.wrap(pdf));
+             PDDocument document = source.load(MemoryUsageSetting.setupMainMemoryOnly(), 1, 3)) {
+
+            // Assert
+            assertEquals(5, document.getNumberOfPages());
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(2);
+            stripper.setEndPage(3);
+            String text = stripper.getText(document);
+            assertTrue(text.contains("Page 2 block 1"));
+            assertTrue(text.contains("Page 3 block 2"));
+            assertFalse(text.contains("Page 4"));
+            // Content streams outside the range are never parsed
+            COSObject contents = (COSObject) document.getPage(4).getCOSObject().getItem(COSName.CONTENTS);
+            assertNull(contents.getObject());
+            assertNotNull(((COSObject) document.getPage(1).getCOSObject().getItem(COSName.CONTENTS)).getObject());
+        }
+    }
+
+    @Test
+    public void testDamagedPageTreeFallsBackToFullLoad() throws IOException {
+        // The page count no longer matches the tree, which the lazy parser refuses and the full parser repairs
+        byte[] pdf = new String(TestPdfs.textPdf(2, 1, 1), StandardCharsets.ISO_8859_1)
+                .replace("/Count 2", "/Count 7")
+                .getBytes(StandardCharsets.ISO_8859_1);
+
+        try (PdfSource source = PdfSource.of("damaged.pdf", ByteBuffer.wrap(pdf));
+             PDDocument document = source.load(MemoryUsageSetting.setupMainMemoryOnly(), 0, 1)) {
+            String text = new PDFTextStripper().getText(document);
+            assertTrue(text.contains("Page 1"));
+            assertTrue(text.contains("Page 2"));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentStoreTests {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testSegmentsAreVisibleOnlyAfterCommit() throws IOException {
+        // Arrange
+        SegmentStore store = new SegmentStore(tempDir.getPath());
+        SegmentStore.Writer writer = store.open("doc.pdf");
+        write(writer, 0, "doc_segment_1.pdf", "one");
+        write(writer, 1, "doc_segment_2.pdf", "two");
+
+        // Act / Assert
+        assertNull(store.getSegment("doc.pdf", 0));
+        writer.commit();
+        SegmentStore.Segment segment = store.getSegment("doc.pdf", 1);
+        assertNotNull(segment);
+        assertEquals("doc_segment_2.pdf", segment.getName());
+        assertEquals("two", Files.readString(segment.getFile().toPath(), StandardCharsets.UTF_8));
+        assertEquals(2, store.getSegmentCount("doc.pdf"));
+        assertNull(store.getSegment("doc.pdf", 2));
+    }
+
+    @Test
+    public void testAbortKeepsThePublishedGeneration() throws IOException {
+        SegmentStore store = new SegmentStore(tempDir.getPath());
+        SegmentStore.Writer first = store.open("doc.pdf");
+        write(first, 0, "doc_segment_1.pdf", "first");
+        first.commit();
+        String version = store.getSegment("doc.pdf", 0).getVersion();
+
+        SegmentStore.Writer second = store.open("doc.pdf");
+        write(second, 0, "doc_segment_1.pdf", "second");
+        second.abort();
+
+        assertEquals(version, store.getSegment("doc.pdf", 0).getVersion());
+        assertEquals("first", Files.readString(store.getSegment("doc.pdf", 0).getFile().toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testNewGenerationChangesVersionAndIsReloadedFromDisk() throws IOException {
+        SegmentStore store = new SegmentStore(tempDir.getPath());
+        for (String content : new String[]{"a", "b", "c"}) {
+            SegmentStore.Writer writer = store.open("doc.pdf");
+            write(writer, 0, "doc_segment_1.pdf", content);
+            writer.commit();
+        }
+        String version = store.getSegment("doc.pdf", 0).getVersion();
+
+        // A new instance, as after a restart, finds the newest committed generation
+        SegmentStore reopened = new SegmentStore(tempDir.getPath());
+        SegmentStore.Segment segment = reopened.getSegment("doc.pdf", 0);
+        assertEquals(version, segment.getVersion());
+        assertEquals("c", Files.readString(segment.getFile().toPath(), StandardCharsets.UTF_8));
+        // Only the current generation and the one before it are kept
+        assertEquals(2, segment.getFile().getParentFile().getParentFile().listFiles().length);
+    }
+
+    @Test
+    public void testRemoveDeletesEveryGeneration() throws IOException {
+        SegmentStore store = new SegmentStore(tempDir.getPath());
+        SegmentStore.Writer writer = store.open("../doc.pdf");
+        write(writer, 0, "doc_segment_1.pdf", "x");
+        writer.commit();
+
+        assertTrue(store.remove("../doc.pdf"));
+        assertNull(store.getSegment("../doc.pdf", 0));
+        assertEquals(0, tempDir.listFiles().length);
+        assertFalse(store.remove("../doc.pdf"));
+    }
+
+    private static void write(SegmentStore.Writer writer, int index, String name, String content) throws IOException {
+        try (OutputStream out = writer.openSegment(index, name)) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.layout.PageRegion;
+import com.pdfprocessor.pdf_segmentation.support.TestPdfs;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionGoTo;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageXYZDestination;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentWriterTests {
+
+    @Test
+    public void testSharedResourcesArePrunedPerSegment() throws IOException {
+        // Arrange: three pages share one resource dictionary, each draws one of its images
+        try (PDDocument document = PDDocument.load(sharedResourcesPdf(3))) {
+
+            // Act
+            byte[] pruned = write(new SegmentWriter(true), document, 1);
+            byte[] unpruned = write(new SegmentWriter(false), document, 1);
+
+            // Assert
+            assertTrue(pruned.length * 2 < unpruned.length, pruned.length + " vs " + unpruned.length);
+            try (PDDocument segment = PDDocument.load(pruned)) {
+                PDResources resources = segment.getPage(0).getResources();
+                Iterator<COSName> images = resources.getXObjectNames().iterator();
+                assertTrue(images.hasNext());
+                images.next();
+                assertFalse(images.hasNext());
+                assertTrue(resources.getFontNames().iterator().hasNext());
+            }
+        }
+    }
+
+    @Test
+    public void testLinksLeavingTheSegmentAreDropped() throws IOException {
+        // Arrange: the first page links to itself and to the last page
+        byte[] source;
+        try (PDDocument document = PDDocument.load(sharedResourcesPdf(3))) {
+            PDPage first = document.getPage(0);
+            first.getAnnotations().add(link(first, null));
+            first.getAnnotations().add(link(null, document.getPage(2)));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            source = out.toByteArray();
+        }
+
+        try (PDDocument document = PDDocument.load(source)) {
+            // Act
+            byte[] written = write(new SegmentWriter(true), document, 0);
+
+            // Assert: nothing of the other pages comes along
+            assertTrue(written.length * 2 < source.length, written.length + " vs " + source.length);
+            try (PDDocument segment = PDDocument.load(written)) {
+                assertEquals(1, segment.getNumberOfPages());
+                List<PDAnnotation> annotations = segment.getPage(0).getAnnotations();
+                assertEquals(2, annotations.size());
+                PDAnnotationLink self = (PDAnnotationLink) annotations.get(0);
+                assertSame(segment.getPage(0).getCOSObject(),
+                        ((PDPageDestination) self.getDestination()).getPage().getCOSObject());
+                PDAnnotationLink outside = (PDAnnotationLink) annotations.get(1);
+                assertNull(outside.getAction());
+                assertNull(outside.getDestination());
+            }
+            // The source keeps its links
+            assertNotNull(((PDAnnotationLink) document.getPage(0).getAnnotations().get(1)).getAction());
+        }
+    }
+
+    @Test
+    public void testRegionPageKeepsInheritedAttributes() throws IOException {
+        // Arrange
+        try (PDDocument document = PDDocument.load(TestPdfs.textPdf(1, 2, 2))) {
+            PDPage source = document.getPage(0);
+
+            // Act
+            PDPage page = new SegmentWriter(true).copyPage(source, new PageRegion(0, 100f, 300f));
+
+            // Assert
+            assertEquals(200f, page.getCropBox().getHeight(), 0.01f);
+            assertEquals(PDRectangle.A4.getHeight() - 300f, page.getCropBox().getLowerLeftY(), 0.01f);
+            assertNotNull(page.getResources().getFont(source.getResources().getFontNames().iterator().next()));
+            assertSame(document.getPages().getCOSObject(), source.getCOSObject().getDictionaryObject(COSName.PARENT));
+            assertEquals(PDRectangle.A4.getHeight(), source.getCropBox().getHeight(), 0.01f);
+        }
+    }
+
+    @Test
+    public void testFormsNestedTooDeeplyKeepTheResources() throws IOException {
+        // Arrange: pages drawing chains of forms that use the page's resources, next to an unused image
+        try (PDDocument shallow = PDDocument.load(nestedFormsPdf(3));
+             PDDocument deep = PDDocument.load(nestedFormsPdf(12))) {
+
+            // Act
+            PDResources pruned = new SegmentWriter(true).copyPage(shallow.getPage(0), null).getResources();
+            PDResources kept = new SegmentWriter(true).copyPage(deep.getPage(0), null).getResources();
+
+            // Assert: a chain that is scanned to its end is pruned, a deeper one is left whole
+            assertNotNull(pruned.getXObject(COSName.getPDFName("F2")));
+            assertFalse(pruned.isImageXObject(COSName.getPDFName("Unused")));
+            assertNotNull(kept.getXObject(COSName.getPDFName("F11")));
+            assertTrue(kept.isImageXObject(COSName.getPDFName("Unused")));
+        }
+    }
+
+    private static byte[] write(SegmentWriter writer, PDDocument document, int pageIndex) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writePage(document, pageIndex, out);
+        return out.toByteArray();
+    }
+
+    private static PDAnnotationLink link(PDPage destinationPage, PDPage actionPage) {
+        PDAnnotationLink link = new PDAnnotationLink();
+        link.setRectangle(new PDRectangle(50, 50, 100, 20));
+        PDPageXYZDestination destination = new PDPageXYZDestination();
+        if (destinationPage != null) {
+            destination.setPage(destinationPage);
+            link.setDestination(destination);
+        } else {
+            destination.setPage(actionPage);
+            PDActionGoTo action = new PDActionGoTo();
+            action.setDestination(destination);
+            link.setAction(action);
+        }
+        return link;
+    }
+
+    // A page that draws form F0, where each form Fi draws F(i + 1) with the page's resources. The forms are
+    // listed deepest first, so every pass over the resources finds one more level.
+    private static byte[] nestedFormsPdf(int depth) throws IOException {
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDResources resources = new PDResources();
+            for (int i = depth - 1; i >= 0; i--) {
+                PDFormXObject form = new PDFormXObject(document);
+                form.setBBox(new PDRectangle(100, 100));
+                try (OutputStream content = form.getContentStream().createOutputStream()) {
+                    String drawn = i + 1 < depth ? "/F" + (i + 1) + " Do\n" : "0 0 10 10 re f\n";
+                    content.write(drawn.getBytes(StandardCharsets.US_ASCII));
+                }
+                resources.put(COSName.getPDFName("F" + i), form);
+            }
+            resources.put(COSName.getPDFName("Unused"),
+                    LosslessFactory.createFromImage(document, new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB)));
+            PDPage page = new PDPage(PDRectangle.A4);
+            page.setResources(resources);
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.drawForm((PDFormXObject) resources.getXObject(COSName.getPDFName("F0")));
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] sharedResourcesPdf(int pages) throws IOException {
+        Random random = new Random(3);
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDResources shared = new PDResources();
+            PDImageXObject[] images = new PDImageXObject[pages];
+            for (int i = 0; i < pages; i++) {
+                BufferedImage noise = new BufferedImage(120, 120, BufferedImage.TYPE_INT_RGB);
+                for (int x = 0; x < 120; x++) {
+                    for (int y = 0; y < 120; y++) {
+                        noise.setRGB(x, y, random.nextInt(0x1000000));
+                    }
+                }
+                images[i] = LosslessFactory.createFromImage(document, noise);
+                shared.add(images[i]);
+            }
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                page.setResources(shared);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(images[i], 50, 600, 120, 120);
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.newLineAtOffset(50, 500);
+                    content.showText("Page " + (i + 1));
+                    content.endText();
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.archive.ArchiveCompression;
+import com.pdfprocessor.pdf_segmentation.archive.SegmentArchiver;
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.metrics.SegmentationMetrics;
+import com.pdfprocessor.pdf_segmentation.scheduler.PdfWorkScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentationJobServiceTests {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testSubmissionsAreRejectedWhenSaturated() throws Exception {
+        // Arrange: one worker, one queue slot, and a segmentation that blocks until released
+        CountDownLatch release = new CountDownLatch(1);
+        PdfSegmentationService blockingService = new PdfSegmentationService() {
+            @Override
+            public PdfMetadata segmentPdf(File pdfFile, int cuts, ExtractionMode mode, SegmentSink sink) throws IOException {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                sink.begin(0);
+                return new PdfMetadata(pdfFile.getName(), 0, cuts);
+            }
+        };
+        SegmentationJobService jobService = new SegmentationJobService(1, 1, 10, tempDir.getPath());
+        ReflectionTestUtils.setField(jobService, "pdfSegmentationService", blockingService);
+        ReflectionTestUtils.setField(jobService, "segmentArchiver",
+                new SegmentArchiver(ArchiveCompression.ADAPTIVE, 6, 65536, 0.1, false, 0, 0, 0));
+        PdfWorkScheduler scheduler = newScheduler();
+        ReflectionTestUtils.setField(jobService, "pdfWorkScheduler", scheduler);
+
+        try {
+            // Act
+            SegmentationJob running = jobService.submit(new ByteArrayInputStream(new byte[1]), "a.pdf", 1);
+            SegmentationJob queued = null;
+            for (int attempt = 0; attempt < 100 && queued == null; attempt++) {
+                if (running.getStatus() == SegmentationJob.Status.RUNNING) {
+                    queued = jobService.submit(new ByteArrayInputStream(new byte[1]), "b.pdf", 1);
+                } else {
+                    Thread.sleep(20);
+                }
+            }
+
+            // Assert
+            assertNotNull(queued);
+            assertTrue(jobService.isSaturated());
+            assertThrows(RejectedExecutionException.class,
+                    () -> jobService.submit(new ByteArrayInputStream(new byte[1]), "c.pdf", 1));
+
+            release.countDown();
+            for (int attempt = 0; attempt < 100 && !queued.isFinished(); attempt++) {
+                Thread.sleep(20);
+            }
+            assertEquals(SegmentationJob.Status.COMPLETED, running.getStatus());
+            assertEquals(SegmentationJob.Status.COMPLETED, queued.getStatus());
+            assertNotNull(jobService.getResult(queued.getJobId()));
+        } finally {
+            release.countDown();
+            jobService.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testSweepDropsExpiredJobsWithoutNewSubmissions() throws Exception {
+        PdfSegmentationService emptyService = new PdfSegmentationService() {
+            @Override
+            public PdfMetadata segmentPdf(File pdfFile, int cuts, ExtractionMode mode, SegmentSink sink) throws IOException {
+                sink.begin(0);
+                return new PdfMetadata(pdfFile.getName(), 0, cuts);
+            }
+        };
+        SegmentationJobService jobService = new SegmentationJobService(1, 1, 10, tempDir.getPath());
+        ReflectionTestUtils.setField(jobService, "pdfSegmentationService", emptyService);
+        ReflectionTestUtils.setField(jobService, "segmentArchiver",
+                new SegmentArchiver(ArchiveCompression.ADAPTIVE, 6, 65536, 0.1, false, 0, 0, 0));
+        PdfWorkScheduler scheduler = newScheduler();
+        ReflectionTestUtils.setField(jobService, "pdfWorkScheduler", scheduler);
+        ReflectionTestUtils.setField(jobService, "retention", Duration.ZERO);
+
+        try {
+            SegmentationJob job = jobService.submit(new ByteArrayInputStream(new byte[1]), "a.pdf", 1);
+            for (int attempt = 0; attempt < 100 && !job.isFinished(); attempt++) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(5);
+
+            jobService.sweepFinishedJobs();
+
+            assertNull(jobService.getJob(job.getJobId()));
+            assertEquals(0, tempDir.listFiles().length);
+        } finally {
+            jobService.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testSegmentCountIsCorrectedWhenFewerSegmentsFollow() throws Exception {
+        // Arrange: like page streaming, the segmentation announces more segments than it writes
+        PdfSegmentationService streamingService = new PdfSegmentationService() {
+            @Override
+            public PdfMetadata segmentPdf(File pdfFile, int cuts, ExtractionMode mode, SegmentSink sink) throws IOException {
+                sink.begin(cuts);
+                for (int i = 0; i < 2; i++) {
+                    sink.openSegment(i, "a_segment_" + (i + 1) + ".pdf").close();
+                }
+                return new PdfMetadata(pdfFile.getName(), 2, cuts);
+            }
+        };
+        SegmentationJobService jobService = new SegmentationJobService(1, 1, 10, tempDir.getPath());
+        ReflectionTestUtils.setField(jobService, "pdfSegmentationService", streamingService);
+        ReflectionTestUtils.setField(jobService, "segmentArchiver",
+                new SegmentArchiver(ArchiveCompression.ADAPTIVE, 6, 65536, 0.1, false, 0, 0, 0));
+        PdfWorkScheduler scheduler = newScheduler();
+        ReflectionTestUtils.setField(jobService, "pdfWorkScheduler", scheduler);
+
+        try {
+            // Act
+            SegmentationJob job = jobService.submit(new ByteArrayInputStream(new byte[1]), "a.pdf", 5);
+            for (int attempt = 0; attempt < 100 && !job.isFinished(); attempt++) {
+                Thread.sleep(20);
+            }
+
+            // Assert
+            assertEquals(SegmentationJob.Status.COMPLETED, job.getStatus());
+            assertEquals(2, job.getSegmentCount());
+            assertEquals(2, job.getSegmentsWritten());
+            assertEquals(1.0, job.getProgress(), 0.0001);
+        } finally {
+            jobService.shutdown();
+            scheduler.shutdown();
+        }
+    }
+
+    private static PdfWorkScheduler newScheduler() {
+        PdfWorkScheduler scheduler = new PdfWorkScheduler(2, 1, 0);
+        ReflectionTestUtils.setField(scheduler, "segmentationMetrics", new SegmentationMetrics(new SimpleMeterRegistry()));
+        return scheduler;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pdfprocessor.pdf_segmentation.service;
+
+import com.pdfprocessor.pdf_segmentation.cache.SegmentationResultCache;
+import com.pdfprocessor.pdf_segmentation.store.MetadataStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+public class SegmentationWarmupTests {
+
+    @Autowired
+    private SegmentationWarmup segmentationWarmup;
+
+    @Autowired
+    private MetadataStore metadataStore;
+
+    @Autowired
+    private SegmentationResultCache resultCache;
+
+    @Autowired
+    private ApplicationAvailability applicationAvailability;
+
+    @Test
+    public void testWarmUpLeavesNothingBehind() throws IOException {
+        // Arrange: the context only reports ready once the startup warm-up returned
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, applicationAvailability.getReadinessState());
+        int documents = metadataStore.size();
+        long cacheLookups = resultCache.getHits() + resultCache.getMisses();
+
+        // Act
+        int warmedUp = segmentationWarmup.warmUp();
+
+        // Assert
+        assertEquals(3, warmedUp);
+        assertEquals(documents, metadataStore.size());
+        assertEquals(cacheLookups, resultCache.getHits() + resultCache.getMisses());
+    }
+}
@@ -0,0 +1,165 @@
+package com.pdfprocessor.pdf_segmentation.store;
+
+import com.pdfprocessor.pdf_segmentation.layout.ExtractionMode;
+import com.pdfprocessor.pdf_segmentation.service.PageRange;
+import com.pdfprocessor.pdf_segmentation.service.PdfSegmentationService.PdfMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetadataStoreTests {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void testEntriesExpireAfterTtl() throws InterruptedException {
+        InMemoryMetadataStore store = new InMemoryMetadataStore(Duration.ofMillis(50), 0);
+        store.put(new PdfMetadata("a.pdf", 2, 2));
+        assertNotNull(store.get("a.pdf"));
+
+        Thread.sleep(80);
+
+        assertNull(store.get("a.pdf"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testOldestWritesAreEvictedBeyondMaxEntries() {
+        InMemoryMetadataStore store = new InMemoryMetadataStore(Duration.ZERO, 2);
+        List<String> evicted = new ArrayList<>();
+        store.addEvictionListener(metadata -> evicted.add(metadata.getPdfId()));
+
+        store.put(new PdfMetadata("a.pdf", 1, 1));
+        store.put(new PdfMetadata("b.pdf", 1, 1));
+        store.put(new PdfMetadata("a.pdf", 2, 2));
+        store.put(new PdfMetadata("c.pdf", 1, 1));
+
+        assertEquals(List.of("b.pdf"), evicted);
+        assertEquals(2, store.get("a.pdf").getCuts());
+        assertNull(store.get("b.pdf"));
+        assertNotNull(store.get("c.pdf"));
+    }
+
+    @Test
+    public void testConcurrentWritersStayWithinBounds() throws Exception {
+        InMemoryMetadataStore store = new InMemoryMetadataStore(Duration.ZERO, 500);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5000; i++) {
+                        String id = "doc-" + thread + "-" + (i % 300);
+                        store.put(new PdfMetadata(id, i, i));
+                        store.get(id);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        store.put(new PdfMetadata("last.pdf", 1, 1));
+
+        assertTrue(store.size() <= 500, "size was " + store.size());
+        assertNotNull(store.get("last.pdf"));
+    }
+
+    @Test
+    public void testFileStoreReloadsFromLog() throws Exception {
+        Path logFile = tempDir.toPath().resolve("metadata.log");
+        try (FileMetadataStore store = new FileMetadataStore(logFile, Duration.ofHours(1), 100)) {
+            PdfMetadata metadata = new PdfMetadata("a b\t.pdf", 3, 3);
+            metadata.setSpilledBytes(42);
+            metadata.setPageRange(PageRange.of(2, null));
+            metadata.setExtractionMode(ExtractionMode.CONTENT_STREAM);
+            store.put(metadata);
+            store.put(new PdfMetadata("b.pdf", 1, 1));
+            store.put(new PdfMetadata("b.pdf", 2, 2));
+            store.put(new PdfMetadata("c.pdf", 1, 1));
+            assertNotNull(store.remove("c.pdf"));
+        }
+        // A torn record from an interrupted write is skipped
+        Files.writeString(logFile, "P\tbroken", StandardOpenOption.APPEND);
+
+        try (FileMetadataStore reloaded = new FileMetadataStore(logFile, Duration.ofHours(1), 100)) {
+            assertEquals(2, reloaded.size());
+            assertEquals(42, reloaded.get("a b\t.pdf").getSpilledBytes());
+            assertEquals(2, reloaded.get("a b\t.pdf").getFirstPage());
+            assertNull(reloaded.get("a b\t.pdf").getLastPage());
+            assertEquals(ExtractionMode.CONTENT_STREAM, reloaded.get("a b\t.pdf").getExtractionMode());
+            assertNull(reloaded.get("b.pdf").getExtractionMode());
+            assertNull(reloaded.get("b.pdf").getPageRange());
+            assertEquals(2, reloaded.get("b.pdf").getCuts());
+            assertNull(reloaded.get("c.pdf"));
+        }
+        // Reloading compacts the log to the live entries
+        assertEquals(2, Files.readAllLines(logFile).size());
+    }
+
+    @Test
+    public void testFileStoreEvictionsReachListenersAndTheLog() throws Exception {
+        Path logFile = tempDir.toPath().resolve("metadata.log");
+        List<String> evicted = new ArrayList<>();
+        try (FileMetadataStore store = new FileMetadataStore(logFile, Duration.ZERO, 1)) {
+            store.addEvictionListener(metadata -> evicted.add(metadata.getPdfId()));
+
+            store.put(new PdfMetadata("a.pdf", 1, 1));
+            store.put(new PdfMetadata("b.pdf", 1, 1));
+        }
+
+        assertEquals(List.of("a.pdf"), evicted);
+        try (FileMetadataStore reloaded = new FileMetadataStore(logFile, Duration.ZERO, 1)) {
+            assertNull(reloaded.get("a.pdf"));
+            assertNotNull(reloaded.get("b.pdf"));
+        }
+    }
+
+    @Test
+    public void testWriteWaitsForTheEvictionOfAnExpiredEntry() throws Exception {
+        // Arrange: an expired entry whose listener sees a new upload of the same id arrive
+        Path logFile = tempDir.toPath().resolve("metadata.log");
+        List<Boolean> writerBlocked = new ArrayList<>();
+        try (FileMetadataStore store = new FileMetadataStore(logFile, Duration.ofMillis(50), 0)) {
+            store.put(new PdfMetadata("a.pdf", 1, 1));
+            Thread.sleep(80);
+            Thread writer = new Thread(() -> store.put(new PdfMetadata("a.pdf", 2, 2)));
+            store.addEvictionListener(metadata -> {
+                writer.start();
+                try {
+                    writer.join(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writerBlocked.add(writer.isAlive());
+            });
+
+            // Act: the read finds the entry expired and evicts it
+            assertNull(store.get("a.pdf"));
+            writer.join();
+
+            // Assert: the new entry was written after the eviction, in memory and in the log
+            assertEquals(List.of(true), writerBlocked);
+            assertEquals(2, store.get("a.pdf").getCuts());
+        }
+        try (FileMetadataStore reloaded = new FileMetadataStore(logFile, Duration.ofHours(1), 0)) {
+            assertEquals(2, reloaded.get("a.pdf").getCuts());
+        }
+    }
+}
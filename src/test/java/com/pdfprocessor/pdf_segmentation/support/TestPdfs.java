@@ -0,0 +1,80 @@
+package com.pdfprocessor.pdf_segmentation.support;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+// Builds small text PDFs for tests: every page holds blocks of lines separated by growing whitespace gaps.
+// Scanned PDFs hold the same pages as images only, without any text.
+public final class TestPdfs {
+
+    private TestPdfs() {
+    }
+
+    public static byte[] textPdf(int pages, int blocksPerPage, int linesPerBlock) throws IOException {
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    float y = page.getMediaBox().getHeight() - 50;
+                    for (int b = 0; b < blocksPerPage; b++) {
+                        for (int l = 0; l < linesPerBlock; l++) {
+                            content.beginText();
+                            content.newLineAtOffset(50, y);
+                            content.showText("Page " + (p + 1) + " block " + (b + 1) + " line " + (l + 1));
+                            content.endText();
+                            y -= 12;
+                        }
+                        // Gaps grow down the page so the ranking is deterministic
+                        y -= 10 + 6 * b;
+                        if (y < 60) {
+                            break;
+                        }
+                    }
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    public static File textPdfFile(File directory, String name, int pages, int blocksPerPage, int linesPerBlock) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), textPdf(pages, blocksPerPage, linesPerBlock));
+        return file;
+    }
+
+    public static byte[] scannedPdf(int pages, int blocksPerPage, int linesPerBlock) throws IOException {
+        try (PDDocument text = PDDocument.load(textPdf(pages, blocksPerPage, linesPerBlock));
+             PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDFRenderer renderer = new PDFRenderer(text);
+            for (int p = 0; p < pages; p++) {
+                BufferedImage scan = renderer.renderImageWithDPI(p, 100, ImageType.GRAY);
+                PDPage page = new PDPage(PDRectangle.A4);
+                document.addPage(page);
+                PDImageXObject image = LosslessFactory.createFromImage(document, scan);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.drawImage(image, 0, 0, page.getMediaBox().getWidth(), page.getMediaBox().getHeight());
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}